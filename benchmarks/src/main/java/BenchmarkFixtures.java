@@ -0,0 +1,337 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * BenchmarkFixtures class
+ * Builds the work measured by the benchmarks of the benchmarks package.
+ * JMH doesn't accept benchmarks in the default package and classes in a package can't use the
+ * ones of the default package, so the benchmarks look these methods up once, by name, and only call
+ * the IntSupplier they return while measuring.
+ * Instances come from corpus.txt, layouts are "objects" (StacksOfContainers) or "packed" (PackedStacksOfContainers).
+ */
+public class BenchmarkFixtures {
+    //number of layouts the per operation benchmarks go through
+    private static final int SAMPLE = 64;
+
+    /**
+     * Reads an instance of the corpus
+     * @param name name of the instance
+     * @return initial and goal layouts, as read by Main
+     * @throws IllegalStateException if there is no instance with that name
+     */
+    static String[] instance(String name){
+        InputStream in = BenchmarkFixtures.class.getResourceAsStream("/corpus.txt");
+        if(in == null){
+            throw new IllegalStateException("corpus.txt not found");
+        }
+        try(BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))){
+            String line;
+            while((line = r.readLine()) != null){
+                String[] fields = line.split("\\|");
+                if(!line.startsWith("#") && fields.length == 3 && fields[0].equals(name)){
+                    return new String[]{fields[1], fields[2]};
+                }
+            }
+        } catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalStateException("No instance " + name + " in corpus.txt");
+    }
+
+    /**
+     * Builds the layouts of an instance
+     * @param lines initial and goal layouts of the instance, as read by Main
+     * @param layout "objects" or "packed"
+     * @param goals number of goal layouts (all equal, but each with its own goal index)
+     * @return initial layout followed by the goal layouts
+     * @throws IllegalStateException if the layout isn't known
+     */
+    static Ilayout[] layouts(String[] lines, String layout, int goals){
+        Ilayout[] result = new Ilayout[goals + 1];
+        switch(layout){
+            case "objects" -> {
+                StacksOfContainers initial = new StacksOfContainers(lines[0], false);
+                result[0] = initial;
+                for(int i = 1; i <= goals; i++){
+                    result[i] = new StacksOfContainers(lines[1], initial);
+                }
+            }
+            case "packed" -> {
+                PackedStacksOfContainers initial = new PackedStacksOfContainers(lines[0]);
+                result[0] = initial;
+                for(int i = 1; i <= goals; i++){
+                    result[i] = new PackedStacksOfContainers(lines[1], initial);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown layout: " + layout);
+        }
+        return result;
+    }
+
+    /**
+     * Takes the first layouts found by a breadth first search from the initial one,
+     * so the sample has the stack shapes the solvers actually go through
+     * @param initial initial layout
+     * @param goal goal layout (every layout of the sample gets its h)
+     * @param size number of layouts
+     * @return sample of layouts
+     */
+    private static List<Ilayout> sample(Ilayout initial, Ilayout goal, int size){
+        List<Ilayout> sample = new ArrayList<>();
+        HashMap<Ilayout, Ilayout> seen = new HashMap<>();
+        initial.heuristics(goal);
+        sample.add(initial);
+        seen.put(initial, initial);
+        for(int i = 0; i < sample.size() && sample.size() < size; i++){
+            for(Move m : sample.get(i).moves()){
+                Ilayout child = sample.get(i).apply(m);
+                if(seen.putIfAbsent(child, child) == null && sample.size() < size){
+                    child.heuristics(goal);
+                    sample.add(child);
+                }
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Child generation: every move of every layout of the sample is listed and applied
+     * (apply also updates the key and h of the child)
+     * @param name name of the instance
+     * @param layout "objects" or "packed"
+     * @return number of children built by each call
+     */
+    public static IntSupplier children(String name, String layout){
+        Ilayout[] l = layouts(instance(name), layout, 1);
+        List<Ilayout> sample = sample(l[0], l[1], SAMPLE);
+        return () -> {
+            int n = 0;
+            for(Ilayout parent : sample){
+                for(Move m : parent.moves()){
+                    if(parent.apply(m) != null){
+                        n++;
+                    }
+                }
+            }
+            return n;
+        };
+    }
+
+    /**
+     * Successors of every layout of the sample, as children() gives them ("children") or as BestFirst builds
+     * them ("search": one per move that doesn't undo the last one, which it has done since moves() came in)
+     * @param name name of the instance
+     * @param layout "objects" or "packed"
+     * @param source "children" or "search"
+     * @return number of successors built by each call
+     * @throws IllegalStateException if the source isn't known
+     */
+    public static IntSupplier successors(String name, String layout, String source){
+        Ilayout[] l = layouts(instance(name), layout, 1);
+        List<Ilayout> sample = sample(l[0], l[1], SAMPLE);
+        return switch(source){
+            case "children" -> () -> {
+                int n = 0;
+                for(Ilayout parent : sample){
+                    n += parent.children().size();
+                }
+                return n;
+            };
+            case "search" -> () -> {
+                int n = 0;
+                for(Ilayout parent : sample){
+                    for(Move m : parent.moves()){
+                        if(!m.undo && parent.apply(m) != null){
+                            n++;
+                        }
+                    }
+                }
+                return n;
+            };
+            default -> throw new IllegalStateException("Unknown source: " + source);
+        };
+    }
+
+    /**
+     * Nodes generated by a whole BestFirst search of an instance
+     * @param name name of the instance
+     * @param layout "objects" or "packed"
+     * @return number of states generated by each call
+     */
+    public static IntSupplier generated(String name, String layout){
+        String[] lines = instance(name);
+        return () -> {
+            //fresh layouts every time, so no h or goal index is left from the previous call
+            Ilayout[] l = layouts(lines, layout, 1);
+            BestFirst solver = new BestFirst();
+            solver.solve(l[0], l[1]);
+            return (int) solver.getStatistics().getGenerated();
+        };
+    }
+
+    /**
+     * Heuristic evaluation: h0 of every layout of the sample, computed from scratch
+     * Layouts keep the h of the last goal they were evaluated with, so two equal goals
+     * are used in turns to make every call compute it again
+     * @param name name of the instance
+     * @param layout "objects" or "packed"
+     * @return sum of the h values of each call
+     */
+    public static IntSupplier heuristic(String name, String layout){
+        Ilayout[] l = layouts(instance(name), layout, 2);
+        List<Ilayout> sample = sample(l[0], l[1], SAMPLE);
+        return new IntSupplier(){
+            private int turn = 0;
+
+            @Override
+            public int getAsInt(){
+                int sum = 0;
+                this.turn ^= 1;
+                for(Ilayout s : sample){
+                    sum += (int) s.heuristics(l[1 + this.turn]);
+                }
+                return sum;
+            }
+        };
+    }
+
+    /**
+     * Hashing and equality: every layout of the sample is looked up in a HashMap
+     * filled with equal layouts built separately, as fechados does during a search
+     * @param name name of the instance
+     * @param layout "objects" or "packed"
+     * @return number of layouts found by each call
+     */
+    public static IntSupplier lookup(String name, String layout){
+        Ilayout[] l = layouts(instance(name), layout, 1);
+        List<Ilayout> sample = sample(l[0], l[1], SAMPLE);
+        HashMap<Ilayout, Ilayout> map = new HashMap<>();
+        Ilayout[] copy = layouts(instance(name), layout, 1);
+        for(Ilayout s : sample(copy[0], copy[1], SAMPLE)){
+            map.put(s, s);
+        }
+        return () -> {
+            int n = 0;
+            for(Ilayout s : sample){
+                if(map.get(s) != null){
+                    n++;
+                }
+            }
+            return n;
+        };
+    }
+
+    /**
+     * Open list operations: the states of a search are added to an empty open list and all taken out again,
+     * each one looked up first as BestFirst does
+     * "queue" is what BestFirst used before OpenList: a PriorityQueue by f and a HashSet of the layouts added
+     * @param name name of the instance
+     * @param list "queue", "heap", "bucket" or "bucket-lifo"
+     * @param size number of states
+     * @return number of states taken out by each call
+     * @throws IllegalStateException if the list isn't known
+     */
+    public static IntSupplier openList(String name, String list, int size){
+        Supplier<OpenList> factory = switch(list){
+            case "queue" -> null;
+            case "heap" -> BinaryHeapOpenList::new;
+            case "bucket" -> BucketOpenList::new;
+            case "bucket-lifo" -> () -> new BucketOpenList(true, BucketOpenList.Order.LIFO);
+            default -> throw new IllegalStateException("Unknown open list: " + list);
+        };
+        Ilayout[] l = layouts(instance(name), "packed", 1);
+        //states in the order a breadth first search builds them, with their real g and h
+        List<BestFirst.State> states = new ArrayList<>();
+        HashMap<Ilayout, Ilayout> seen = new HashMap<>();
+        states.add(new BestFirst.State(l[0], null, l[1]));
+        seen.put(l[0], l[0]);
+        for(int i = 0; i < states.size() && states.size() < size; i++){
+            BestFirst.State parent = states.get(i);
+            for(Move m : parent.getLayout().moves()){
+                Ilayout child = parent.getLayout().apply(m);
+                if(seen.putIfAbsent(child, child) == null && states.size() < size){
+                    states.add(new BestFirst.State(child, parent, l[1]));
+                }
+            }
+        }
+        if(factory == null){
+            return () -> {
+                PriorityQueue<BestFirst.State> abertos = new PriorityQueue<>(10, (s1, s2) ->
+                        (int) Math.signum((s1.getG() + s1.getH()) - (s2.getG() + s2.getH())));
+                HashSet<Ilayout> abertosHS = new HashSet<>();
+                for(BestFirst.State s : states){
+                    if(!abertosHS.contains(s.getLayout())){
+                        abertos.add(s);
+                        abertosHS.add(s.getLayout());
+                    }
+                }
+                int n = 0;
+                while(abertos.poll() != null){
+                    n++;
+                }
+                return n;
+            };
+        }
+        return () -> {
+            OpenList abertos = factory.get();
+            for(BestFirst.State s : states){
+                if(abertos.get(s.getLayout()) == null){
+                    abertos.add(s);
+                }
+            }
+            int n = 0;
+            while(abertos.poll() != null){
+                n++;
+            }
+            return n;
+        };
+    }
+
+    /**
+     * End to end solve of an instance
+     * @param name name of the instance
+     * @param layout "objects" or "packed"
+     * @param solver "astar", "bucket", "bidir", "ida" or "parallelN" (N worker threads)
+     * @return cost of the solution found by each call, -1 if there is none
+     * @throws IllegalStateException if the solver isn't known
+     */
+    public static IntSupplier solve(String name, String layout, String solver){
+        Supplier<Solver> factory;
+        if(solver.startsWith("parallel")){
+            int threads = Integer.parseInt(solver.substring("parallel".length()));
+            factory = () -> new ParallelBestFirst(threads);
+        }
+        else{
+            factory = switch(solver){
+                case "astar" -> BestFirst::new;
+                case "bucket" -> () -> new BestFirst(BucketOpenList::new);
+                case "bidir" -> BidirectionalBestFirst::new;
+                case "ida" -> () -> new IDAStar(1 << 16);
+                default -> throw new IllegalStateException("Unknown solver: " + solver);
+            };
+        }
+        String[] lines = instance(name);
+        return () -> {
+            //fresh layouts every time, so no h or goal index is left from the previous call
+            Ilayout[] l = layouts(lines, layout, 1);
+            Iterator<BestFirst.State> it = factory.get().solve(l[0], l[1]);
+            BestFirst.State last = null;
+            while(it != null && it.hasNext()){
+                last = it.next();
+            }
+            return last == null ? -1 : (int) last.getG();
+        };
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.Locale;
+
+/**
+ * ScalabilityReport class
+ * Sweep of ParallelBestFirst from 1 to N worker threads on the larger instances of the corpus.
+ * For every number of threads it prints the best wall time of a few solves and the work of the search:
+ * states expanded by all the workers, by the busiest one, and the speedup bound, the expansions of one
+ * thread over the ones of the busiest worker. The bound doesn't depend on the machine: with a core per
+ * worker, a search can't go faster than its busiest worker, and the extra states expanded by many
+ * workers (search overhead) lower it. The wall times only show a speedup with a core per worker.
+ * java -cp benchmarks/target/benchmarks.jar ScalabilityReport [maxThreads] [runs] [instances, comma separated]
+ * The corpus instances up to n24 take A* a few dozen expansions, h24 about 41000.
+ */
+public class ScalabilityReport {
+
+    public static void main(String[] args){
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        String[] instances = (args.length > 2 ? args[2] : "n12,n16,n20,n24,h24").split(",");
+        System.out.printf("%d cores%n", Runtime.getRuntime().availableProcessors());
+        System.out.println("instance threads       ms   expanded    busiest  bound   cost");
+        for(String name : instances){
+            long single = 0;
+            for(int threads = 1; threads <= maxThreads; threads *= 2){
+                long best = Long.MAX_VALUE;
+                ParallelBestFirst solver = new ParallelBestFirst(threads);
+                for(int run = 0; run < runs; run++){
+                    //fresh layouts every time, so no h or goal index is left from the previous run
+                    Ilayout[] l = BenchmarkFixtures.layouts(BenchmarkFixtures.instance(name), "packed", 1);
+                    long t0 = System.nanoTime();
+                    solver.solution(l[0], l[1]);
+                    best = Math.min(best, System.nanoTime() - t0);
+                }
+                SearchStatistics stats = solver.getStatistics();
+                long busiest = 0;
+                for(long e : solver.getExpandedPerWorker()){
+                    busiest = Math.max(busiest, e);
+                }
+                if(threads == 1){
+                    single = stats.getExpanded();
+                }
+                System.out.printf(Locale.ROOT, "%-8s %7d %8.1f %10d %10d %6.2f %6d%n", name, threads, best / 1e6,
+                        stats.getExpanded(), busiest, (double) single / busiest, (int) stats.getCost());
+            }
+        }
+    }
+}
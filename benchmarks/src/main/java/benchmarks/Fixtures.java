@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.IntSupplier;
+
+/**
+ * Fixtures class
+ * Gets the work to measure from BenchmarkFixtures, which lives in the default package with the solver.
+ * The lookup is done once, in the setup of each benchmark, so nothing reflective is measured.
+ */
+final class Fixtures {
+    private Fixtures(){
+    }
+
+    /**
+     * Calls a static method of BenchmarkFixtures
+     * @param method name of the method
+     * @param args arguments (strings and ints)
+     * @return the work built by the method
+     * @throws IllegalStateException if the method doesn't exist or fails
+     */
+    static IntSupplier get(String method, Object... args){
+        Class<?>[] types = new Class<?>[args.length];
+        for(int i = 0; i < args.length; i++){
+            types[i] = args[i] instanceof Integer ? int.class : args[i].getClass();
+        }
+        try{
+            Method m = Class.forName("BenchmarkFixtures").getMethod(method, types);
+            return (IntSupplier) m.invoke(null, args);
+        } catch(InvocationTargetException e){
+            throw new IllegalStateException("BenchmarkFixtures." + method + " failed", e.getCause());
+        } catch(ReflectiveOperationException e){
+            throw new IllegalStateException("BenchmarkFixtures." + method + " not found", e);
+        }
+    }
+}
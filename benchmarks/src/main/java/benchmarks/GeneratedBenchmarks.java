@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GeneratedBenchmarks class
+ * Runs a whole BestFirst search per operation and reports the nodes it generated
+ * (the "generated" secondary result is the total of the Cnt measured searches, one per iteration).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GeneratedBenchmarks {
+    @Param({"objects", "packed"})
+    public String layout;
+
+    @Param({"n08", "n16", "n20", "n24"})
+    public String instance;
+
+    private IntSupplier search;
+
+    /**
+     * Number of states generated by each search
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Generated {
+        public long generated;
+    }
+
+    @Setup
+    public void setup(){
+        this.search = Fixtures.get("generated", this.instance, this.layout);
+    }
+
+    @Benchmark
+    public int search(Generated g){
+        int n = this.search.getAsInt();
+        g.generated += n;
+        return n;
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LayoutBenchmarks class
+ * Per operation benchmarks of the layouts, over a sample of 64 layouts of each instance:
+ * child generation, h0 from scratch and HashMap lookups (hashCode and equals).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmarks {
+    @Param({"objects", "packed"})
+    public String layout;
+
+    @Param({"n08", "n16", "n24"})
+    public String instance;
+
+    private IntSupplier children;
+    private IntSupplier heuristic;
+    private IntSupplier lookup;
+
+    @Setup
+    public void setup(){
+        this.children = Fixtures.get("children", this.instance, this.layout);
+        this.heuristic = Fixtures.get("heuristic", this.instance, this.layout);
+        this.lookup = Fixtures.get("lookup", this.instance, this.layout);
+    }
+
+    @Benchmark
+    public int children(){
+        return this.children.getAsInt();
+    }
+
+    @Benchmark
+    public int heuristic(){
+        return this.heuristic.getAsInt();
+    }
+
+    @Benchmark
+    public int lookup(){
+        return this.lookup.getAsInt();
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OpenListBenchmarks class
+ * Adds the states of a search to an empty open list and takes them all out again.
+ * "queue" is the PriorityQueue and HashSet BestFirst used before OpenList, the baseline of the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenListBenchmarks {
+    @Param({"queue", "heap", "bucket", "bucket-lifo"})
+    public String list;
+
+    @Param({"1000", "10000", "400000"})
+    public int states;
+
+    @Param({"n16"})
+    public String instance;
+
+    private IntSupplier addPoll;
+
+    @Setup
+    public void setup(){
+        this.addPoll = Fixtures.get("openList", this.instance, this.list, this.states);
+    }
+
+    @Benchmark
+    public int addPoll(){
+        return this.addPoll.getAsInt();
+    }
+}
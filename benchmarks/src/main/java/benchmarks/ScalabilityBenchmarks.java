@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScalabilityBenchmarks class
+ * Solves of the larger instances of the corpus by ParallelBestFirst, from 1 to 8 worker threads
+ * (see ScalabilityReport for the work done by each worker).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ScalabilityBenchmarks {
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"n12", "n16", "n20", "n24", "h24"})
+    public String instance;
+
+    private IntSupplier solve;
+
+    @Setup
+    public void setup(){
+        this.solve = Fixtures.get("solve", this.instance, "packed", "parallel" + this.threads);
+    }
+
+    @Benchmark
+    public int solve(){
+        return this.solve.getAsInt();
+    }
+}
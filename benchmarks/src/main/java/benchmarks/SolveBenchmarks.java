@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SolveBenchmarks class
+ * End to end solves of the corpus, from 4 to 24 containers.
+ * The solution cost is returned, so a run also shows if a change broke optimality.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SolveBenchmarks {
+    @Param({"astar", "bucket", "bidir", "ida", "parallel2"})
+    public String solver;
+
+    @Param({"packed", "objects"})
+    public String layout;
+
+    @Param({"n04", "n06", "n08", "n10", "n12", "n16", "n20", "n24"})
+    public String instance;
+
+    private IntSupplier solve;
+
+    @Setup
+    public void setup(){
+        this.solve = Fixtures.get("solve", this.instance, this.layout, this.solver);
+    }
+
+    @Benchmark
+    public int solve(){
+        return this.solve.getAsInt();
+    }
+}
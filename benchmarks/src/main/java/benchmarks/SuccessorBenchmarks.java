@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SuccessorBenchmarks class
+ * Builds the successors of a sample of layouts once per operation and reports how many were built
+ * (the "generated" secondary result), with children() and the way BestFirst builds them.
+ * The nodes generated by whole searches are in GeneratedBenchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+public class SuccessorBenchmarks {
+    @Param({"children", "search"})
+    public String source;
+
+    @Param({"objects", "packed"})
+    public String layout;
+
+    @Param({"n08", "n16", "n24"})
+    public String instance;
+
+    private IntSupplier successors;
+
+    /**
+     * Number of successors built by each operation
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Generated {
+        public long generated;
+    }
+
+    @Setup
+    public void setup(){
+        this.successors = Fixtures.get("successors", this.instance, this.layout, this.source);
+    }
+
+    @Benchmark
+    public int successors(Generated g){
+        int n = this.successors.getAsInt();
+        g.generated += n;
+        return n;
+    }
+}
@@ -0,0 +1,340 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AnytimeBestFirst class
+ * Anytime Repairing A* (ARA*): weighted A* (f = g + w * h) that starts with a big weight, so a first
+ * solution comes quickly, and then lowers the weight step by step, down to 1 (plain A*), improving the solution.
+ * Each search reuses the states of the one before: only the states waiting, and the ones that got a cheaper
+ * path after being closed (INCONS), are put back in abertos with the new weight.
+ * The cost of the best solution found is never more than bound times the optimum, where bound is cost / (smallest
+ * g + h waiting or inconsistent), or w once a search with it ends, so it is known at any moment (getCost, getBound)
+ * and reaches 1 at the end.
+ * On a deadline, or when its thread is interrupted, the search stops and returns the best solution it has.
+ */
+public class AnytimeBestFirst implements Solver {
+    private final double initialWeight;
+    private final double step;
+    private OpenList abertos;
+    private Set<Ilayout> fechados; //closed in the current search
+    private Set<BestFirst.State> incons; //closed in the current search, and then reached by a cheaper path
+    private Map<Ilayout, BestFirst.State> seen; //every state, with its best g
+    private Ilayout objective;
+    private SearchStatistics statistics;
+    private SearchListener listener;
+    private long maxStates = Long.MAX_VALUE;
+    private long timeLimit = Long.MAX_VALUE; //nanos
+    private volatile BestFirst.State best;
+    private volatile double bound = Double.POSITIVE_INFINITY;
+    private volatile double weight;
+
+    /**
+     * AnytimeBestFirst constructor, weights 3, 2.5, 2, 1.5 and 1
+     */
+    public AnytimeBestFirst(){
+        this(3, 0.5);
+    }
+
+    /**
+     * AnytimeBestFirst constructor
+     * @param initialWeight weight of h in the first search
+     * @param step how much the weight is lowered after each search
+     * @throws IllegalArgumentException if initialWeight is smaller than 1 or step isn't positive
+     */
+    public AnytimeBestFirst(double initialWeight, double step){
+        if(!(initialWeight >= 1) || !(step > 0)){
+            throw new IllegalArgumentException("Invalid weights: " + initialWeight + ", step " + step);
+        }
+        this.initialWeight = initialWeight;
+        this.step = step;
+    }
+
+    /**
+     * Sets the listener told about the progress of the next solves (see SearchListener.improved)
+     * @param listener listener, null for none
+     */
+    public void setListener(SearchListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the limits of the next solves (see BestFirst.setLimits)
+     * A solve that reaches one of them returns the best solution found until then, and throws a
+     * SearchLimitException only if it hasn't found any
+     * @param maxStates maximum number of states kept, 0 for no limit
+     * @param timeoutMillis maximum duration of a solve, in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public void setLimits(long maxStates, long timeoutMillis){
+        if(maxStates < 0 || timeoutMillis < 0){
+            throw new IllegalArgumentException("Invalid limits: " + maxStates + " states, " + timeoutMillis + " ms");
+        }
+        this.maxStates = maxStates == 0 ? Long.MAX_VALUE : maxStates;
+        this.timeLimit = timeoutMillis == 0 ? Long.MAX_VALUE : timeoutMillis * 1_000_000;
+    }
+
+    /**
+     * @return statistics of the last solve (or of the one running), null before the first one
+     */
+    @Override
+    public SearchStatistics getStatistics(){
+        return statistics;
+    }
+
+    /**
+     * Can be called from any thread while a solve runs
+     * @return cost of the best solution found by the last solve, infinity if there is none yet
+     */
+    public double getCost(){
+        BestFirst.State b = this.best;
+        return b == null ? Double.POSITIVE_INFINITY : b.getG();
+    }
+
+    /**
+     * Can be called from any thread while a solve runs
+     * @return proven bound of the suboptimality of the best solution (1 when it is optimal), infinity if there is none yet
+     */
+    public double getBound(){
+        return this.bound;
+    }
+
+    /**
+     * Can be called from any thread while a solve runs
+     * @return weight of the current search
+     */
+    public double getWeight(){
+        return this.weight;
+    }
+
+    /**
+     * Solves the board
+     * @param s initial board layout
+     * @param goal board layout
+     * @return iterator with all the steps of the best solution found, null if goal can't be reached
+     * @throws SearchLimitException if a limit is reached before finding any solution
+     */
+    @Override
+    public Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal){
+        BestFirst.State last = this.search(s, goal);
+        return last == null ? null : last.path();
+    }
+
+    /**
+     * Solves the board without building the list of steps
+     * @param s initial board layout
+     * @param goal board layout
+     * @return best solution found, null if goal can't be reached
+     * @throws SearchLimitException if a limit is reached before finding any solution
+     */
+    @Override
+    public Solution solution(Ilayout s, Ilayout goal){
+        BestFirst.State last = this.search(s, goal);
+        return last == null ? null : new Solution(last);
+    }
+
+    /**
+     * Runs the searches, from the initial weight down to 1
+     * @param s initial board layout
+     * @param goal board layout
+     * @return goal state of the best solution found, null if goal can't be reached
+     * @throws SearchLimitException if a limit is reached before finding any solution
+     */
+    private BestFirst.State search(Ilayout s, Ilayout goal){
+        this.objective = goal;
+        this.statistics = new SearchStatistics();
+        this.statistics.startNanos = System.nanoTime();
+        this.best = null;
+        this.bound = Double.POSITIVE_INFINITY;
+        this.weight = this.initialWeight;
+        this.abertos = new BinaryHeapOpenList(this.weight);
+        this.fechados = new HashSet<>();
+        this.incons = new HashSet<>();
+        this.seen = new HashMap<>();
+        BestFirst.State root = new BestFirst.State(s, null, goal);
+        this.statistics.rootH = root.getH();
+        this.seen.put(s, root);
+        this.abertos.add(root);
+        if(s.isGoal(goal)){
+            this.improved(root);
+        }
+        try{
+            while(true){
+                SearchLimitException.Limit limit = this.improvePath();
+                if(limit != null){
+                    if(this.best == null){
+                        this.finish();
+                        throw new SearchLimitException(limit, this.statistics);
+                    }
+                    return this.finish();
+                }
+                //the states waiting and the inconsistent ones go to the next search, with the next weight
+                List<BestFirst.State> waiting = new ArrayList<>(this.abertos.size() + this.incons.size());
+                while(!this.abertos.isEmpty()){
+                    waiting.add(this.abertos.poll());
+                }
+                waiting.addAll(this.incons);
+                this.incons.clear();
+                this.fechados.clear();
+                if(this.best == null){
+                    //abertos is empty, there is no solution
+                    return this.finish();
+                }
+                double lower = Double.POSITIVE_INFINITY;
+                for(BestFirst.State w : waiting){
+                    lower = Math.min(lower, w.getG() + w.getH());
+                }
+                double b = lower >= this.best.getG() ? 1 : Math.min(this.weight, this.best.getG() / lower);
+                if(b < this.bound){
+                    this.bound = b;
+                    if(this.listener != null){
+                        this.listener.improved(new Solution(this.best), b, this.statistics);
+                    }
+                }
+                if(b == 1){
+                    return this.finish();
+                }
+                this.weight = Math.max(1, this.weight - this.step);
+                this.abertos = new BinaryHeapOpenList(this.weight);
+                for(BestFirst.State w : waiting){
+                    this.abertos.add(w);
+                }
+            }
+        } finally{
+            this.abertos = null;
+            this.fechados = null;
+            this.incons = null;
+            this.seen = null;
+        }
+    }
+
+    /**
+     * One weighted A* search, until no state waiting can lead to a better solution than the best one
+     * @return limit reached, null if the search ended
+     */
+    private SearchLimitException.Limit improvePath(){
+        while(!this.abertos.isEmpty()){
+            if(System.nanoTime() - this.statistics.startNanos > this.timeLimit){
+                return SearchLimitException.Limit.TIME;
+            }
+            if(this.seen.size() > this.maxStates){
+                return SearchLimitException.Limit.STATES;
+            }
+            if(Thread.currentThread().isInterrupted()){
+                return SearchLimitException.Limit.INTERRUPTED;
+            }
+            BestFirst.State actual = this.abertos.poll();
+            if(this.best != null && actual.getG() + this.weight * actual.getH() >= this.best.getG()){
+                //it was the smallest f, so nothing waiting can improve the solution
+                this.abertos.add(actual);
+                return null;
+            }
+            this.fechados.add(actual.getLayout());
+            //a better solution is kept once actual is expanded, when every child is waiting for the bound
+            BestFirst.State goal = null;
+            for(Move m : actual.getLayout().moves()){
+                if(m.undo){
+                    continue;
+                }
+                BestFirst.State suc = new BestFirst.State(actual.getLayout().apply(m), actual, m, this.objective);
+                this.statistics.generated++;
+                BestFirst.State old = this.seen.get(suc.getLayout());
+                if(old == null){
+                    this.seen.put(suc.getLayout(), suc);
+                    this.abertos.add(suc);
+                    old = suc;
+                }
+                else if(suc.getG() < old.getG()){
+                    old.takePath(suc);
+                    this.statistics.reopened++;
+                    if(this.abertos.get(old.getLayout()) != null){
+                        this.abertos.decreaseKey(old);
+                    }
+                    else if(this.fechados.contains(old.getLayout())){
+                        this.incons.add(old);
+                    }
+                    else{
+                        //closed by an earlier search
+                        this.abertos.add(old);
+                    }
+                }
+                else{
+                    this.statistics.duplicates++;
+                    continue;
+                }
+                if(old.getLayout().isGoal(this.objective) && (this.best == null || old.getG() < this.best.getG())
+                        && (goal == null || old.getG() < goal.getG())){
+                    goal = old;
+                }
+            }
+            if(goal != null){
+                this.improved(goal);
+            }
+            this.statistics.expanded++;
+            this.statistics.sizes(this.abertos.size(), this.seen.size());
+            if(this.statistics.expanded % SearchStatistics.HEAP_SAMPLE == 0){
+                this.statistics.sampleHeap();
+            }
+            if(this.listener != null){
+                this.listener.expanded(actual, this.statistics);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keeps a better solution
+     * The states of its path can still get cheaper paths (and other fathers) in the searches that follow,
+     * so the path is copied into new states, which also gives its exact cost
+     * Called once the state that reached goal is expanded, so the bound it proves covers all its children
+     * @param goal goal state of the solution
+     */
+    private void improved(BestFirst.State goal){
+        List<BestFirst.State> path = new ArrayList<>();
+        for(BestFirst.State f = goal; f != null; f = f.getFather()){
+            path.add(f);
+        }
+        BestFirst.State copy = null;
+        for(int i = path.size() - 1; i >= 0; i--){
+            copy = new BestFirst.State(path.get(i).getLayout(), copy, path.get(i).getMove(), this.objective);
+        }
+        this.best = copy;
+        this.statistics.cost = copy.getG();
+        this.statistics.depth = path.size() - 1;
+        //a goal is kept as soon as it is generated, so the weight doesn't hold yet: every cheaper path still
+        //goes through a state waiting or inconsistent, and a bound already proven can't loosen
+        double lower = Double.POSITIVE_INFINITY;
+        for(BestFirst.State w : this.abertos.states()){
+            lower = Math.min(lower, w.getG() + w.getH());
+        }
+        for(BestFirst.State w : this.incons){
+            lower = Math.min(lower, w.getG() + w.getH());
+        }
+        this.bound = Math.min(this.bound, lower >= copy.getG() ? 1 : copy.getG() / lower);
+        if(this.listener != null){
+            //the search chain of goal can still be re-parented, the copy can't
+            this.listener.improved(new Solution(copy), this.bound, this.statistics);
+        }
+    }
+
+    /**
+     * Ends a solve, completing its statistics
+     * @return goal state of the best solution, null if there is none
+     */
+    private BestFirst.State finish(){
+        BestFirst.State last = this.best;
+        if(last != null){
+            this.statistics.cost = last.getG();
+        }
+        this.statistics.sampleHeap();
+        this.statistics.totalNanos = System.nanoTime() - this.statistics.startNanos;
+        if(this.listener != null){
+            this.listener.finished(this.statistics);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,149 @@
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * AsyncSolver class
+ * Thread safe, asynchronous front of BestFirst, for servers that run many small solves at once.
+ * A BestFirst keeps its search in its fields, so it can't be shared: every solve gets its own one,
+ * and runs on its own virtual thread. The search checks, on every expansion, its deadline and its limit
+ * of states, and whether its thread was interrupted, which is how cancel stops it.
+ * A solve that is stopped still gives the statistics of what it did until then (see Solve.statistics).
+ */
+public class AsyncSolver implements AutoCloseable {
+    private final Supplier<BestFirst> solvers;
+    private final ExecutorService executor;
+
+    /**
+     * AsyncSolver constructor, every solve gets a BestFirst with a binary heap
+     */
+    public AsyncSolver(){
+        this(BestFirst::new);
+    }
+
+    /**
+     * AsyncSolver constructor
+     * @param solvers creates the solver of each solve (e.g. () -> new BestFirst(BucketOpenList::new)),
+     * called from the thread of the solve
+     */
+    public AsyncSolver(Supplier<BestFirst> solvers){
+        this.solvers = solvers;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Solve class
+     * Solution of a solve that is running, null if the goal can't be reached.
+     * It completes exceptionally with a SearchLimitException (with the statistics until then) if the solve
+     * reached its deadline or its limit of states. cancel(true) or cancel(false) both interrupt the search.
+     */
+    public static class Solve extends CompletableFuture<Solution> {
+        private final CompletableFuture<SearchStatistics> statistics = new CompletableFuture<>();
+        private volatile Thread thread; //thread of the search, null before it starts and after it ends
+
+        /**
+         * Cancels the solve, the search stops at its next expansion
+         * @param mayInterruptIfRunning ignored, the search is always interrupted
+         * @return true if the solve was cancelled, false if it had already completed
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning){
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Thread t = this.thread;
+            //the thread of a solve isn't reused, so interrupting it late does no harm
+            if(cancelled && t != null){
+                t.interrupt();
+            }
+            return cancelled;
+        }
+
+        /**
+         * Statistics of the solve, given when its search ends: solved, unsolvable, stopped by a limit or cancelled
+         * (partial statistics, then). Completes with null if the solve was cancelled before it started.
+         * @return future statistics of the solve
+         */
+        public CompletableFuture<SearchStatistics> statistics(){
+            return this.statistics;
+        }
+    }
+
+    /**
+     * Starts a solve with no deadline nor limit of states
+     * @param initial initial layout
+     * @param goal goal layout
+     * @return the solve
+     */
+    public Solve solve(Ilayout initial, Ilayout goal){
+        return this.solve(initial, goal, Duration.ZERO, 0);
+    }
+
+    /**
+     * Starts a solve
+     * @param initial initial layout
+     * @param goal goal layout
+     * @param timeout maximum duration of the search, Duration.ZERO for no limit
+     * @param maxStates maximum number of states kept by the search, 0 for no limit
+     * @return the solve
+     * @throws IllegalArgumentException if a limit is negative
+     * @throws java.util.concurrent.RejectedExecutionException if the solver was closed
+     */
+    public Solve solve(Ilayout initial, Ilayout goal, Duration timeout, long maxStates){
+        if(timeout.isNegative() || maxStates < 0){
+            throw new IllegalArgumentException("Invalid limits: " + maxStates + " states, " + timeout);
+        }
+        //less than a millisecond is still a deadline
+        long millis = timeout.isZero() ? 0 : Math.max(1, timeout.toMillis());
+        Solve solve = new Solve();
+        this.executor.execute(() -> run(solve, initial, goal, millis, maxStates));
+        return solve;
+    }
+
+    /**
+     * Runs a solve, on its own thread
+     * @param solve the solve
+     * @param initial initial layout
+     * @param goal goal layout
+     * @param timeoutMillis maximum duration of the search, 0 for no limit
+     * @param maxStates maximum number of states kept by the search, 0 for no limit
+     */
+    private void run(Solve solve, Ilayout initial, Ilayout goal, long timeoutMillis, long maxStates){
+        solve.thread = Thread.currentThread();
+        //cancelled before the thread was known, so nobody interrupted it
+        if(solve.isCancelled()){
+            solve.thread = null;
+            solve.statistics.complete(null);
+            return;
+        }
+        BestFirst solver = null;
+        try{
+            solver = this.solvers.get();
+            solver.setLimits(maxStates, timeoutMillis);
+            Solution solution = solver.solution(initial, goal);
+            solver.release();
+            solve.statistics.complete(solver.getStatistics());
+            solve.complete(solution);
+        } catch(SearchLimitException e){
+            solve.statistics.complete(e.getStatistics());
+            solve.completeExceptionally(e);
+        } catch(Throwable e){
+            //any other failure, Errors included, completes the solve, or its callers would wait forever
+            if(solver != null){
+                solver.release();
+            }
+            solve.statistics.complete(solver == null ? null : solver.getStatistics());
+            solve.completeExceptionally(e);
+        } finally{
+            solve.thread = null;
+        }
+    }
+
+    /**
+     * Interrupts the solves that are running, which complete with a SearchLimitException, and doesn't take new ones
+     */
+    @Override
+    public void close(){
+        this.executor.shutdownNow();
+    }
+}
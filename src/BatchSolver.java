@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BatchSolver class
+ * Solves many instances in the same JVM, on a fixed number of worker threads, one BestFirst per instance.
+ * Instances are read as they are needed by an InstanceParser, and numbered from 1 in input order
+ * (an instance that can't be read keeps its number and gets an error result).
+ * At most two instances per worker are read ahead, so memory doesn't grow with the size of the input.
+ * Each result is written when it's ready: in input order, or tagged with its number as soon as it completes.
+ * The time and the number of states of each instance can be limited, so one instance can't stall the batch.
+ */
+public class BatchSolver {
+    private final int threads;
+    private final boolean packed;
+    private final boolean bucket;
+    private long maxStates = 0;
+    private long timeoutMillis = 0;
+    private boolean ordered = true;
+    private boolean json = false;
+    private int solved; //results written with a solution, in the current run
+
+    /**
+     * BatchSolver constructor
+     * @param threads number of worker threads
+     * @param packed true to use PackedStacksOfContainers, false for StacksOfContainers
+     * @param bucket true to give BestFirst a BucketOpenList
+     * @throws IllegalArgumentException if threads isn't positive
+     */
+    public BatchSolver(int threads, boolean packed, boolean bucket){
+        if(threads < 1){
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.threads = threads;
+        this.packed = packed;
+        this.bucket = bucket;
+    }
+
+    /**
+     * Sets the limits of each instance (see BestFirst.setLimits)
+     * @param maxStates maximum number of states kept by the search, 0 for no limit
+     * @param timeoutMillis maximum time to solve, in milliseconds, 0 for no limit
+     */
+    public void setLimits(long maxStates, long timeoutMillis){
+        this.maxStates = maxStates;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param ordered true to write the results in input order, false to write them as they complete
+     */
+    public void setOrdered(boolean ordered){
+        this.ordered = ordered;
+    }
+
+    /**
+     * @param json true to write each result as a json record, false for a line of text
+     */
+    public void setJson(boolean json){
+        this.json = json;
+    }
+
+    /**
+     * Result class
+     * Outcome of one instance
+     */
+    static class Result {
+        final int id;
+        final String status; //solved, unsolvable, timeout, limit, interrupted or error
+        final SearchStatistics statistics; //null if the instance couldn't be read
+        final String error;
+        final Solution solution; //null unless solved
+
+        Result(int id, String status, SearchStatistics statistics, String error){
+            this(id, status, statistics, error, null);
+        }
+
+        Result(int id, String status, SearchStatistics statistics, String error, Solution solution){
+            this.id = id;
+            this.status = status;
+            this.statistics = statistics;
+            this.error = error;
+            this.solution = solution;
+        }
+
+        /**
+         * @return id, status, cost, number of moves and time in milliseconds, separated by spaces
+         * (plus the error message, if there was one)
+         */
+        public String toString(){
+            boolean solved = this.status.equals("solved");
+            String line = String.format(Locale.ROOT, "%d %s %s %s %.1f", this.id, this.status,
+                    solved ? Integer.toString((int) this.statistics.getCost()) : "-",
+                    solved ? Integer.toString(this.statistics.getDepth()) : "-",
+                    this.statistics == null ? 0 : this.statistics.getTotalNanos() / 1e6);
+            return this.error == null ? line : line + " " + this.error;
+        }
+
+        /**
+         * @return single line json record, with the statistics of the search
+         */
+        String toJson(){
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"id\":").append(this.id).append(",\"status\":\"").append(this.status).append('"');
+            if(this.error != null){
+                sb.append(",\"error\":\"").append(this.error.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            if(this.statistics != null){
+                sb.append(",\"statistics\":").append(this.statistics.toJson());
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    /**
+     * Solves one instance
+     * @param id number of the instance
+     * @param instance instance read from the input
+     * @return result of the instance
+     */
+    Result solve(int id, Instance instance){
+        //the buckets are kept by integer f, so decimal costs would only fail in the middle of the search
+        if(this.bucket && !instance.getContainers().hasIntegerCosts()){
+            return new Result(id, "error", null, "BucketOpenList needs integer costs");
+        }
+        BestFirst solver = this.bucket ? new BestFirst(BucketOpenList::new) : new BestFirst();
+        solver.setLimits(this.maxStates, this.timeoutMillis);
+        try{
+            Ilayout[] layouts = instance.layouts(this.packed);
+            Solution solution = solver.solution(layouts[0], layouts[1]);
+            return new Result(id, solution == null ? "unsolvable" : "solved", solver.getStatistics(), null, solution);
+        } catch(SearchLimitException e){
+            String status = switch(e.getLimit()){
+                case TIME -> "timeout";
+                case STATES -> "limit";
+                case INTERRUPTED -> "interrupted";
+            };
+            return new Result(id, status, e.getStatistics(), null);
+        } catch(RuntimeException | OutOfMemoryError e){
+            return new Result(id, "error", solver.getStatistics(), String.valueOf(e));
+        } finally{
+            //the worker keeps the result only, not the search graph
+            solver.release();
+        }
+    }
+
+    /**
+     * Solves every instance of the input, writing a result per instance
+     * An instance that can't be read gets an error result with the line and column of the problem,
+     * and the batch goes on with the next one.
+     * @param in instances
+     * @param out where results are written
+     * @return number of instances solved
+     * @throws IOException if the input can't be read
+     * @throws IllegalStateException if the batch is interrupted
+     */
+    public int run(InstanceParser in, PrintStream out) throws IOException{
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        CompletionService<Result> done = new ExecutorCompletionService<>(pool);
+        HashMap<Integer, Result> waiting = new HashMap<>(); //completed but not written yet (ordered only)
+        int window = 2 * this.threads;
+        int submitted = 0;
+        int written = 0;
+        this.solved = 0;
+        try{
+            while(true){
+                //keeps at most window instances between reading and writing
+                while(submitted - written >= window){
+                    written += this.write(done, waiting, written, out);
+                }
+                Instance instance;
+                try{
+                    instance = in.next();
+                } catch(InstanceFormatException e){
+                    int id = ++submitted;
+                    done.submit(() -> new Result(id, "error", null, e.getMessage()));
+                    continue;
+                }
+                if(instance == null){
+                    break;
+                }
+                int id = ++submitted;
+                done.submit(() -> this.solve(id, instance));
+            }
+            while(written < submitted){
+                written += this.write(done, waiting, written, out);
+            }
+        } finally{
+            pool.shutdownNow();
+        }
+        return this.solved;
+    }
+
+    /**
+     * Waits for the next instance to complete and writes the results that can be written
+     * @param done completion service of the instances
+     * @param waiting results completed but not written yet
+     * @param written number of results written until now
+     * @param out where results are written
+     * @return number of results written
+     * @throws IllegalStateException if the batch is interrupted
+     */
+    private int write(CompletionService<Result> done, HashMap<Integer, Result> waiting, int written, PrintStream out){
+        Result r;
+        try{
+            r = done.take().get();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("BatchSolver interrupted", e);
+        } catch(ExecutionException e){
+            //solve catches everything it can recover from
+            throw new IllegalStateException("Instance failed", e.getCause());
+        }
+        if(!this.ordered){
+            this.print(r, out);
+            return 1;
+        }
+        waiting.put(r.id, r);
+        int n = 0;
+        //ids start at 1, so the next one to write is written + n + 1
+        while((r = waiting.remove(written + n + 1)) != null){
+            this.print(r, out);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Writes a result
+     * @param r result
+     * @param out where it's written
+     */
+    private void print(Result r, PrintStream out){
+        if(r.status.equals("solved")){
+            this.solved++;
+        }
+        out.println(this.json ? r.toJson() : r.toString());
+        out.flush();
+    }
+}
@@ -1,26 +1,131 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * BestFirst class
  * Will solve the game board using an iterator and the State inner class
+ * The search is kept in the fields, so a BestFirst runs one solve at a time (see AsyncSolver for concurrent solves).
  */
-public class BestFirst {
-    protected Queue<State> abertos;
-    protected HashSet<Ilayout> abertosHS;
+public class BestFirst implements Solver {
+    protected OpenList abertos;
     private Map<Ilayout, State> fechados;
     private State actual;
+    private Ilayout initial;
     private Ilayout objective;
+    private final Supplier<OpenList> openList;
+    private SearchStatistics statistics;
+    private SearchListener listener;
+    private HeuristicCache heuristicCache; //null for none
+    private final EnumSet<Pruning> pruning = EnumSet.noneOf(Pruning.class);
+    private long maxStates = Long.MAX_VALUE;
+    private long timeLimit = Long.MAX_VALUE; //nanos
+    private long started; //when the current run of the search started (solve or resume)
+    private Path checkpoint; //null for no checkpoints
+    private long checkpointInterval; //nanos
+    private long lastCheckpoint;
+    private Checkpoint.Log log; //closed states of the checkpoint of the running solve, null if it has none
+    private final AtomicBoolean busy = new AtomicBoolean(); //a solve is running
+
+    /**
+     * BestFirst constructor, abertos is a binary heap
+     */
+    public BestFirst(){
+        this(BinaryHeapOpenList::new);
+    }
+
+    /**
+     * BestFirst constructor
+     * @param openList creates the open list used by each solve (e.g. BucketOpenList::new)
+     */
+    public BestFirst(Supplier<OpenList> openList){
+        this.openList = openList;
+    }
+
+    /**
+     * Sets the listener told about the progress of the next solves
+     * @param listener listener, null for none
+     */
+    public void setListener(SearchListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Makes the next solves use the lower bounds of a heuristic cache: the h of a state is the biggest of
+     * the heuristics of its layout and the value cached for it (see learn)
+     * That h is admissible but may not be consistent, so a closed state is reopened when a cheaper path to it is found.
+     * @param cache heuristic cache, null for none
+     */
+    public void setHeuristicCache(HeuristicCache cache){
+        this.heuristicCache = cache;
+    }
+
+    /**
+     * Makes the next solves skip, in sucessores, the moves that the given rules prove useless (see Pruning)
+     * The cost found stays optimal, the skipped moves are counted in the statistics.
+     * @param rules pruning rules, empty for none (the layouts must implement Ilayout.classify otherwise)
+     */
+    public void setPruning(Set<Pruning> rules){
+        this.pruning.clear();
+        this.pruning.addAll(rules);
+    }
+
+    /**
+     * Sets the limits of the next solves, a solve that reaches one of them throws a SearchLimitException
+     * (a solve also stops like that if its thread is interrupted)
+     * @param maxStates maximum number of states kept in abertos and fechados together, 0 for no limit
+     * @param timeoutMillis maximum duration of a solve, in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public void setLimits(long maxStates, long timeoutMillis){
+        if(maxStates < 0 || timeoutMillis < 0){
+            throw new IllegalArgumentException("Invalid limits: " + maxStates + " states, " + timeoutMillis + " ms");
+        }
+        this.maxStates = maxStates == 0 ? Long.MAX_VALUE : maxStates;
+        this.timeLimit = timeoutMillis == 0 ? Long.MAX_VALUE : timeoutMillis * 1_000_000;
+    }
+
+    /**
+     * Makes the next solves save a checkpoint of the search (abertos, fechados and statistics) now and then,
+     * and when they stop at a limit, so they can be resumed (see resume)
+     * The search appends each state to a log as it closes it, so a snapshot only streams abertos to the file,
+     * through a fixed buffer (see Checkpoint).
+     * @param file checkpoint file, null for no checkpoints
+     * @param intervalMillis time between two checkpoints, in milliseconds
+     * @throws IllegalArgumentException if intervalMillis isn't positive
+     */
+    public void setCheckpoint(Path file, long intervalMillis){
+        if(intervalMillis <= 0){
+            throw new IllegalArgumentException("Invalid checkpoint interval: " + intervalMillis + " ms");
+        }
+        this.checkpoint = file;
+        this.checkpointInterval = intervalMillis * 1_000_000;
+    }
+
+    /**
+     * @return statistics of the last solve (or of the one running), null before the first one
+     */
+    @Override
+    public SearchStatistics getStatistics(){
+        return statistics;
+    }
 
     /**
      * State class
-     * Saves a state of the board, saving its layout, its father state,
+     * Saves a state of the board, saving its layout, its father state, the move that made it,
      * its cost (g) and its heuristic value (h)
      */
     static class State{
         private Ilayout layout;
         private State father;
+        private Move move; //move that made layout from the layout of father, null if it isn't known
         private double g;
         private double h;
+        int index; //position (or bucket) in the open list, -1 if it isn't there
+        int logged = -1; //position in the log of closed states of a checkpoint, -1 if it isn't there
 
         /**
          * State constructor
@@ -29,8 +134,20 @@ public class BestFirst {
          * @param o objective (used only to calculate the h of current state)
          */
         public State(Ilayout l, State n, Ilayout o){
+            this(l, n, null, o);
+        }
+
+        /**
+         * State constructor
+         * @param l layout
+         * @param n father state
+         * @param m move that made l from the layout of n, null if it isn't known
+         * @param o objective (used only to calculate the h of current state)
+         */
+        public State(Ilayout l, State n, Move m, Ilayout o){
             layout = l;
             father = n;
+            move = m;
             if(father != null){
                 g = father.g + l.getG();
             }
@@ -40,10 +157,65 @@ public class BestFirst {
             h = l.heuristics(o);
         }
 
+        /**
+         * State constructor for states whose g and h are already known (read from a checkpoint)
+         * @param l layout
+         * @param n father state
+         * @param g cost of the path to l
+         * @param h heuristic value of l
+         */
+        State(Ilayout l, State n, double g, double h){
+            layout = l;
+            father = n;
+            this.g = g;
+            this.h = h;
+        }
+
+        /**
+         * Makes this state take the path of another state with the same layout
+         * (used when a cheaper path to it is found)
+         * @param s state with the same layout and a smaller g
+         */
+        void takePath(State s){
+            layout = s.layout;
+            father = s.father;
+            move = s.move;
+            g = s.g;
+        }
+
+        /**
+         * Finds all the steps taken to reach this state
+         * @return iterator with all the steps from the initial state to this one
+         */
+        Iterator<State> path(){
+            List<State> listOfSteps = new ArrayList<>();
+            State current = this;
+            listOfSteps.add(current);
+            while(current.father != null){
+                listOfSteps.add(current.father);
+                current = current.father;
+            }
+            //reverses the list as we want to show it
+            Collections.reverse(listOfSteps);
+            return listOfSteps.iterator();
+        }
+
         public String toString(){
             return layout.toString();
         }
 
+        public Ilayout getLayout(){
+            return layout;
+        }
+
+        public State getFather(){
+            return father;
+        }
+
+        public Move getMove(){
+            return move;
+        }
+
         public double getG(){
             return g;
         }
@@ -53,7 +225,7 @@ public class BestFirst {
         }
 
         public int hashCode(){
-            return toString().hashCode();
+            return layout.hashCode();
         }
 
         public boolean equals(Object o){
@@ -66,75 +238,438 @@ public class BestFirst {
     }
 
     /**
-     * Uses the children method in Board class to find all the possible children
-     * and only adds the ones who aren't going back to the previous step
+     * Uses the moves method of the layout to find all the possible moves
+     * and only builds the children of the ones who aren't going back to the previous step
      * @param n current state
      * @return list of successors
      */
     final private List<State> sucessores(State n){
-        List<State> sucs = new ArrayList<>();
-        List<Ilayout> children = n.layout.children();
-        for(Ilayout e : children){
-            if(n.father == null || !e.equals(n.father.layout)){
-                State nn = new State(e, n, this.objective);
-                sucs.add(nn);
+        long t0 = System.nanoTime();
+        List<Move> moves = n.layout.moves();
+        List<Move> kept = new ArrayList<>(moves.size());
+        byte[] flags = this.pruning.isEmpty() ? null : n.layout.classify(moves, this.objective);
+        Move settling = null; //first move left by the other rules that settles its container
+        for(int i = 0; i < moves.size(); i++){
+            Move m = moves.get(i);
+            if(m.undo){
+                continue;
+            }
+            if(flags == null){
+                kept.add(m);
+            }
+            else if(this.pruning.contains(Pruning.REPEAT) && (flags[i] & Pruning.REPEATS) != 0){
+                statistics.pruned[Pruning.REPEAT.ordinal()]++;
+            }
+            else if(this.pruning.contains(Pruning.SETTLED) && (flags[i] & Pruning.UNSETTLES) != 0){
+                statistics.pruned[Pruning.SETTLED.ordinal()]++;
+            }
+            else if(settling == null && this.pruning.contains(Pruning.SETTLING) && (flags[i] & Pruning.SETTLES) != 0){
+                settling = m;
             }
+            else{
+                kept.add(m);
+            }
+        }
+        //a move that settles its container is the only child
+        if(settling != null){
+            statistics.pruned[Pruning.SETTLING.ordinal()] += kept.size();
+            kept.clear();
+            kept.add(settling);
         }
+        List<Ilayout> children = new ArrayList<>(kept.size());
+        for(Move m : kept){
+            children.add(n.layout.apply(m));
+        }
+        long t1 = System.nanoTime();
+        List<State> sucs = new ArrayList<>(children.size());
+        for(int i = 0; i < children.size(); i++){
+            sucs.add(this.state(children.get(i), n, kept.get(i)));
+        }
+        statistics.generateNanos += t1 - t0;
+        statistics.evaluateNanos += System.nanoTime() - t1;
+        statistics.generated += sucs.size();
         return sucs;
     }
 
+    /**
+     * Builds the state of a layout, with the h given by the heuristic cache if it is bigger
+     * @param l layout
+     * @param n father state, null for the root
+     * @param m move that made l from the layout of n, null for the root
+     * @return the state
+     */
+    private State state(Ilayout l, State n, Move m){
+        State s = new State(l, n, m, this.objective);
+        if(heuristicCache != null){
+            s.h = Math.max(s.h, heuristicCache.get(l));
+        }
+        return s;
+    }
+
     /**
      * Method that solves the board
      * @param s initial board layout
      * @param goal board layout
      * @return iterator with all the steps taken to reach the goal in it
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
      */
     final public Iterator<State> solve(Ilayout s, Ilayout goal){
+        State last = search(s, goal);
+        return last == null ? null : last.path();
+    }
+
+    /**
+     * Solves the board without building the list of steps
+     * @param s initial board layout
+     * @param goal board layout
+     * @return solution found, null if goal can't be reached
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
+     */
+    @Override
+    final public Solution solution(Ilayout s, Ilayout goal){
+        State last = search(s, goal);
+        return last == null ? null : new Solution(last);
+    }
+
+    /**
+     * Lets go of abertos and fechados of the last solve, so only the states of its path stay in memory
+     * (statistics are kept, the next solve creates them again)
+     */
+    public void release(){
+        abertos = null;
+        fechados = null;
+        actual = null;
+        initial = null;
+        objective = null;
+    }
+
+    /**
+     * Puts in a heuristic cache what the last solve learned about the cost to its goal
+     * Every closed state s gets the lower bound C - g(s) when it is bigger than its h (C being the cost of
+     * the solution), and the states of the solution path get their exact cost to the goal.
+     * Those values are only lower bounds if the solution is optimal (admissible h and a BinaryHeapOpenList of weight 1
+     * or a BucketOpenList), and must only be used with the same goal.
+     * @param cache heuristic cache
+     * @param solution solution found by the last solve, before release
+     * @throws IllegalStateException if the solver was released
+     */
+    void learn(HeuristicCache cache, Solution solution){
+        if(fechados == null){
+            throw new IllegalStateException("The solver was released");
+        }
+        double cost = solution.getCost();
+        for(State closed : fechados.values()){
+            if(cost - closed.g > closed.h){
+                cache.learn(closed.layout, cost - closed.g);
+            }
+        }
+        //learned last, so they are the last ones to be evicted
+        for(Iterator<State> it = solution.states(); it.hasNext(); ){
+            State s = it.next();
+            cache.learn(s.layout, cost - s.g);
+        }
+    }
+
+    /**
+     * Empties abertos and fechados for a new search, reusing the ones of the last solve (and the memory they took)
+     * unless the solver was released
+     */
+    private void reset(){
+        if(abertos == null || fechados == null){
+            abertos = openList.get();
+            fechados = new HashMap<>();
+        }
+        else{
+            abertos.clear();
+            fechados.clear();
+        }
+    }
+
+    /**
+     * Resumes a search from its checkpoint (see setCheckpoint)
+     * The statistics go on from the ones of the checkpoint, the limits count from the resume
+     * With checkpoints on (see setCheckpoint), the same checkpoint goes on from its snapshot
+     * @param file checkpoint file
+     * @param s initial board layout, the same as the one of the checkpoint
+     * @param goal board layout, the same as the one of the checkpoint
+     * @return solution found, null if goal can't be reached
+     * @throws IOException if the checkpoint can't be read, or the one of setCheckpoint can't be written
+     * @throws IllegalStateException if the checkpoint isn't of this problem
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
+     */
+    public Solution resume(Path file, Ilayout s, Ilayout goal) throws IOException{
+        Checkpoint c = Checkpoint.load(file, s, goal);
+        enter();
+        try{
+            if(checkpoint != null){
+                //the same checkpoint goes on from its snapshot, another one starts with the states loaded
+                if(checkpoint.toAbsolutePath().normalize().equals(file.toAbsolutePath().normalize())){
+                    log = Checkpoint.Log.resume(checkpoint, c);
+                }
+                else{
+                    log = Checkpoint.Log.create(checkpoint, s, goal);
+                    for(State closed : c.closed){
+                        log.add(closed);
+                    }
+                }
+            }
+            State last = resume(c, s, goal);
+            return last == null ? null : new Solution(last);
+        } finally{
+            closeLog();
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Resumes a search from a checkpoint that was read
+     * @param c checkpoint
+     * @param s initial board layout
+     * @param goal board layout
+     * @return goal state reached, null if goal can't be reached
+     */
+    private State resume(Checkpoint c, Ilayout s, Ilayout goal){
+        initial = s;
         objective = goal;
-        abertos = new PriorityQueue<>(10, (s1,s2) -> (int) Math.signum((s1.getG()+s1.getH())-(s2.getG()+s2.getH())));
-        abertosHS = new HashSet<>();
-        fechados = new HashMap<>();
-        abertos.add(new State(s, null, this.objective));
+        reset();
+        statistics = c.statistics;
+        for(State closed : c.closed){
+            fechados.put(closed.layout, closed);
+        }
+        for(State open : c.open){
+            //a closed state reopened before the snapshot is in the log with its old path
+            fechados.remove(open.layout);
+            abertos.add(open);
+        }
+        return run();
+    }
+
+    /**
+     * Marks the solver as running a solve
+     * @throws IllegalStateException if it is already running one, in another thread
+     */
+    private void enter(){
+        if(!busy.compareAndSet(false, true)){
+            throw new IllegalStateException("BestFirst is already solving, in another thread");
+        }
+    }
+
+    /**
+     * Searches for the goal
+     * @param s initial board layout
+     * @param goal board layout
+     * @return goal state reached, null if goal can't be reached
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
+     * @throws UncheckedIOException if the checkpoint couldn't be written
+     */
+    private State search(Ilayout s, Ilayout goal){
+        enter();
+        try{
+            if(checkpoint != null){
+                log = Checkpoint.Log.create(checkpoint, s, goal);
+            }
+            return start(s, goal);
+        } catch(IOException e){
+            throw new UncheckedIOException(e);
+        } finally{
+            closeLog();
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Closes the log of the checkpoint of the solve that ended, if it has one
+     * @throws UncheckedIOException if the log couldn't be written
+     */
+    private void closeLog(){
+        if(log == null){
+            return;
+        }
+        try{
+            log.close();
+        } catch(IOException e){
+            throw new UncheckedIOException(e);
+        } finally{
+            log = null;
+        }
+    }
+
+    /**
+     * Starts the search for the goal
+     * @param s initial board layout
+     * @param goal board layout
+     * @return goal state reached, null if goal can't be reached
+     */
+    private State start(Ilayout s, Ilayout goal){
+        initial = s;
+        objective = goal;
+        reset();
+        statistics = new SearchStatistics();
+        statistics.startNanos = System.nanoTime();
+        State root = state(s, null, null);
+        statistics.rootH = root.h;
+        abertos.add(root);
+        return run();
+    }
+
+    /**
+     * Expands the states of abertos until the goal is reached
+     * @return goal state reached, null if goal can't be reached
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
+     */
+    private State run(){
+        started = System.nanoTime();
+        lastCheckpoint = started;
         List<State> sucs;
 
-        //int k = 0;
         //In this loop we will solve the board
         while(true){
             //When abertos is empty it means there is no more things to test so we successfully failed
             if(abertos.isEmpty()){
-                return null;
+                return finish(null);
+            }
+            long t0 = System.nanoTime();
+            if(t0 - started > timeLimit){
+                throw stop(SearchLimitException.Limit.TIME);
+            }
+            if(abertos.size() + fechados.size() > maxStates){
+                throw stop(SearchLimitException.Limit.STATES);
+            }
+            if(Thread.currentThread().isInterrupted()){
+                throw stop(SearchLimitException.Limit.INTERRUPTED);
             }
-            //k++;
             //takes and removes the first element in the priority queue
-            actual = abertos.remove();
+            actual = abertos.poll();
+            statistics.pollNanos += System.nanoTime() - t0;
 
             //if we've reached our goal
             if(actual.layout.isGoal(objective)){
                 //adding all of the steps we've made to reach here
-                List<State> listOfSteps = new ArrayList<>();
-                listOfSteps.add(actual);
-                while(actual.father != null){
-                    listOfSteps.add(actual.father);
-                    actual = actual.father;
-                }
-                //reverses the list as we want to show it
-                Collections.reverse(listOfSteps);
-                return listOfSteps.iterator();
+                return finish(actual);
             }
             //if we still haven't reached our goal
             else{
                 //find the successors of the actual State
                 sucs = sucessores(actual);
-                //add the successors to the list of abertos
+                //drops the successors already closed or waiting with a smaller g
+                long t1 = System.nanoTime();
+                int n = 0;
                 for(State suc : sucs){
-                    if(!fechados.containsKey(suc.layout) && !abertosHS.contains(suc.layout)){
-                        abertos.add(suc);
-                        abertosHS.add(suc.layout);
+                    State closed = fechados.get(suc.layout);
+                    if(closed != null){
+                        //h of the heuristic cache may not be consistent, so a closed state can get a cheaper path
+                        if(heuristicCache != null && suc.g < closed.g){
+                            fechados.remove(suc.layout);
+                            sucs.set(n++, suc);
+                            statistics.reopened++;
+                        }
+                        else{
+                            statistics.duplicates++;
+                        }
+                        continue;
+                    }
+                    State open = abertos.get(suc.layout);
+                    if(open == null){
+                        sucs.set(n++, suc);
                     }
+                    //if we found a cheaper path to a state that is waiting, it takes the new path
+                    else if(suc.g < open.g){
+                        open.takePath(suc);
+                        abertos.decreaseKey(open);
+                        statistics.reopened++;
+                    }
+                    else{
+                        statistics.duplicates++;
+                    }
+                }
+                //add the new successors to the list of abertos
+                long t2 = System.nanoTime();
+                for(int i = 0; i < n; i++){
+                    abertos.add(sucs.get(i));
                 }
                 //add actual to the list of fechados
                 fechados.put(actual.layout, actual);
+                if(log != null){
+                    try{
+                        log.add(actual);
+                    } catch(IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                statistics.lookupNanos += t2 - t1;
+                statistics.insertNanos += System.nanoTime() - t2;
+                statistics.expanded++;
+                statistics.sizes(abertos.size(), fechados.size());
+                if(statistics.expanded % SearchStatistics.HEAP_SAMPLE == 0){
+                    statistics.sampleHeap();
+                }
+                if(listener != null){
+                    listener.expanded(actual, statistics);
+                }
+                if(checkpoint != null && System.nanoTime() - lastCheckpoint > checkpointInterval){
+                    checkpoint(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops a solve that reached a limit, completing its statistics
+     * @param limit limit reached
+     * @return exception to throw
+     */
+    private SearchLimitException stop(SearchLimitException.Limit limit){
+        finish(null);
+        //the search can go on from where it stopped
+        if(checkpoint != null){
+            checkpoint(true);
+        }
+        return new SearchLimitException(limit, statistics);
+    }
+
+    /**
+     * Saves a snapshot of the search to the checkpoint file
+     * @param last true for the last one of a solve, whose statistics are already complete
+     * @throws UncheckedIOException if the checkpoint couldn't be written
+     */
+    private void checkpoint(boolean last){
+        //an interrupted thread can't write to a FileChannel, the flag is set again at the end
+        boolean interrupted = Thread.interrupted();
+        try{
+            if(!last){
+                statistics.totalNanos = System.nanoTime() - statistics.startNanos;
             }
+            Checkpoint.save(checkpoint, initial, objective, statistics, log, abertos.states());
+            //the interval counts from the end of the write, so the search always gets it
+            lastCheckpoint = System.nanoTime();
+        } catch(IOException e){
+            throw new UncheckedIOException(e);
+        } finally{
+            if(interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ends a solve, completing its statistics
+     * @param last goal state reached, null if there is no solution
+     * @return last
+     */
+    private State finish(State last){
+        if(last != null){
+            statistics.cost = last.g;
+            int depth = 0;
+            for(State f = last.father; f != null; f = f.father){
+                depth++;
+            }
+            statistics.depth = depth;
+        }
+        statistics.sampleHeap();
+        statistics.totalNanos = System.nanoTime() - statistics.startNanos;
+        if(listener != null){
+            listener.finished(statistics);
         }
+        return last;
     }
 }
@@ -0,0 +1,146 @@
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * BidirectionalBestFirst class
+ * Moves are reversible and moving a container back costs the same, so the goal can also be
+ * searched backwards. Two A* searches grow at the same time, one from the initial layout towards
+ * the goal and one from the goal towards the initial layout, always expanding the side with the
+ * smaller open list. Every time a layout is reached by both sides, the cost of the path through it
+ * is a candidate solution. The search stops when a side has no state with f below the best candidate,
+ * since h is admissible in both directions that candidate is optimal.
+ * The goal layout must carry the real cost of its containers (see the goal constructors that take the initial layout).
+ */
+public class BidirectionalBestFirst implements Solver {
+    private Frontier forward;
+    private Frontier backward;
+    private double mu; //cost of the best path found
+    private BestFirst.State meetForward;
+    private BestFirst.State meetBackward;
+
+    /**
+     * Frontier class
+     * One of the two searches: its open list and the best state found for every layout
+     */
+    private static class Frontier {
+        private final Ilayout target;
+        private final OpenList abertos = new BinaryHeapOpenList();
+        private final HashMap<Ilayout, BestFirst.State> vistos = new HashMap<>();
+
+        /**
+         * Frontier constructor
+         * @param root layout the search starts from
+         * @param target layout the search goes to (used for h)
+         */
+        Frontier(Ilayout root, Ilayout target){
+            this.target = target;
+            BestFirst.State s = new BestFirst.State(root, null, target);
+            this.vistos.put(root, s);
+            this.abertos.add(s);
+        }
+
+        /**
+         * Keeps a state if it's the first or the cheapest path found to its layout
+         * (closed states reached by a cheaper path are opened again)
+         * @param s new state
+         * @return the state kept for that layout, null if s wasn't better than the one already there
+         */
+        BestFirst.State offer(BestFirst.State s){
+            BestFirst.State old = this.vistos.get(s.getLayout());
+            if(old == null){
+                this.vistos.put(s.getLayout(), s);
+                this.abertos.add(s);
+                return s;
+            }
+            if(s.getG() >= old.getG()){
+                return null;
+            }
+            old.takePath(s);
+            if(this.abertos.get(old.getLayout()) != null){
+                this.abertos.decreaseKey(old);
+            }
+            else{
+                this.abertos.add(old);
+            }
+            return old;
+        }
+    }
+
+    /**
+     * Method that solves the board
+     * @param s initial board layout
+     * @param goal board layout, with the real container costs
+     * @return iterator with all the steps taken to reach the goal in it, null if there is no solution
+     */
+    @Override
+    public Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal){
+        this.forward = new Frontier(s, goal);
+        this.backward = new Frontier(goal, s);
+        this.mu = Double.POSITIVE_INFINITY;
+        this.meetForward = null;
+        this.meetBackward = null;
+        if(s.isGoal(goal)){
+            this.meetForward = this.forward.vistos.get(s);
+            this.meetBackward = this.backward.vistos.get(goal);
+            this.mu = 0;
+        }
+        while(!this.forward.abertos.isEmpty() && !this.backward.abertos.isEmpty()){
+            boolean forwards = this.forward.abertos.size() <= this.backward.abertos.size();
+            Frontier side = forwards ? this.forward : this.backward;
+            Frontier other = forwards ? this.backward : this.forward;
+            BestFirst.State actual = side.abertos.poll();
+            //every state left on this side has f >= mu, so no path cheaper than mu is left
+            if(actual.getG() + actual.getH() >= this.mu){
+                break;
+            }
+            for(Move m : actual.getLayout().moves()){
+                if(m.undo){
+                    continue;
+                }
+                BestFirst.State suc = side.offer(new BestFirst.State(actual.getLayout().apply(m), actual, m, side.target));
+                if(suc == null){
+                    continue;
+                }
+                BestFirst.State met = other.vistos.get(suc.getLayout());
+                if(met != null && suc.getG() + met.getG() < this.mu){
+                    this.mu = suc.getG() + met.getG();
+                    this.meetForward = forwards ? suc : met;
+                    this.meetBackward = forwards ? met : suc;
+                }
+            }
+        }
+        if(this.meetForward == null){
+            return null;
+        }
+        Iterator<BestFirst.State> path = this.join(goal);
+        this.forward = null;
+        this.backward = null;
+        return path;
+    }
+
+    /**
+     * Joins the forward path to the meeting layout with the backward path from it
+     * Backward steps are applied again as forward moves, so every state of the path
+     * has the layout (and last moved container) of the forward direction
+     * @param goal goal layout
+     * @return iterator with all the steps from the initial layout to the goal
+     */
+    private Iterator<BestFirst.State> join(Ilayout goal){
+        BestFirst.State current = this.meetForward;
+        for(BestFirst.State b = this.meetBackward; b.getFather() != null; b = b.getFather()){
+            Ilayout next = b.getFather().getLayout();
+            Ilayout step = null;
+            Move move = null;
+            for(Move m : current.getLayout().moves()){
+                Ilayout child = current.getLayout().apply(m);
+                if(child.equals(next)){
+                    step = child;
+                    move = m;
+                    break;
+                }
+            }
+            current = new BestFirst.State(step, current, move, goal);
+        }
+        return current.path();
+    }
+}
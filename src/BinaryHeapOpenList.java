@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * OpenList backed by an indexed heap
+ * The heap is 4-ary (the children of position i are 4i+1 to 4i+4): it is half as deep as a binary one,
+ * so a state moves through half the positions, and the keys of the 4 children are next to each other.
+ * The f and h of every state are kept side by side in a double array next to the heap, so sifting compares
+ * primitives instead of calling a comparator, and every state knows its position in the heap,
+ * so decreaseKey only needs to sift it up.
+ * A state taken out stays in the map of layouts (its index tells it isn't waiting any more), so poll doesn't
+ * look its layout up again. The map only grows in add, and there, if it holds more of those than states
+ * waiting, it is built again with only the states waiting, so a growing map is never more than half stale.
+ * States with the same f come out with the smallest h first (the ones closer to the goal).
+ * With a weight w > 1, f = g + w * h (weighted A*, used by AnytimeBestFirst).
+ */
+public class BinaryHeapOpenList implements OpenList {
+    private BestFirst.State[] heap;
+    private double[] keys; //f and h of the state in position i, in 2 * i and 2 * i + 1
+    private int size;
+    private HashMap<Ilayout, BestFirst.State> states; //states waiting, and the ones taken out since the last purge
+    private int stale; //states taken out still in the map
+    private final double weight;
+
+    /**
+     * BinaryHeapOpenList constructor, f = g + h
+     */
+    public BinaryHeapOpenList(){
+        this(1);
+    }
+
+    /**
+     * BinaryHeapOpenList constructor
+     * @param weight weight of h, f = g + weight * h
+     * @throws IllegalArgumentException if weight is smaller than 1
+     */
+    public BinaryHeapOpenList(double weight){
+        if(!(weight >= 1)){
+            throw new IllegalArgumentException("Invalid weight: " + weight);
+        }
+        this.weight = weight;
+        this.heap = new BestFirst.State[16];
+        this.keys = new double[32];
+        this.size = 0;
+        this.states = new HashMap<>();
+    }
+
+    /**
+     * Adds a state that isn't in the list yet
+     * @param s state
+     */
+    @Override
+    public void add(BestFirst.State s){
+        if(this.size == this.heap.length){
+            this.heap = Arrays.copyOf(this.heap, this.size * 2);
+            this.keys = Arrays.copyOf(this.keys, this.size * 4);
+        }
+        if(this.stale > this.size){
+            this.purge();
+        }
+        //a state taken out with the same layout is replaced
+        if(this.states.put(s.getLayout(), s) != null){
+            this.stale--;
+        }
+        this.siftUp(this.size++, s, s.getG() + this.weight * s.getH(), s.getH());
+    }
+
+    /**
+     * Takes and removes the state with the smallest f
+     * @return state with the smallest f, null if the list is empty
+     */
+    @Override
+    public BestFirst.State poll(){
+        if(this.size == 0){
+            return null;
+        }
+        BestFirst.State result = this.heap[0];
+        this.size--;
+        if(this.size > 0){
+            this.siftDown(0, this.heap[this.size], this.keys[2 * this.size], this.keys[2 * this.size + 1]);
+        }
+        this.heap[this.size] = null;
+        result.index = -1;
+        this.stale++;
+        return result;
+    }
+
+    /**
+     * Finds the state waiting with a given layout
+     * @param l layout
+     * @return the state with that layout, null if there is none
+     */
+    @Override
+    public BestFirst.State get(Ilayout l){
+        BestFirst.State s = this.states.get(l);
+        return s == null || s.index < 0 ? null : s;
+    }
+
+    /**
+     * Sifts up a state whose g was lowered
+     * @param s state whose f got smaller
+     */
+    @Override
+    public void decreaseKey(BestFirst.State s){
+        this.siftUp(s.index, s, s.getG() + this.weight * s.getH(), s.getH());
+    }
+
+    /**
+     * Removes every state, the arrays and the map keep their capacity
+     */
+    @Override
+    public void clear(){
+        Arrays.fill(this.heap, 0, this.size, null);
+        this.size = 0;
+        this.states.clear();
+        this.stale = 0;
+    }
+
+    /**
+     * @return true if there are no states waiting
+     */
+    @Override
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    /**
+     * @return number of states waiting
+     */
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Tells if the state in position i comes out before a state with the given f and h
+     * @param i heap position
+     * @param key f of the other state
+     * @param hKey h of the other state
+     * @return true if position i goes first
+     */
+    private boolean before(int i, double key, double hKey){
+        return this.keys[2 * i] < key || (this.keys[2 * i] == key && this.keys[2 * i + 1] <= hKey);
+    }
+
+    /**
+     * Moves a state up from position i until its father goes before it
+     * @param i starting position
+     * @param s state
+     * @param key f of s
+     * @param hKey h of s
+     */
+    private void siftUp(int i, BestFirst.State s, double key, double hKey){
+        while(i > 0){
+            int parent = (i - 1) >>> 2;
+            if(this.before(parent, key, hKey)){
+                break;
+            }
+            this.place(i, this.heap[parent], this.keys[2 * parent], this.keys[2 * parent + 1]);
+            i = parent;
+        }
+        this.place(i, s, key, hKey);
+    }
+
+    /**
+     * Moves a state down from position i until it goes before its children
+     * @param i starting position
+     * @param s state
+     * @param key f of s
+     * @param hKey h of s
+     */
+    private void siftDown(int i, BestFirst.State s, double key, double hKey){
+        int first;
+        while((first = 4 * i + 1) < this.size){
+            int child = first;
+            int last = Math.min(first + 4, this.size);
+            for(int c = first + 1; c < last; c++){
+                if(!this.before(child, this.keys[2 * c], this.keys[2 * c + 1])){
+                    child = c;
+                }
+            }
+            if(!this.before(child, key, hKey)){
+                break;
+            }
+            this.place(i, this.heap[child], this.keys[2 * child], this.keys[2 * child + 1]);
+            i = child;
+        }
+        this.place(i, s, key, hKey);
+    }
+
+    /**
+     * Puts a state in a heap position
+     * @param i position
+     * @param s state
+     * @param key f of s
+     * @param hKey h of s
+     */
+    private void place(int i, BestFirst.State s, double key, double hKey){
+        this.heap[i] = s;
+        this.keys[2 * i] = key;
+        this.keys[2 * i + 1] = hKey;
+        s.index = i;
+    }
+
+    /**
+     * @return the states waiting, in no particular order (a view, it must not be changed)
+     */
+    @Override
+    public Collection<BestFirst.State> states(){
+        this.purge();
+        return Collections.unmodifiableCollection(this.states.values());
+    }
+
+    /**
+     * Removes the states taken out from the map, building it again with the states of the heap
+     */
+    private void purge(){
+        if(this.stale > 0){
+            this.states = new HashMap<>(Math.max(16, (int) (this.size / 0.75f) + 1));
+            for(int i = 0; i < this.size; i++){
+                this.states.put(this.heap[i].getLayout(), this.heap[i]);
+            }
+            this.stale = 0;
+        }
+    }
+}
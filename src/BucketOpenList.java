@@ -0,0 +1,176 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * OpenList backed by a bucket queue (dial's algorithm)
+ * With integer container costs (see ContainerTable.hasIntegerCosts) h0 is an integer too, so every f is a small integer
+ * and states can be kept in one bucket per f. Adding and taking states is O(1) amortized.
+ * Inside a bucket, states can also be split by h, so the deepest states (bigger g) come out first,
+ * and the remaining ties come out in insertion order (FIFO) or in reverse insertion order (LIFO).
+ * Either way the expansion order only depends on f, h and the order the states were added.
+ * A state whose cost is lowered is added to its new bucket and its old entry is skipped when reached.
+ */
+public class BucketOpenList implements OpenList {
+
+    /**
+     * Order of the states that have the same f (and the same h, if preferDeeper is on)
+     */
+    public enum Order { FIFO, LIFO }
+
+    private final boolean preferDeeper;
+    private final Order order;
+    private final ArrayList<ArrayList<ArrayDeque<BestFirst.State>>> buckets; //buckets.get(f).get(h or 0)
+    private final HashMap<Ilayout, BestFirst.State> states;
+    private int minF; //no bucket below minF has states
+    private int minSub; //no sub bucket of minF below minSub has states
+
+    /**
+     * BucketOpenList constructor, deepest states first and FIFO ties
+     */
+    public BucketOpenList(){
+        this(true, Order.FIFO);
+    }
+
+    /**
+     * BucketOpenList constructor
+     * @param preferDeeper true to take the states with smaller h (bigger g) first among the ones with the same f
+     * @param order order of the remaining ties
+     */
+    public BucketOpenList(boolean preferDeeper, Order order){
+        this.preferDeeper = preferDeeper;
+        this.order = order;
+        this.buckets = new ArrayList<>();
+        this.states = new HashMap<>();
+        this.minF = 0;
+        this.minSub = 0;
+    }
+
+    /**
+     * Adds a state that isn't in the list yet
+     * @param s state
+     */
+    @Override
+    public void add(BestFirst.State s){
+        this.states.put(s.getLayout(), s);
+        this.push(s);
+    }
+
+    /**
+     * Takes and removes the state with the smallest f
+     * @return state with the smallest f, null if the list is empty
+     */
+    @Override
+    public BestFirst.State poll(){
+        if(this.states.isEmpty()){
+            return null;
+        }
+        while(this.minF < this.buckets.size()){
+            ArrayList<ArrayDeque<BestFirst.State>> bucket = this.buckets.get(this.minF);
+            while(this.minSub < bucket.size()){
+                ArrayDeque<BestFirst.State> queue = bucket.get(this.minSub);
+                while(!queue.isEmpty()){
+                    BestFirst.State s = this.order == Order.FIFO ? queue.pollFirst() : queue.pollLast();
+                    //entries left behind by decreaseKey (or already taken) are skipped
+                    if(s.index == this.minF){
+                        s.index = -1;
+                        this.states.remove(s.getLayout());
+                        return s;
+                    }
+                }
+                this.minSub++;
+            }
+            this.minF++;
+            this.minSub = 0;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the state waiting with a given layout
+     * @param l layout
+     * @return the state with that layout, null if there is none
+     */
+    @Override
+    public BestFirst.State get(Ilayout l){
+        return this.states.get(l);
+    }
+
+    /**
+     * Moves a state whose g was lowered to its new bucket
+     * @param s state whose f got smaller
+     */
+    @Override
+    public void decreaseKey(BestFirst.State s){
+        this.push(s);
+    }
+
+    /**
+     * Removes every state, the buckets are kept (empty) for the next solve
+     */
+    @Override
+    public void clear(){
+        for(ArrayList<ArrayDeque<BestFirst.State>> bucket : this.buckets){
+            for(ArrayDeque<BestFirst.State> queue : bucket){
+                queue.clear();
+            }
+        }
+        this.states.clear();
+        this.minF = 0;
+        this.minSub = 0;
+    }
+
+    /**
+     * @return true if there are no states waiting
+     */
+    @Override
+    public boolean isEmpty(){
+        return this.states.isEmpty();
+    }
+
+    /**
+     * @return number of states waiting
+     */
+    @Override
+    public int size(){
+        return this.states.size();
+    }
+
+    /**
+     * Puts a state in the bucket of its current f
+     * @param s state
+     * @throws IllegalStateException if f or h aren't integers
+     */
+    private void push(BestFirst.State s){
+        double fd = s.getG() + s.getH();
+        int f = (int) fd;
+        if(f != fd || f < 0 || (this.preferDeeper && s.getH() != (int) s.getH())){
+            throw new IllegalStateException("BucketOpenList needs non negative integer f and h values, got f = " + fd);
+        }
+        int sub = this.preferDeeper ? (int) s.getH() : 0;
+        while(this.buckets.size() <= f){
+            this.buckets.add(new ArrayList<>());
+        }
+        ArrayList<ArrayDeque<BestFirst.State>> bucket = this.buckets.get(f);
+        while(bucket.size() <= sub){
+            bucket.add(new ArrayDeque<>());
+        }
+        bucket.get(sub).addLast(s);
+        s.index = f;
+        //only happens if h isn't consistent, or when the list is reused after being emptied
+        if(f < this.minF || (f == this.minF && sub < this.minSub)){
+            this.minF = f;
+            this.minSub = sub;
+        }
+    }
+
+    /**
+     * @return the states waiting, in no particular order (a view, it must not be changed)
+     */
+    @Override
+    public Collection<BestFirst.State> states(){
+        return Collections.unmodifiableCollection(this.states.values());
+    }
+}
@@ -0,0 +1,324 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Checkpoint class
+ * Binary snapshot of a BestFirst search, so it can be resumed later (see BestFirst.setCheckpoint and BestFirst.resume).
+ * It is kept in two files, so a snapshot doesn't write the whole search again:
+ * the log of closed states (the checkpoint file with ".closed" appended), where each state is appended as it is
+ * closed, and the checkpoint file, the frontier, written again at every snapshot.
+ * Log format, big endian: magic, keys of the initial layout and of the goal, and then every closed state: index of
+ * its father in the log (-1 for the initial state), g, h and its layout (Ilayout.write).
+ * Checkpoint format: magic, keys of the initial layout and of the goal, the counters and times of the statistics,
+ * the number of states of the log and its size in bytes when the snapshot was taken (the log can grow after it,
+ * those states are ignored), and the number of states of abertos and every one of them (index of its father in the
+ * log, g, h and its layout).
+ * Fathers are always closed before their children, so the states are rebuilt in a single pass.
+ * The log is synced before the frontier is streamed to a temporary file that then replaces the checkpoint,
+ * so a checkpoint is never seen half written.
+ */
+class Checkpoint {
+    private static final int MAGIC = 0x434B5033; //"CKP3"
+    private static final int LOG_MAGIC = 0x434B4C31; //"CKL1"
+
+    final SearchStatistics statistics;
+    final List<BestFirst.State> closed;
+    final List<BestFirst.State> open;
+    final long logSize; //size of the log the snapshot covers, in bytes
+
+    /**
+     * Checkpoint constructor
+     * @param statistics statistics of the search until the snapshot
+     * @param closed states of fechados, in the order of the log
+     * @param open states of abertos
+     * @param logSize size of the log the snapshot covers, in bytes
+     */
+    private Checkpoint(SearchStatistics statistics, List<BestFirst.State> closed, List<BestFirst.State> open, long logSize){
+        this.statistics = statistics;
+        this.closed = closed;
+        this.open = open;
+        this.logSize = logSize;
+    }
+
+    /**
+     * @param file checkpoint file
+     * @return log of the closed states of that checkpoint
+     */
+    static Path log(Path file){
+        return file.resolveSibling(file.getFileName() + ".closed");
+    }
+
+    /**
+     * Log class
+     * Closed states of a search, appended through a fixed buffer as they are closed
+     * It doesn't write through a FileChannel, so an interrupt of the search can't close it.
+     */
+    static final class Log implements Closeable {
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private int count;
+
+        /**
+         * Log constructor
+         * @param file log file, open at its end
+         * @param count number of states already in it
+         */
+        private Log(FileOutputStream file, int count){
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            this.count = count;
+        }
+
+        /**
+         * Starts an empty log, replacing the one of the checkpoint
+         * @param file checkpoint file
+         * @param initial initial layout of the search
+         * @param goal goal of the search
+         * @return log
+         * @throws IOException if the log can't be written
+         */
+        static Log create(Path file, Ilayout initial, Ilayout goal) throws IOException{
+            Log log = new Log(new FileOutputStream(log(file).toFile()), 0);
+            log.out.writeInt(LOG_MAGIC);
+            log.out.writeLong(initial.key());
+            log.out.writeLong(goal.key());
+            return log;
+        }
+
+        /**
+         * Goes on with the log of a checkpoint that was loaded, dropping the states closed after its snapshot
+         * @param file checkpoint file
+         * @param c checkpoint loaded from it
+         * @return log
+         * @throws IOException if the log can't be written
+         */
+        static Log resume(Path file, Checkpoint c) throws IOException{
+            try(RandomAccessFile raf = new RandomAccessFile(log(file).toFile(), "rw")){
+                raf.setLength(c.logSize);
+            }
+            return new Log(new FileOutputStream(log(file).toFile(), true), c.closed.size());
+        }
+
+        /**
+         * Appends a closed state, its father must already be in the log
+         * @param s state
+         * @throws IOException if the log can't be written
+         */
+        void add(BestFirst.State s) throws IOException{
+            BestFirst.State father = s.getFather();
+            if(father != null && father.logged < 0){
+                throw new IllegalStateException("The father of a closed state isn't in the checkpoint log");
+            }
+            this.out.writeInt(father == null ? -1 : father.logged);
+            this.out.writeDouble(s.getG());
+            this.out.writeDouble(s.getH());
+            s.getLayout().write(this.out);
+            s.logged = this.count++;
+        }
+
+        /**
+         * Writes what is buffered and syncs it to the disk
+         * @return size of the log, in bytes
+         * @throws IOException if the log can't be written
+         */
+        long sync() throws IOException{
+            this.out.flush();
+            this.file.getFD().sync();
+            return this.file.getChannel().size();
+        }
+
+        /**
+         * Closes the log, writing what is buffered
+         * @throws IOException if the log can't be written
+         */
+        @Override
+        public void close() throws IOException{
+            this.out.close();
+        }
+    }
+
+    /**
+     * Saves a snapshot of a search as the checkpoint file
+     * The closed states are already in the log, only abertos is streamed to a temporary file through a fixed buffer,
+     * so the snapshot never holds a copy of the search in memory, and the temporary file then replaces the checkpoint.
+     * @param file checkpoint file, replaced
+     * @param initial initial layout of the search
+     * @param goal goal of the search
+     * @param statistics statistics of the search until now (totalNanos is the time spent)
+     * @param log log of the closed states of the search
+     * @param open states of abertos
+     * @throws IOException if the file can't be written
+     */
+    static void save(Path file, Ilayout initial, Ilayout goal, SearchStatistics statistics,
+                     Log log, Collection<BestFirst.State> open) throws IOException{
+        long logSize = log.sync();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeLong(initial.key());
+            out.writeLong(goal.key());
+            out.writeLong(statistics.generated);
+            out.writeLong(statistics.expanded);
+            out.writeLong(statistics.duplicates);
+            out.writeLong(statistics.reopened);
+            for(long p : statistics.pruned){
+                out.writeLong(p);
+            }
+            out.writeInt(statistics.peakOpen);
+            out.writeInt(statistics.peakClosed);
+            out.writeLong(statistics.peakHeap);
+            out.writeDouble(statistics.rootH);
+            out.writeLong(statistics.totalNanos);
+            out.writeLong(statistics.pollNanos);
+            out.writeLong(statistics.generateNanos);
+            out.writeLong(statistics.evaluateNanos);
+            out.writeLong(statistics.lookupNanos);
+            out.writeLong(statistics.insertNanos);
+            out.writeInt(log.count);
+            out.writeLong(logSize);
+            //the number of states is only known at the end, it is written over this one
+            int countAt = out.size();
+            out.writeInt(0);
+            int count = 0;
+            for(BestFirst.State s : open){
+                BestFirst.State father = s.getFather();
+                //fathers of the states waiting are always closed
+                out.writeInt(father == null ? -1 : father.logged);
+                out.writeDouble(s.getG());
+                out.writeDouble(s.getH());
+                s.getLayout().write(out);
+                count++;
+            }
+            out.flush();
+            ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES).putInt(0, count);
+            while(buf.hasRemaining()){
+                ch.write(buf, countAt + buf.position());
+            }
+            ch.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a checkpoint
+     * @param file checkpoint file, its log is next to it
+     * @param initial initial layout of the search, the layouts of the checkpoint are read by it
+     * @param goal goal of the search, h of the states isn't computed again
+     * @return checkpoint, its statistics start now minus the time spent before the snapshot
+     * @throws IOException if the file can't be read
+     * @throws IllegalStateException if the file isn't a checkpoint of this problem
+     */
+    static Checkpoint load(Path file, Ilayout initial, Ilayout goal) throws IOException{
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 1 << 16))){
+            if(in.readInt() != MAGIC){
+                throw new IllegalStateException("Invalid checkpoint file: " + file);
+            }
+            if(in.readLong() != initial.key() || in.readLong() != goal.key()){
+                throw new IllegalStateException("Checkpoint " + file + " is of another problem");
+            }
+            SearchStatistics statistics = new SearchStatistics();
+            statistics.generated = in.readLong();
+            statistics.expanded = in.readLong();
+            statistics.duplicates = in.readLong();
+            statistics.reopened = in.readLong();
+            for(int i = 0; i < statistics.pruned.length; i++){
+                statistics.pruned[i] = in.readLong();
+            }
+            statistics.peakOpen = in.readInt();
+            statistics.peakClosed = in.readInt();
+            statistics.peakHeap = in.readLong();
+            statistics.rootH = in.readDouble();
+            statistics.totalNanos = in.readLong();
+            statistics.pollNanos = in.readLong();
+            statistics.generateNanos = in.readLong();
+            statistics.evaluateNanos = in.readLong();
+            statistics.lookupNanos = in.readLong();
+            statistics.insertNanos = in.readLong();
+            statistics.startNanos = System.nanoTime() - statistics.totalNanos;
+            int closedCount = in.readInt();
+            long logSize = in.readLong();
+            if(closedCount < 0 || logSize < 0){
+                throw new IllegalStateException("Invalid checkpoint file: " + file);
+            }
+            List<BestFirst.State> closed = new ArrayList<>(closedCount);
+            readLog(log(file), initial, goal, closedCount, closed);
+            int count = in.readInt();
+            if(count < 0 || closedCount + count < 1){
+                throw new IllegalStateException("Invalid checkpoint file: " + file);
+            }
+            List<BestFirst.State> open = new ArrayList<>(count);
+            for(int i = 0; i < count; i++){
+                open.add(read(in, initial, closed, closedCount, file));
+            }
+            return new Checkpoint(statistics, closed, open, logSize);
+        }
+    }
+
+    /**
+     * Reads the closed states of a checkpoint from its log
+     * @param file log file
+     * @param initial initial layout of the search, the layouts are read by it
+     * @param goal goal of the search
+     * @param count number of states the snapshot covers
+     * @param closed list where the states are added, in the order of the log
+     * @throws IOException if the log can't be read
+     * @throws IllegalStateException if the log isn't of this problem or misses states
+     */
+    private static void readLog(Path file, Ilayout initial, Ilayout goal, int count, List<BestFirst.State> closed) throws IOException{
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 1 << 16))){
+            if(in.readInt() != LOG_MAGIC){
+                throw new IllegalStateException("Invalid checkpoint log: " + file);
+            }
+            if(in.readLong() != initial.key() || in.readLong() != goal.key()){
+                throw new IllegalStateException("Checkpoint log " + file + " is of another problem");
+            }
+            for(int i = 0; i < count; i++){
+                BestFirst.State s = read(in, initial, closed, i, file);
+                s.logged = i;
+                closed.add(s);
+            }
+        }
+    }
+
+    /**
+     * Reads one state
+     * @param in data of the state
+     * @param initial initial layout of the search, the layout is read by it
+     * @param closed closed states read until now, by their index in the log
+     * @param fathers number of those states that can be the father
+     * @param file file read
+     * @return state
+     * @throws IOException if the state can't be read
+     * @throws IllegalStateException if its father isn't one of those states
+     */
+    private static BestFirst.State read(DataInputStream in, Ilayout initial, List<BestFirst.State> closed,
+                                        int fathers, Path file) throws IOException{
+        int father = in.readInt();
+        if(father < -1 || father >= fathers){
+            throw new IllegalStateException("Invalid checkpoint file: " + file);
+        }
+        double g = in.readDouble();
+        double h = in.readDouble();
+        Ilayout layout = initial.read(in);
+        return new BestFirst.State(layout, father == -1 ? null : closed.get(father), g, h);
+    }
+}
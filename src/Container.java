@@ -1,29 +1,34 @@
 /**
  * Class that defines the Container
+ * Containers are interned by a ContainerTable: the id is dense (0 to the number of containers - 1)
+ * and is all the layouts keep, the name is only used to read and print them.
  */
-@SuppressWarnings({"unchecked"})
 public class Container implements Comparable<Container>{
-    public char id;
-    public int cost;
+    public final int id;
+    public final double cost;
+    public final String name;
+    private final String str; //name as printed, built once
 
     /**
      * Container constructor
-     * @param id identifies the Container
+     * @param id identifies the Container in its ContainerTable
      * @param cost of Container
+     * @param name name of the Container in the input
      */
-    public Container(char id, int cost){
+    public Container(int id, double cost, String name){
         this.id = id;
         this.cost = cost;
+        this.name = name;
+        //digits would be read as a cost
+        this.str = name.length() == 1 && (name.charAt(0) < '0' || name.charAt(0) > '9') ? name : "(" + name + ")";
     }
 
     /**
      * toString method
-     * @return container in string format
+     * @return name of the container, between parentheses unless it is a single character (as in the input)
      */
     public String toString(){
-        String str = "";
-        str += this.id;
-        return str;
+        return this.str;
     }
 
     /**
@@ -39,7 +44,7 @@ public class Container implements Comparable<Container>{
 
     /**
      * hashCode method
-     * @return hashCode of the string format of the board
+     * @return id of the container
      */
     @Override
     public int hashCode(){
@@ -49,10 +54,10 @@ public class Container implements Comparable<Container>{
     /**
      * CompareTo method
      * @param o the object to be compared.
-     * @return character of id comparison
+     * @return comparison of the ids (the order of the names)
      */
     @Override
     public int compareTo(Container o) {
-        return Character.compare(this.id, o.id);
+        return Integer.compare(this.id, o.id);
     }
 }
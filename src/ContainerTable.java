@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * ContainerTable class
+ * Containers of one problem, interned into dense int ids (0 to size() - 1) given in name order,
+ * so sorting stacks by the id of their bottom container sorts them by name.
+ * Every layout of a problem shares its table and keeps ids only, names and costs are looked up here.
+ */
+public class ContainerTable {
+    /** ids have to fit in the positions of Zobrist */
+    public static final int MAX_SIZE = 1 << 21;
+
+    private final Container[] containers; //by id
+    private final double[] costs; //by id
+    private final HashMap<String, Container> byName;
+    private final boolean integerCosts;
+
+    /**
+     * ContainerTable constructor, ids are given in name order
+     * @param names names of the containers
+     * @param costs cost of each of those containers
+     * @throws IllegalStateException if a name is repeated, a cost is negative or there are too many containers
+     */
+    public ContainerTable(String[] names, double[] costs){
+        this(sorted(names, costs));
+    }
+
+    /**
+     * @param names names of the containers
+     * @param costs cost of each of those containers
+     * @return containers by id, ids in name order
+     */
+    private static Container[] sorted(String[] names, double[] costs){
+        if(names.length != costs.length || names.length > MAX_SIZE){
+            throw new IllegalStateException("Invalid number of containers: " + names.length);
+        }
+        Integer[] order = new Integer[names.length];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+        Container[] containers = new Container[names.length];
+        for(int id = 0; id < containers.length; id++){
+            containers[id] = new Container(id, costs[order[id]], names[order[id]]);
+        }
+        return containers;
+    }
+
+    /**
+     * ContainerTable constructor
+     * @param containers containers by id, ids from 0 to containers.length - 1
+     * @throws IllegalStateException if ids or names are repeated or missing, or a cost is negative
+     */
+    ContainerTable(Container[] containers){
+        this.containers = containers;
+        this.costs = new double[containers.length];
+        this.byName = new HashMap<>();
+        boolean integers = true;
+        for(int id = 0; id < containers.length; id++){
+            Container c = containers[id];
+            if(c == null || c.id != id){
+                throw new IllegalStateException("Container ids must go from 0 to " + (containers.length - 1));
+            }
+            if(!(c.cost >= 0) || Double.isInfinite(c.cost)){
+                throw new IllegalStateException("Invalid cost of container " + c + ": " + c.cost);
+            }
+            if(this.byName.put(c.name, c) != null){
+                throw new IllegalStateException("Container " + c + " appears twice");
+            }
+            this.costs[id] = c.cost;
+            integers &= c.cost == Math.rint(c.cost);
+        }
+        this.integerCosts = integers;
+    }
+
+    /**
+     * Table of the containers of a layout
+     * @param containers every container of the problem, in any order
+     * @return table of those containers
+     * @throws IllegalStateException if their ids don't go from 0 to the number of containers - 1
+     */
+    static ContainerTable of(Iterable<Container> containers){
+        int n = 0;
+        for(Container c : containers){
+            n = Math.max(n, c.id + 1);
+        }
+        Container[] byId = new Container[n];
+        for(Container c : containers){
+            byId[c.id] = c;
+        }
+        return new ContainerTable(byId);
+    }
+
+    /**
+     * @return number of containers
+     */
+    public int size(){
+        return this.containers.length;
+    }
+
+    /**
+     * @param id id of a container
+     * @return the container with that id
+     */
+    public Container get(int id){
+        return this.containers[id];
+    }
+
+    /**
+     * @param name name of a container
+     * @return the container with that name, null if there is none
+     */
+    public Container get(String name){
+        return this.byName.get(name);
+    }
+
+    /**
+     * @param id id of a container
+     * @return cost of the container
+     */
+    public double cost(int id){
+        return this.costs[id];
+    }
+
+    /**
+     * @return true if every cost is an integer (BucketOpenList and ExternalBestFirst need it)
+     */
+    public boolean hasIntegerCosts(){
+        return this.integerCosts;
+    }
+}
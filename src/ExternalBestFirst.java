@@ -0,0 +1,582 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * ExternalBestFirst class
+ * External memory A*: abertos and fechados are kept in files, so the size of the search isn't limited by the heap.
+ * Only PackedStacksOfContainers can be used, every state is a fixed size record with its zobrist key,
+ * the key of its father, its g and its cells.
+ * abertos is one file per value of f (costs and h must be integers), written as states are generated.
+ * The files are expanded by increasing f, each in rounds (children with the same f go to the next round):
+ * a round is sorted in runs of at most memoryStates records (by default, as many as fit in a quarter of the heap),
+ * which are merged with the sorted runs of fechados, dropping the states already closed and the repeated ones
+ * (delayed duplicate detection).
+ * The states left are expanded and written as a new run of fechados, and runs are merged when there are too many.
+ * With a consistent h the first goal expanded is optimal (BestFirst doesn't reopen closed states either),
+ * its path is rebuilt backwards from the keys of the fathers, looking each one up (by binary search)
+ * in the runs of fechados.
+ * Duplicates are found by key and cells, so a collision of keys can't drop a state.
+ */
+public class ExternalBestFirst implements Solver {
+    //runs of fechados merged into one when there are more
+    private static final int MAX_RUNS = 8;
+    //runs of a round read at once, more are merged in groups first
+    private static final int FAN_IN = 64;
+    private static final int BUFFER = 1 << 16;
+    private static final int KEY = 0;
+    private static final int FATHER = 8;
+    private static final int G = 16;
+    private static final int CELLS = 20; //length of the cells, then the cells padded with zeros
+
+    private final Path dir;
+    private final int memoryStates; //0 to use a quarter of the heap
+    private int sortStates; //states sorted in memory at once in the current solve
+    private SearchStatistics statistics;
+    private Path work;
+    private int recordSize;
+    private PackedStacksOfContainers objective;
+    private TreeMap<Long, OutputStream> abertos; //file of each f, open for writing
+    private List<Path> fechados; //sorted runs
+    private long open; //records written to abertos and not read yet
+    private long closed;
+    private int files; //files created, for their names
+
+    /**
+     * ExternalBestFirst constructor
+     * @param dir directory of the files, each solve uses (and deletes) its own directory inside it
+     * @param memoryStates maximum number of states sorted in memory at once
+     * @throws IllegalArgumentException if memoryStates is smaller than 2
+     */
+    public ExternalBestFirst(Path dir, int memoryStates){
+        if(memoryStates < 2){
+            throw new IllegalArgumentException("Invalid number of states in memory: " + memoryStates);
+        }
+        this.dir = dir;
+        this.memoryStates = memoryStates;
+    }
+
+    /**
+     * ExternalBestFirst constructor, sorts as many states in memory at once as fit in a quarter of the heap
+     * @param dir directory of the files, each solve uses (and deletes) its own directory inside it
+     */
+    public ExternalBestFirst(Path dir){
+        this.dir = dir;
+        this.memoryStates = 0;
+    }
+
+    /**
+     * @return statistics of the last solve (or of the one running), null before the first one
+     */
+    @Override
+    public SearchStatistics getStatistics(){
+        return statistics;
+    }
+
+    /**
+     * Method that solves the board
+     * @param s initial board layout, a PackedStacksOfContainers
+     * @param goal board layout, a PackedStacksOfContainers
+     * @return iterator with all the steps taken to reach the goal in it, null if goal can't be reached
+     * @throws IllegalStateException if the layouts aren't packed or costs or h aren't integers
+     * @throws UncheckedIOException if a file can't be read or written
+     * @throws SearchLimitException if the thread is interrupted
+     */
+    @Override
+    public Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal){
+        if(!(s instanceof PackedStacksOfContainers initial) || !(goal instanceof PackedStacksOfContainers g)){
+            throw new IllegalStateException("ExternalBestFirst only solves PackedStacksOfContainers");
+        }
+        if(!initial.getContainers().hasIntegerCosts()){
+            throw new IllegalStateException("ExternalBestFirst needs integer costs");
+        }
+        this.objective = g;
+        this.statistics = new SearchStatistics();
+        this.statistics.startNanos = System.nanoTime();
+        //the longest encoding has every container on the ground
+        this.recordSize = CELLS + 4 + initial.maxCellBytes();
+        //a record and its boxed position in the sort
+        this.sortStates = this.memoryStates > 0 ? this.memoryStates
+                : (int) Math.max(2, Math.min(1 << 24, Runtime.getRuntime().maxMemory() / 4 / (this.recordSize + 20)));
+        this.abertos = new TreeMap<>();
+        this.fechados = new ArrayList<>();
+        this.open = 0;
+        this.closed = 0;
+        try{
+            Files.createDirectories(this.dir);
+            this.work = Files.createTempDirectory(this.dir, "external");
+            this.statistics.rootH = initial.heuristics(g);
+            byte[] root = this.record(initial, initial.key(), 0);
+            this.write(this.f(0, initial), root);
+            byte[] last = this.search();
+            BestFirst.State result = last == null ? null : this.path(initial, last);
+            if(result != null){
+                this.statistics.cost = result.getG();
+                int depth = 0;
+                for(BestFirst.State f = result.getFather(); f != null; f = f.getFather()){
+                    depth++;
+                }
+                this.statistics.depth = depth;
+            }
+            this.statistics.sampleHeap();
+            this.statistics.totalNanos = System.nanoTime() - this.statistics.startNanos;
+            return result == null ? null : result.path();
+        } catch(IOException e){
+            throw new UncheckedIOException(e);
+        } finally{
+            this.clean();
+        }
+    }
+
+    /**
+     * Expands the files of abertos by increasing f until the goal is expanded
+     * @return record of the goal, null if abertos ends without it
+     * @throws IOException if a file can't be read or written
+     */
+    private byte[] search() throws IOException{
+        while(!this.abertos.isEmpty()){
+            Map.Entry<Long, OutputStream> first = this.abertos.pollFirstEntry();
+            long f = first.getKey();
+            first.getValue().close();
+            Path round = this.bucket(f);
+            //children with the same f are written to a new file for f, the next round
+            Path input = this.work.resolve("round-" + this.files++);
+            Files.move(round, input);
+            byte[] goal = this.round(input, f);
+            Files.delete(input);
+            if(goal != null){
+                return goal;
+            }
+            if(this.fechados.size() > MAX_RUNS){
+                Path merged = this.newFile();
+                try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(merged), BUFFER)){
+                    this.merge(this.fechados, List.of(), out, null);
+                }
+                for(Path p : this.fechados){
+                    Files.delete(p);
+                }
+                this.fechados = new ArrayList<>(List.of(merged));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Expands one round of a value of f
+     * @param input records of the round, not sorted
+     * @param f value of f of the round
+     * @return record of the goal, if it was in the round, null if it wasn't
+     * @throws IOException if a file can't be read or written
+     */
+    private byte[] round(Path input, long f) throws IOException{
+        long count = Files.size(input) / this.recordSize;
+        this.open -= count;
+        //sorted runs of the round
+        List<Path> runs = new ArrayList<>();
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(input), BUFFER))){
+            for(long done = 0; done < count; ){
+                int n = (int) Math.min(this.sortStates, count - done);
+                byte[] chunk = new byte[n * this.recordSize];
+                in.readFully(chunk);
+                done += n;
+                Integer[] order = new Integer[n];
+                for(int i = 0; i < n; i++){
+                    order[i] = i * this.recordSize;
+                }
+                Arrays.sort(order, (a, b) -> this.compare(chunk, a, chunk, b));
+                Path run = this.newFile();
+                try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(run), BUFFER)){
+                    for(int i : order){
+                        out.write(chunk, i, this.recordSize);
+                    }
+                }
+                runs.add(run);
+            }
+        }
+        while(runs.size() > FAN_IN){
+            List<Path> merged = new ArrayList<>();
+            for(int i = 0; i < runs.size(); i += FAN_IN){
+                List<Path> group = runs.subList(i, Math.min(runs.size(), i + FAN_IN));
+                Path run = this.newFile();
+                try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(run), BUFFER)){
+                    this.merge(group, List.of(), out, null);
+                }
+                for(Path p : group){
+                    Files.delete(p);
+                }
+                merged.add(run);
+            }
+            runs = merged;
+        }
+        Path expanded = this.newFile();
+        byte[][] goal = new byte[1][];
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(expanded), BUFFER)){
+            this.merge(runs, this.fechados, out, record -> {
+                PackedStacksOfContainers layout = this.layout(record);
+                if(layout.isGoal(this.objective)){
+                    goal[0] = record;
+                    return false;
+                }
+                this.expand(layout, record, f);
+                return true;
+            });
+        }
+        for(Path run : runs){
+            Files.delete(run);
+        }
+        this.fechados.add(expanded);
+        return goal[0];
+    }
+
+    /**
+     * Something done with each state left by a merge
+     */
+    private interface Visitor {
+        /**
+         * @param record record of the state
+         * @return true to write it to the output of the merge and go on, false to stop the merge
+         * @throws IOException if a file can't be read or written
+         */
+        boolean visit(byte[] record) throws IOException;
+    }
+
+    /**
+     * Merges sorted runs, dropping repeated states (the one with the smallest g stays)
+     * and the states that are also in the excluded runs
+     * @param runs sorted runs
+     * @param excluded sorted runs whose states are dropped (they aren't written)
+     * @param out where the states left are written, sorted
+     * @param visitor told about each state left before it is written, null for none
+     * @throws IOException if a file can't be read or written
+     */
+    private void merge(List<Path> runs, List<Path> excluded, OutputStream out, Visitor visitor) throws IOException{
+        //among equal states, the excluded ones come first, then the smallest g
+        PriorityQueue<Run> queue = new PriorityQueue<>((r1, r2) -> {
+            int c = this.compareState(r1.record, r2.record);
+            if(c == 0){
+                c = Boolean.compare(!r1.excluded, !r2.excluded);
+            }
+            return c == 0 ? this.compare(r1.record, 0, r2.record, 0) : c;
+        });
+        List<Run> all = new ArrayList<>();
+        try{
+            for(Path p : excluded){
+                all.add(new Run(p, true));
+            }
+            for(Path p : runs){
+                all.add(new Run(p, false));
+            }
+            for(Run r : all){
+                if(r.next()){
+                    queue.add(r);
+                }
+            }
+            byte[] previous = null;
+            while(!queue.isEmpty()){
+                Run r = queue.poll();
+                byte[] record = r.record;
+                if(previous != null && this.compareState(previous, record) == 0){
+                    if(!r.excluded){
+                        this.statistics.duplicates++;
+                    }
+                }
+                else{
+                    previous = record;
+                    if(!r.excluded){
+                        if(visitor != null && !visitor.visit(record)){
+                            return;
+                        }
+                        out.write(record);
+                    }
+                }
+                if(r.next()){
+                    queue.add(r);
+                }
+            }
+        } finally{
+            for(Run r : all){
+                r.close();
+            }
+        }
+    }
+
+    /**
+     * Sorted run being read by a merge
+     */
+    private class Run {
+        private final DataInputStream in;
+        private final boolean excluded;
+        private byte[] record;
+
+        Run(Path file, boolean excluded) throws IOException{
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER));
+            this.excluded = excluded;
+        }
+
+        /**
+         * Reads the next record
+         * @return false at the end of the run
+         */
+        boolean next() throws IOException{
+            //a new array, the last one can still be kept as previous
+            byte[] r = new byte[recordSize];
+            try{
+                this.in.readFully(r);
+            } catch(EOFException e){
+                return false;
+            }
+            this.record = r;
+            return true;
+        }
+
+        void close() throws IOException{
+            this.in.close();
+        }
+    }
+
+    /**
+     * Writes the children of a state to abertos
+     * @param layout state being expanded
+     * @param record its record
+     * @param f value of f of the state
+     * @throws IOException if a file can't be read or written
+     * @throws SearchLimitException if the thread is interrupted
+     */
+    private void expand(PackedStacksOfContainers layout, byte[] record, long f) throws IOException{
+        if(Thread.currentThread().isInterrupted()){
+            this.statistics.totalNanos = System.nanoTime() - this.statistics.startNanos;
+            throw new SearchLimitException(SearchLimitException.Limit.INTERRUPTED, this.statistics);
+        }
+        int g = ByteBuffer.wrap(record).getInt(G);
+        //children get their h updated from the one of their father
+        layout.heuristics(this.objective);
+        for(Move m : layout.moves()){
+            PackedStacksOfContainers child = layout.apply(m);
+            int cg = g + (int) child.getG();
+            //f never goes down with a consistent h, if it does the child waits for the next round
+            long cf = Math.max(f, this.f(cg, child));
+            this.write(cf, this.record(child, layout.key(), cg));
+            this.statistics.generated++;
+        }
+        this.statistics.expanded++;
+        this.closed++;
+        this.statistics.sizes((int) Math.min(Integer.MAX_VALUE, this.open), (int) Math.min(Integer.MAX_VALUE, this.closed));
+        if(this.statistics.expanded % SearchStatistics.HEAP_SAMPLE == 0){
+            this.statistics.sampleHeap();
+        }
+    }
+
+    /**
+     * @param g cost of the path to layout
+     * @param layout layout
+     * @return f = g + h, as an integer
+     * @throws IllegalStateException if h or the costs aren't integers
+     */
+    private long f(int g, PackedStacksOfContainers layout){
+        double h = layout.heuristics(this.objective);
+        if(h != Math.rint(h)){
+            throw new IllegalStateException("ExternalBestFirst needs integer costs and heuristics, got h = " + h);
+        }
+        return g + (long) h;
+    }
+
+    /**
+     * Adds a record to the file of abertos of a value of f
+     * @param f value of f
+     * @param record record
+     * @throws IOException if the file can't be written
+     */
+    private void write(long f, byte[] record) throws IOException{
+        OutputStream out = this.abertos.get(f);
+        if(out == null){
+            out = new BufferedOutputStream(Files.newOutputStream(this.bucket(f)), BUFFER);
+            this.abertos.put(f, out);
+        }
+        out.write(record);
+        this.open++;
+    }
+
+    /**
+     * @param f value of f
+     * @return file of abertos of f
+     */
+    private Path bucket(long f){
+        return this.work.resolve("open-" + f);
+    }
+
+    /**
+     * @return path of a new file in the work directory
+     */
+    private Path newFile(){
+        return this.work.resolve("run-" + this.files++);
+    }
+
+    /**
+     * @param layout layout
+     * @param father key of its father (its own key for the initial layout)
+     * @param g cost of the path to it
+     * @return record of the state
+     */
+    private byte[] record(PackedStacksOfContainers layout, long father, int g){
+        byte[] cells = layout.cells();
+        ByteBuffer b = ByteBuffer.allocate(this.recordSize);
+        b.putLong(KEY, layout.key()).putLong(FATHER, father).putInt(G, g).putInt(CELLS, cells.length);
+        b.put(CELLS + 4, cells);
+        return b.array();
+    }
+
+    /**
+     * @param record record of a state
+     * @return layout of the state (with no last move)
+     */
+    private PackedStacksOfContainers layout(byte[] record){
+        int length = ByteBuffer.wrap(record).getInt(CELLS);
+        return this.objective.withCells(Arrays.copyOfRange(record, CELLS + 4, CELLS + 4 + length));
+    }
+
+    /**
+     * Order of the records: by key, then by cells, then by g
+     * @return negative, zero or positive, like a comparator
+     */
+    private int compare(byte[] a, int i, byte[] b, int j){
+        int c = Arrays.compareUnsigned(a, i + KEY, i + KEY + 8, b, j + KEY, j + KEY + 8);
+        if(c == 0){
+            c = Arrays.compareUnsigned(a, i + CELLS, i + this.recordSize, b, j + CELLS, j + this.recordSize);
+        }
+        if(c == 0){
+            c = Integer.compare(ByteBuffer.wrap(a).getInt(i + G), ByteBuffer.wrap(b).getInt(j + G));
+        }
+        return c;
+    }
+
+    /**
+     * Order of the states of two records: by key, then by cells
+     * @return negative, zero (same layout) or positive, like a comparator
+     */
+    private int compareState(byte[] a, byte[] b){
+        int c = Arrays.compareUnsigned(a, KEY, KEY + 8, b, KEY, KEY + 8);
+        return c == 0 ? Arrays.compareUnsigned(a, CELLS, this.recordSize, b, CELLS, this.recordSize) : c;
+    }
+
+    /**
+     * Rebuilds the path to the goal, from the goal back to the initial layout
+     * The father of each state is the neighbour (moves can be taken back at the same cost) with the key
+     * of its record, and the record of the father is looked up in fechados
+     * @param initial initial layout
+     * @param goal record of the goal
+     * @return goal state, with the path from the initial one
+     * @throws IOException if a file can't be read
+     */
+    private BestFirst.State path(PackedStacksOfContainers initial, byte[] goal) throws IOException{
+        List<PackedStacksOfContainers> back = new ArrayList<>();
+        PackedStacksOfContainers layout = this.layout(goal);
+        byte[] record = goal;
+        back.add(layout);
+        while(!layout.equals(initial)){
+            long father = ByteBuffer.wrap(record).getLong(FATHER);
+            byte[] found = null;
+            for(Move m : layout.moves()){
+                PackedStacksOfContainers neighbour = layout.apply(m);
+                if(neighbour.key() == father){
+                    found = this.find(this.record(neighbour, 0, 0));
+                    if(found != null){
+                        layout = this.layout(found);
+                        break;
+                    }
+                }
+            }
+            if(found == null){
+                throw new IllegalStateException("Father of " + layout + " not found in fechados");
+            }
+            record = found;
+            back.add(layout);
+        }
+        BestFirst.State state = new BestFirst.State(initial, null, this.objective);
+        for(int i = back.size() - 2; i >= 0; i--){
+            for(Move m : state.getLayout().moves()){
+                PackedStacksOfContainers next = ((PackedStacksOfContainers) state.getLayout()).apply(m);
+                if(next.equals(back.get(i))){
+                    state = new BestFirst.State(next, state, this.objective);
+                    break;
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Looks a state up in the runs of fechados
+     * @param probe record with the key and the cells of the state
+     * @return record of the state, null if it isn't closed
+     * @throws IOException if a file can't be read
+     */
+    private byte[] find(byte[] probe) throws IOException{
+        byte[] r = new byte[this.recordSize];
+        for(Path run : this.fechados){
+            try(FileChannel ch = FileChannel.open(run, StandardOpenOption.READ)){
+                long lo = 0;
+                long hi = ch.size() / this.recordSize - 1;
+                while(lo <= hi){
+                    long mid = (lo + hi) >>> 1;
+                    ByteBuffer b = ByteBuffer.wrap(r);
+                    while(b.hasRemaining()){
+                        ch.read(b, mid * this.recordSize + b.position());
+                    }
+                    int c = this.compareState(r, probe);
+                    if(c < 0){
+                        lo = mid + 1;
+                    }
+                    else if(c > 0){
+                        hi = mid - 1;
+                    }
+                    else{
+                        return r;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the files of abertos and deletes the work directory
+     */
+    private void clean(){
+        try{
+            for(OutputStream out : this.abertos.values()){
+                out.close();
+            }
+            if(this.work != null){
+                try(Stream<Path> files = Files.list(this.work)){
+                    for(Path p : (Iterable<Path>) files::iterator){
+                        Files.delete(p);
+                    }
+                }
+                Files.delete(this.work);
+            }
+        } catch(IOException e){
+            throw new UncheckedIOException(e);
+        } finally{
+            this.work = null;
+            this.abertos = null;
+            this.fechados = null;
+        }
+    }
+}
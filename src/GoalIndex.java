@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * Goal layout preprocessed for the h0 heuristic
+ * Built once per goal, it knows for every container its goal stack and its depth in it,
+ * so "is b below c in goal" and "is c in this goal stack" are answered in O(1)
+ * instead of scanning the goal stacks.
+ * Containers are identified by the int ids of the layout that built the index.
+ * It is also where a goal keeps the rest of what the searches towards it need (its pattern database
+ * heuristic), so a layout has a single field for its goal side data, only set on goal layouts.
+ */
+public class GoalIndex {
+    /** value of below for a container that is on the ground in goal */
+    public static final int GROUND = -1;
+    /** value of below for a container that isn't in goal */
+    public static final int NONE = -2;
+
+    private final int[][] stacks; //goal stacks, bottom to top
+    private final int[] stackOf; //goal stack of every container, -1 if it isn't in goal
+    private final int[] depthOf; //height of every container in its goal stack
+    private PatternHeuristic patterns; //null if h0 is used alone
+
+    /**
+     * GoalIndex constructor
+     * @param stacks ids of the containers of each goal stack, bottom to top
+     */
+    public GoalIndex(int[][] stacks){
+        int maxId = 0;
+        for(int[] s : stacks){
+            for(int c : s){
+                maxId = Math.max(maxId, c);
+            }
+        }
+        this.stacks = stacks;
+        this.stackOf = new int[maxId + 1];
+        this.depthOf = new int[maxId + 1];
+        Arrays.fill(this.stackOf, -1);
+        for(int s = 0; s < stacks.length; s++){
+            for(int i = 0; i < stacks[s].length; i++){
+                this.stackOf[stacks[s][i]] = s;
+                this.depthOf[stacks[s][i]] = i;
+            }
+        }
+    }
+
+    /**
+     * @return pattern database heuristic of the goal, null if h0 is used alone
+     */
+    public PatternHeuristic getPatterns(){
+        return this.patterns;
+    }
+
+    /**
+     * Makes the layouts that use this goal also use a pattern database heuristic (the biggest of it and h0)
+     * @param patterns pattern database heuristic of the goal, null for h0 alone
+     */
+    public void setPatterns(PatternHeuristic patterns){
+        this.patterns = patterns;
+    }
+
+    /**
+     * Goal stack of a container
+     * @param c id of the container
+     * @return index of its goal stack, -1 if it isn't in goal
+     */
+    public int stackOf(int c){
+        return c < this.stackOf.length ? this.stackOf[c] : -1;
+    }
+
+    /**
+     * Tells if container b is below container c in goal
+     * @param b id of a container
+     * @param c id of another container
+     * @return true if they are in the same goal stack and b is deeper than c
+     */
+    public boolean isBelow(int b, int c){
+        int s = this.stackOf(b);
+        return s != -1 && s == this.stackOf(c) && this.depthOf[b] < this.depthOf[c];
+    }
+
+    /**
+     * Container below another one in goal
+     * @param c id of a container
+     * @return id of the container below c in goal, GROUND if it is on the ground, NONE if c isn't in goal
+     */
+    public int below(int c){
+        int s = this.stackOf(c);
+        if(s == -1){
+            return NONE;
+        }
+        return this.depthOf[c] == 0 ? GROUND : this.stacks[s][this.depthOf[c] - 1];
+    }
+
+    /**
+     * Tells if every container of a stack is settled: the stack is the bottom of a goal stack
+     * @param ids containers of the stack, bottom to top
+     * @param size number of containers in the stack
+     * @return true if the stack is the bottom of a goal stack
+     */
+    public boolean settled(int[] ids, int size){
+        int s = this.stackOf(ids[0]);
+        if(s == -1 || this.depthOf[ids[0]] != 0 || size > this.stacks[s].length){
+            return false;
+        }
+        for(int k = 1; k < size; k++){
+            if(this.stacks[s][k] != ids[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Contribution of one stack to the h0 heuristic
+     * If the bottom container isn't on the ground in goal, every container needs to move at least once.
+     * If it is, only the containers from the deepest one placed differently from goal upwards do.
+     * A container that needs to move is counted twice when it belongs to the goal stack it is in
+     * (it must leave and come back) or when a misplaced container below it should be below it in goal.
+     * @param ids containers of the stack, bottom to top
+     * @param costs cost of each of those containers
+     * @param size number of containers in the stack
+     * @return heuristic value of the stack
+     */
+    public double score(int[] ids, double[] costs, int size){
+        int bottom = ids[0];
+        int gs = this.stackOf(bottom);
+        boolean found = gs != -1 && this.depthOf[bottom] == 0;
+        int[] goalStack = found ? this.stacks[gs] : null;
+        double result = 0;
+        //height of the deepest misplaced container, everything above it is misplaced too
+        int firstMisplaced = found ? -1 : 0;
+        for(int k = found ? 1 : 0; k < size; k++){
+            int c = ids[k];
+            if(firstMisplaced == -1){
+                if(k < goalStack.length && goalStack[k] == c){
+                    continue;
+                }
+                firstMisplaced = k;
+            }
+            result += costs[k];
+            if(found && this.stackOf(c) == gs){
+                result += costs[k];
+                continue;
+            }
+            for(int b = firstMisplaced; b < k; b++){
+                if(this.isBelow(ids[b], c)){
+                    result += costs[k];
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HeuristicCache class
+ * Lower bounds of the cost to the goal of layouts, learned by earlier solves of the same goal (see SolverSession).
+ * After an optimal solve of cost C, every state s closed by it has h*(s) >= C - g(s), and the states of the
+ * solution path have h*(s) = C - g(s) exactly, so those values can be used as an admissible heuristic.
+ * The cache keeps at most capacity layouts, the least recently used one is evicted to make room.
+ * Not thread safe.
+ */
+public class HeuristicCache {
+    private final int capacity;
+    private final LinkedHashMap<Ilayout, Double> values;
+    private long lookups;
+    private long hits;
+    private long evictions;
+
+    /**
+     * HeuristicCache constructor
+     * @param capacity maximum number of layouts kept
+     * @throws IllegalArgumentException if capacity isn't positive
+     */
+    public HeuristicCache(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        //access order, so the eldest entry is the least recently used one
+        this.values = new LinkedHashMap<>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Ilayout, Double> eldest){
+                if(size() > HeuristicCache.this.capacity){
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Finds the lower bound learned for a layout
+     * @param l layout
+     * @return lower bound of the cost from l to the goal, 0 if none was learned
+     */
+    public double get(Ilayout l){
+        lookups++;
+        Double value = values.get(l);
+        if(value == null){
+            return 0;
+        }
+        hits++;
+        return value;
+    }
+
+    /**
+     * Learns a lower bound of the cost from a layout to the goal, keeping the biggest one known
+     * @param l layout
+     * @param value lower bound of the cost from l to the goal
+     */
+    void learn(Ilayout l, double value){
+        values.merge(l, value, Math::max);
+    }
+
+    /**
+     * Forgets every value learned (the counters are kept)
+     */
+    public void clear(){
+        values.clear();
+    }
+
+    /**
+     * @return maximum number of layouts kept
+     */
+    public int capacity(){
+        return capacity;
+    }
+
+    /**
+     * @return number of layouts kept
+     */
+    public int size(){
+        return values.size();
+    }
+
+    /**
+     * @return number of calls to get
+     */
+    public long getLookups(){
+        return lookups;
+    }
+
+    /**
+     * @return number of calls to get that found a value
+     */
+    public long getHits(){
+        return hits;
+    }
+
+    /**
+     * @return number of layouts evicted to make room for others
+     */
+    public long getEvictions(){
+        return evictions;
+    }
+}
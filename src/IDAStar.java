@@ -0,0 +1,145 @@
+import java.util.Iterator;
+
+/**
+ * IDAStar class
+ * Iterative deepening A*: depth first searches bounded by f = g + h, the bound growing
+ * to the smallest f that went over it in the previous search. Memory only grows with the
+ * depth of the solution, instead of with the number of states like BestFirst.
+ * Optionally a transposition table with a fixed number of entries remembers the smallest g
+ * each layout was reached with in the current search, so a layout reached again without a
+ * cheaper path isn't searched twice. Layouts are identified by their 64 bit key and a newer
+ * entry always replaces an older one in the same slot, so the table never grows.
+ */
+public class IDAStar implements Solver {
+    private static final double FOUND = -1;
+
+    private final long[] keys;
+    private final double[] gs;
+    private final int[] iterations;
+    private final int mask;
+
+    private Ilayout objective;
+    private BestFirst.State solution;
+    private int iteration;
+
+    /**
+     * IDAStar constructor, without transposition table
+     */
+    public IDAStar(){
+        this(0);
+    }
+
+    /**
+     * IDAStar constructor
+     * @param tableSize maximum number of entries of the transposition table (20 bytes each),
+     *                  rounded down to a power of 2, 0 for no table
+     * @throws IllegalArgumentException if tableSize is negative
+     */
+    public IDAStar(int tableSize){
+        if(tableSize < 0){
+            throw new IllegalArgumentException("Invalid transposition table size: " + tableSize);
+        }
+        int size = tableSize == 0 ? 0 : Integer.highestOneBit(tableSize);
+        this.keys = new long[size];
+        this.gs = new double[size];
+        this.iterations = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Method that solves the board
+     * @param s initial board layout
+     * @param goal board layout
+     * @return iterator with all the steps taken to reach the goal in it, null if there is no solution
+     */
+    @Override
+    public Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal){
+        this.objective = goal;
+        this.solution = null;
+        BestFirst.State root = new BestFirst.State(s, null, goal);
+        double bound = root.getH();
+        while(true){
+            this.iteration++;
+            double next = this.search(root, bound);
+            if(next == FOUND){
+                return this.solution.path();
+            }
+            //nothing went over the bound, so every reachable layout was seen
+            if(next == Double.POSITIVE_INFINITY){
+                return null;
+            }
+            bound = next;
+        }
+    }
+
+    /**
+     * Depth first search below a bound
+     * @param n current state
+     * @param bound biggest f allowed in this search
+     * @return FOUND if the goal was reached, or the smallest f over the bound
+     */
+    private double search(BestFirst.State n, double bound){
+        double f = n.getG() + n.getH();
+        if(f > bound){
+            return f;
+        }
+        if(n.getLayout().isGoal(this.objective)){
+            this.solution = n;
+            return FOUND;
+        }
+        if(!this.visit(n)){
+            return Double.POSITIVE_INFINITY;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        for(Move m : n.getLayout().moves()){
+            if(m.undo){
+                continue;
+            }
+            BestFirst.State suc = new BestFirst.State(n.getLayout().apply(m), n, m, this.objective);
+            if(this.onPath(suc)){
+                continue;
+            }
+            double t = this.search(suc, bound);
+            if(t == FOUND){
+                return FOUND;
+            }
+            min = Math.min(min, t);
+        }
+        return min;
+    }
+
+    /**
+     * Records a state in the transposition table
+     * @param n state
+     * @return false if its layout was already reached in this search with a g that isn't bigger
+     */
+    private boolean visit(BestFirst.State n){
+        if(this.keys.length == 0){
+            return true;
+        }
+        long key = n.getLayout().key();
+        int slot = (int) (key ^ (key >>> 32)) & this.mask;
+        if(this.iterations[slot] == this.iteration && this.keys[slot] == key && this.gs[slot] <= n.getG()){
+            return false;
+        }
+        this.keys[slot] = key;
+        this.gs[slot] = n.getG();
+        this.iterations[slot] = this.iteration;
+        return true;
+    }
+
+    /**
+     * Tells if the layout of a state is already in the path that leads to it
+     * @param n state
+     * @return true if one of its ancestors has the same layout
+     */
+    private boolean onPath(BestFirst.State n){
+        Ilayout l = n.getLayout();
+        for(BestFirst.State a = n.getFather(); a != null; a = a.getFather()){
+            if(a.getLayout().key() == l.key() && a.getLayout().equals(l)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,3 +1,6 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 
 public interface Ilayout {
@@ -6,6 +9,21 @@ public interface Ilayout {
      */
     List<Ilayout> children();
 
+    /**
+     * @return the moves that can be applied to the receiver, without building the children
+     */
+    List<Move> moves();
+
+    /**
+     * @return the child we get by applying the move m (created by moves()) to the receiver
+     */
+    Ilayout apply(Move m);
+
+    /**
+     * @return 64 bit key of the receiver, equal layouts always have equal keys
+     */
+    long key();
+
     /**
      * @return true if the receiver equals the argument 1; false otherwise
      */
@@ -20,4 +38,27 @@ public interface Ilayout {
      * @return heuristic value of the designated layout
      */
     double heuristics(Ilayout l);
+
+    /**
+     * Writes the receiver in a compact binary form, read back by read
+     * Only what changes between layouts of the same problem is written (not the costs of the containers)
+     * @throws IOException if out can't be written
+     */
+    void write(DataOutput out) throws IOException;
+
+    /**
+     * Reads a layout of the same problem as the receiver, written by write
+     * @return the layout read
+     * @throws IOException if in can't be read
+     * @throws IllegalStateException if the data isn't a layout of this problem
+     */
+    Ilayout read(DataInput in) throws IOException;
+
+    /**
+     * Flags of the moves of the receiver for the pruning of BestFirst (see Pruning)
+     * @param moves moves of the receiver, as given by moves()
+     * @param goal goal layout
+     * @return Pruning flags of every move
+     */
+    byte[] classify(List<Move> moves, Ilayout goal);
 }
@@ -0,0 +1,60 @@
+/**
+ * Instance class
+ * One instance read by InstanceParser: the table of its containers, and the stacks of the initial layout
+ * and of the goal as ids of those containers (bottom to top). Layouts of either kind can be built from it.
+ */
+public class Instance {
+    private final int line;
+    private final ContainerTable containers;
+    private final int[][] initial;
+    private final int[][] goal;
+
+    /**
+     * Instance constructor
+     * @param line line of the input where the instance starts
+     * @param containers containers of the instance
+     * @param initial stacks of the initial layout
+     * @param goal stacks of the goal
+     */
+    Instance(int line, ContainerTable containers, int[][] initial, int[][] goal){
+        this.line = line;
+        this.containers = containers;
+        this.initial = initial;
+        this.goal = goal;
+    }
+
+    /**
+     * Builds the layouts of the instance, the goal shares the containers of the initial layout
+     * @param packed true for PackedStacksOfContainers, false for StacksOfContainers
+     * @return initial layout and goal
+     * @throws IllegalStateException if there are too many containers for PackedStacksOfContainers
+     */
+    public Ilayout[] layouts(boolean packed){
+        if(packed){
+            PackedStacksOfContainers s = new PackedStacksOfContainers(this.initial, this.containers);
+            return new Ilayout[]{s, new PackedStacksOfContainers(this.goal, s)};
+        }
+        return new Ilayout[]{new StacksOfContainers(this.initial, this.containers), new StacksOfContainers(this.goal, this.containers)};
+    }
+
+    /**
+     * @return line of the input where the instance starts
+     */
+    public int getLine(){
+        return line;
+    }
+
+    /**
+     * @return number of containers
+     */
+    public int size(){
+        return containers.size();
+    }
+
+    /**
+     * @return table of the containers, shared by the layouts of the instance
+     */
+    public ContainerTable getContainers(){
+        return containers;
+    }
+}
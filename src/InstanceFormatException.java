@@ -0,0 +1,30 @@
+/**
+ * Thrown by InstanceParser when its input isn't a valid instance
+ * The line and the column (both from 1, columns count characters) tell where the problem was found.
+ */
+public class InstanceFormatException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+
+    /**
+     * InstanceFormatException constructor
+     * @param line line of the input
+     * @param column column of the line
+     * @param message what is wrong
+     */
+    public InstanceFormatException(int line, int column, String message){
+        super("line " + line + ", column " + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine(){
+        return line;
+    }
+
+    public int getColumn(){
+        return column;
+    }
+}
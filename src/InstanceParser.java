@@ -0,0 +1,505 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * InstanceParser class
+ * Streaming parser of instances: reads the bytes of a channel (or of a buffer) straight into containers
+ * and stacks of container indexes, without building a String per line or per container.
+ * An instance is two lines, the initial layout and the goal, blank lines around them are skipped.
+ * Stacks are separated by spaces (or tabs) and list their containers bottom to top.
+ * In the initial layout every container is an id followed by its cost, one or more digits with an optional
+ * decimal part (A12B3.5 is A with cost 12 and B with cost 3.5), in the goal it is just the id.
+ * An id is one character (not a digit, a space or a parenthesis) or a longer name between parentheses, like (A12).
+ * Input is UTF-8, lines end with \n or \r\n.
+ * Every error is an InstanceFormatException with the line and the column where it was found, and the parser
+ * skips the rest of that instance, so the instances after it can still be read.
+ */
+public class InstanceParser {
+    private static final int BUFFER = 1 << 16;
+    //costs are read as an integer and a number of decimals, the integer has to be exact in a double
+    private static final long MAX_DIGITS = (1L << 53) - 1;
+    private static final double[] POWERS = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16};
+
+    private final ReadableByteChannel channel; //null when reading a buffer
+    private final ByteBuffer buffer;
+    private int line = 1;
+    private int column = 1;
+
+    /**
+     * InstanceParser constructor
+     * @param channel where instances are read from
+     */
+    public InstanceParser(ReadableByteChannel channel){
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER).flip();
+    }
+
+    /**
+     * InstanceParser constructor
+     * @param buffer instances, from its position to its limit
+     */
+    public InstanceParser(ByteBuffer buffer){
+        this.channel = null;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Containers of one problem, found by their name
+     * Containers get an index as they are found, and their ids once the table is built
+     */
+    static class Names {
+        private final List<String> names = new ArrayList<>();
+        private double[] costs = new double[16];
+        private final HashMap<Character, Integer> single = new HashMap<>(); //index of the names of one character
+        private final HashMap<String, Integer> longer = new HashMap<>(); //index of the other names
+        private ContainerTable table;
+        private int[] ids; //id of the container of every index, null if they are the same
+
+        /**
+         * Names constructor, with no containers
+         */
+        Names(){
+        }
+
+        /**
+         * Names constructor
+         * @param table containers of the problem, their indexes are their ids
+         */
+        Names(ContainerTable table){
+            for(int id = 0; id < table.size(); id++){
+                this.put(table.get(id).name, id);
+            }
+            this.table = table;
+        }
+
+        /**
+         * @param index index of a container
+         * @return name of the container
+         */
+        private String name(int index){
+            return this.names.get(index);
+        }
+
+        /**
+         * @return number of containers
+         */
+        private int size(){
+            return this.names.size();
+        }
+
+        /**
+         * @param id id of a container
+         * @param name longer name of the container, null if its name is id
+         * @return index of the container, -1 if there is none
+         */
+        private int index(char id, String name){
+            Integer i = name == null ? this.single.get(id) : this.longer.get(name);
+            return i == null ? -1 : i;
+        }
+
+        /**
+         * Adds a container
+         * @param id id of the container (ignored if it has a name)
+         * @param name longer name of the container, null if its name is id
+         * @param cost cost of the container
+         * @return index of the container
+         */
+        private int add(char id, String name, double cost){
+            int index = this.names.size();
+            this.put(name == null ? String.valueOf(id) : name, index);
+            if(index == this.costs.length){
+                this.costs = Arrays.copyOf(this.costs, 2 * index);
+            }
+            this.costs[index] = cost;
+            return index;
+        }
+
+        /**
+         * @param name name of a container
+         * @param index index of the container
+         */
+        private void put(String name, int index){
+            this.names.add(name);
+            if(name.length() == 1){
+                this.single.put(name.charAt(0), index);
+            }
+            else{
+                this.longer.put(name, index);
+            }
+        }
+
+        /**
+         * Builds the table of the containers found until now, the first time it is called
+         * @return table of the containers
+         */
+        ContainerTable table(){
+            if(this.table == null){
+                this.table = new ContainerTable(this.names.toArray(new String[0]), Arrays.copyOf(this.costs, this.names.size()));
+                this.ids = new int[this.names.size()];
+                for(int i = 0; i < this.ids.length; i++){
+                    this.ids[i] = this.table.get(this.names.get(i)).id;
+                }
+            }
+            return this.table;
+        }
+
+        /**
+         * Replaces the indexes of some stacks by the ids of their containers in the table
+         * @param stacks indexes of the containers of each stack, changed
+         * @return stacks
+         */
+        private int[][] ids(int[][] stacks){
+            this.table();
+            if(this.ids != null){
+                for(int[] s : stacks){
+                    for(int i = 0; i < s.length; i++){
+                        s[i] = this.ids[s[i]];
+                    }
+                }
+            }
+            return stacks;
+        }
+    }
+
+    /**
+     * Parses a single layout (used by the String constructors of the layouts)
+     * @param str layout, in the format of a line of an instance
+     * @param names containers of the problem, new ones are added to it unless closed
+     * @param costs true if every id is followed by its cost
+     * @param closed true if every container must already be in names (with the same cost, if costs),
+     * and all of them must be in the layout
+     * @return ids of the containers of each stack, bottom to top (names.table() has their table)
+     * @throws InstanceFormatException if str isn't a valid layout
+     */
+    static int[][] layout(String str, Names names, boolean costs, boolean closed){
+        InstanceParser parser = new InstanceParser(ByteBuffer.wrap(str.getBytes(StandardCharsets.UTF_8)));
+        try{
+            int[][] stacks = parser.layout(names, costs, closed);
+            parser.endOfLine();
+            if(parser.peek() != -1){
+                throw parser.error("expected the end of the layout");
+            }
+            return names.ids(stacks);
+        } catch(IOException e){
+            //buffers can't fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the next instance
+     * @return the instance, null at the end of the input
+     * @throws IOException if the channel can't be read
+     * @throws InstanceFormatException if the instance isn't valid (the parser is then at the start of the next one)
+     */
+    public Instance next() throws IOException{
+        this.skipBlank();
+        if(this.peek() == -1){
+            return null;
+        }
+        int first = this.line;
+        Names names = new Names();
+        int[][] initial;
+        try{
+            initial = this.layout(names, true, false);
+            names.table();
+        } catch(InstanceFormatException e){
+            //the rest of the line and the goal
+            this.skipLine();
+            this.skipBlank();
+            this.skipLine();
+            throw e;
+        }
+        this.endOfLine();
+        this.skipBlank();
+        if(this.peek() == -1){
+            throw this.error("the instance of line " + first + " has no goal");
+        }
+        int[][] goal;
+        try{
+            goal = this.layout(names, false, true);
+        } catch(InstanceFormatException e){
+            this.skipLine();
+            throw e;
+        }
+        this.endOfLine();
+        return new Instance(first, names.table(), names.ids(initial), names.ids(goal));
+    }
+
+    /**
+     * Reads one layout, up to the end of its line (which isn't read)
+     * @param names containers of the problem, new ones are added to it unless closed
+     * @param costs true if every id is followed by its cost
+     * @param closed true if every container must already be in names (with the same cost, if costs),
+     * and all of them must be in the layout
+     * @return indexes in names of the containers of each stack, bottom to top
+     * @throws IOException if the channel can't be read
+     * @throws InstanceFormatException if the layout isn't valid
+     */
+    private int[][] layout(Names names, boolean costs, boolean closed) throws IOException{
+        List<int[]> stacks = new ArrayList<>();
+        int[] stack = new int[8];
+        int size = 0;
+        BitSet used = new BitSet(); //containers already in the layout (closed only)
+        while(true){
+            int b = this.peek();
+            if(b == -1 || b == '\n' || b == '\r' || b == ' ' || b == '\t'){
+                if(size > 0){
+                    stacks.add(Arrays.copyOf(stack, size));
+                    size = 0;
+                }
+                if(b != ' ' && b != '\t'){
+                    break;
+                }
+                this.read();
+                continue;
+            }
+            if(size == stack.length){
+                stack = Arrays.copyOf(stack, 2 * size);
+            }
+            stack[size++] = this.container(names, costs, closed, used);
+        }
+        if(stacks.isEmpty()){
+            throw this.error("empty layout");
+        }
+        if(closed && used.cardinality() != names.size()){
+            throw this.error("container " + names.name(used.nextClearBit(0)) + " is missing");
+        }
+        return stacks.toArray(new int[0][]);
+    }
+
+    /**
+     * Reads one container
+     * @param names containers of the problem, a new one is added to it unless closed
+     * @param costs true if the id is followed by its cost
+     * @param closed true if the container must already be in names (with the same cost, if costs)
+     * @param used containers already in the layout (closed only), updated
+     * @return index of the container in names
+     * @throws IOException if the channel can't be read
+     * @throws InstanceFormatException if the container isn't valid
+     */
+    private int container(Names names, boolean costs, boolean closed, BitSet used) throws IOException{
+        int atLine = this.line;
+        int atColumn = this.column;
+        char id = 0;
+        String name = null;
+        if(this.peek() == '('){
+            this.read();
+            StringBuilder sb = new StringBuilder();
+            while(this.peek() != ')'){
+                int b = this.peek();
+                if(b == -1 || b == '\n' || b == '\r' || b == ' ' || b == '\t' || b == '('){
+                    throw this.error("expected ) to close the name");
+                }
+                sb.append(this.readChar());
+            }
+            this.read();
+            if(sb.isEmpty()){
+                throw new InstanceFormatException(atLine, atColumn, "empty name");
+            }
+            if(sb.length() == 1){
+                id = sb.charAt(0);
+            }
+            else{
+                name = sb.toString();
+            }
+        }
+        else{
+            int b = this.peek();
+            if(b == ')' || (b >= '0' && b <= '9')){
+                throw this.error("expected a container id");
+            }
+            id = this.readChar();
+        }
+        String shown = name == null ? String.valueOf(id) : name;
+        double cost = 0;
+        if(costs){
+            int b = this.peek();
+            if(b < '0' || b > '9'){
+                throw this.error("expected the cost of container " + shown);
+            }
+            long digits = 0;
+            int decimals = -1; //-1 before the decimal point
+            while((b >= '0' && b <= '9') || (b == '.' && decimals == -1)){
+                if(b == '.'){
+                    this.read();
+                    decimals = 0;
+                    b = this.peek();
+                    if(b < '0' || b > '9'){
+                        throw this.error("expected the decimals of the cost of container " + shown);
+                    }
+                    continue;
+                }
+                if(digits > (MAX_DIGITS - (b - '0')) / 10){
+                    throw this.error("cost of container " + shown + " is too big");
+                }
+                digits = 10 * digits + this.read() - '0';
+                if(decimals >= 0){
+                    decimals++;
+                }
+                b = this.peek();
+            }
+            //both are exact, so the division is the closest double to the cost
+            cost = decimals <= 0 ? digits : digits / POWERS[decimals];
+        }
+        int index = names.index(id, name);
+        if(closed){
+            if(index == -1){
+                throw new InstanceFormatException(atLine, atColumn, "unknown container " + shown);
+            }
+            if(used.get(index)){
+                throw new InstanceFormatException(atLine, atColumn, "container " + shown + " appears twice");
+            }
+            used.set(index);
+            //closed names have their table, where the index is the id
+            if(costs && cost != names.table.cost(index)){
+                throw new InstanceFormatException(atLine, atColumn, "cost of container " + shown + " isn't the one of the problem");
+            }
+        }
+        else{
+            if(index != -1){
+                throw new InstanceFormatException(atLine, atColumn, "container " + shown + " appears twice");
+            }
+            if(names.size() == ContainerTable.MAX_SIZE){
+                throw new InstanceFormatException(atLine, atColumn, "too many containers");
+            }
+            index = names.add(id, name, cost);
+        }
+        return index;
+    }
+
+    /**
+     * @return next byte, without reading it, -1 at the end of the input
+     * @throws IOException if the channel can't be read
+     */
+    private int peek() throws IOException{
+        if(!this.buffer.hasRemaining()){
+            if(this.channel == null){
+                return -1;
+            }
+            this.buffer.clear();
+            int n;
+            do{
+                n = this.channel.read(this.buffer);
+            } while(n == 0);
+            this.buffer.flip();
+            if(n < 0){
+                return -1;
+            }
+        }
+        return this.buffer.get(this.buffer.position()) & 0xFF;
+    }
+
+    /**
+     * Reads one byte of the current line (not a line end)
+     * @return the byte, -1 at the end of the input
+     * @throws IOException if the channel can't be read
+     */
+    private int read() throws IOException{
+        int b = this.peek();
+        if(b != -1){
+            this.buffer.get();
+            this.column++;
+        }
+        return b;
+    }
+
+    /**
+     * Reads one UTF-8 character (the column counts it once)
+     * @return the character
+     * @throws IOException if the channel can't be read
+     * @throws InstanceFormatException if the bytes aren't valid UTF-8 or the character doesn't fit in a char
+     */
+    private char readChar() throws IOException{
+        int b = this.read();
+        if(b < 0x80){
+            return (char) b;
+        }
+        int more;
+        int c;
+        if((b & 0xE0) == 0xC0){
+            more = 1;
+            c = b & 0x1F;
+        }
+        else if((b & 0xF0) == 0xE0){
+            more = 2;
+            c = b & 0x0F;
+        }
+        else{
+            this.column--;
+            throw this.error((b & 0xF8) == 0xF0 ? "ids must be in the basic multilingual plane" : "invalid UTF-8");
+        }
+        for(int i = 0; i < more; i++){
+            int n = this.peek();
+            if((n & 0xC0) != 0x80){
+                this.column--;
+                throw this.error("invalid UTF-8");
+            }
+            this.buffer.get();
+            c = c << 6 | (n & 0x3F);
+        }
+        return (char) c;
+    }
+
+    /**
+     * Reads the end of the current line (\n, \r\n or the end of the input)
+     * @throws IOException if the channel can't be read
+     */
+    private void endOfLine() throws IOException{
+        if(this.peek() == '\r'){
+            this.buffer.get();
+        }
+        if(this.peek() == '\n'){
+            this.buffer.get();
+            this.line++;
+            this.column = 1;
+        }
+    }
+
+    /**
+     * Skips the rest of the current line, and its end
+     * @throws IOException if the channel can't be read
+     */
+    private void skipLine() throws IOException{
+        int b;
+        while((b = this.peek()) != -1 && b != '\n'){
+            this.buffer.get();
+        }
+        this.endOfLine();
+    }
+
+    /**
+     * Skips blank lines (and the spaces before the first container of the next line)
+     * @throws IOException if the channel can't be read
+     */
+    private void skipBlank() throws IOException{
+        while(true){
+            int b = this.peek();
+            if(b == ' ' || b == '\t'){
+                this.read();
+            }
+            else if(b == '\r' || b == '\n'){
+                this.endOfLine();
+            }
+            else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param message what is wrong
+     * @return exception for the current line and column
+     */
+    private InstanceFormatException error(String message){
+        return new InstanceFormatException(this.line, this.column, message);
+    }
+}
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceParserTests {
+
+    /**
+     * @return parser of the instances of input
+     */
+    private static InstanceParser parser(String input){
+        return new InstanceParser(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return cost of the best solution of the instance, on both kinds of layout
+     */
+    private static double cost(Instance instance){
+        double cost = new BestFirst().solution(instance.layouts(false)[0], instance.layouts(false)[1]).getCost();
+        assertEquals(new BestFirst().solution(instance.layouts(true)[0], instance.layouts(true)[1]).getCost(), cost);
+        return cost;
+    }
+
+    @Test
+    void testCosts() throws IOException{
+        InstanceParser p = parser("A12 B3\r\nAB\r\n\r\nA12 B30\nBA\n");
+        Instance instance = p.next();
+        assertEquals(instance.size(), 2);
+        assertEquals(cost(instance), 3);
+        instance = p.next();
+        assertEquals(instance.getLine(), 4);
+        assertEquals(cost(instance), 12);
+        assertNull(p.next());
+        assertEquals(cost(parser("A10B25 C7\nABC").next()), 7);
+    }
+
+    @Test
+    void testNames() throws IOException{
+        Instance instance = parser("(Box1)12 (Box2)30 (C)4\n(Box1)(Box2)C\n").next();
+        assertEquals(instance.size(), 3);
+        assertEquals(cost(instance), 34);
+        assertEquals(instance.layouts(true)[1].toString(), instance.layouts(false)[1].toString());
+        assertTrue(instance.layouts(false)[1].toString().contains("(Box1), (Box2), C"));
+        //names are matched by name, ids that aren't ascii too
+        assertEquals(cost(parser("Ä1 (Ä2)2\n(Ä2)Ä\n").next()), 1);
+    }
+
+    @Test
+    void testErrors(){
+        String[][] bad = {
+                {"A1 B\nAB", "1", "5", "expected the cost of container B"},
+                {"A1 2\nA", "1", "4", "expected a container id"},
+                {"A1 (BC\nA", "1", "7", "expected )"},
+                {"A1 ()1\nA", "1", "4", "empty name"},
+                {"A1 A2\nA", "1", "4", "container A appears twice"},
+                {"A99999999999999999 B1\nAB", "1", "17", "too big"},
+                {"A1. B1\nAB", "1", "4", "expected the decimals of the cost of container A"},
+                {"A1 B1\nAB C", "2", "4", "unknown container C"},
+                {"A1 B1\nAA", "2", "2", "container A appears twice"},
+                {"A1 B1\n\nA", "3", "2", "container B is missing"},
+                {"A1 B1\n", "2", "1", "has no goal"},
+                {"A1 B1\n  \t\n", "3", "1", "has no goal"},
+        };
+        for(String[] b : bad){
+            InstanceFormatException e = assertThrows(InstanceFormatException.class, () -> parser(b[0]).next(), b[0]);
+            assertEquals(e.getLine(), Integer.parseInt(b[1]), b[0]);
+            assertEquals(e.getColumn(), Integer.parseInt(b[2]), b[0]);
+            assertTrue(e.getMessage().contains(b[3]), e.getMessage());
+        }
+        byte[] invalid = {'A', '1', ' ', (byte) 0xC3, '1', '\n', 'A'};
+        InstanceFormatException e = assertThrows(InstanceFormatException.class, () -> new InstanceParser(ByteBuffer.wrap(invalid)).next());
+        assertEquals(e.getColumn(), 4);
+        //the layout constructors use the same parser
+        assertThrows(InstanceFormatException.class, () -> new StacksOfContainers("A1B", false));
+        assertThrows(InstanceFormatException.class, () -> new StacksOfContainers("", true));
+    }
+
+    @Test
+    void testRecovery() throws IOException{
+        InstanceParser p = parser("A1 B\nAB\nA1 B1\nAB C\nA1 B1\nBA\n");
+        assertThrows(InstanceFormatException.class, p::next);
+        InstanceFormatException e = assertThrows(InstanceFormatException.class, p::next);
+        assertEquals(e.getLine(), 4);
+        Instance instance = p.next();
+        assertEquals(instance.getLine(), 5);
+        assertEquals(cost(instance), 1);
+        assertNull(p.next());
+    }
+
+    @Test
+    void testChannel() throws IOException{
+        StringBuilder input = new StringBuilder();
+        for(int i = 0; i < 5000; i++){
+            input.append("(Ä").append(i).append(")").append(i + 10).append(" B1\nB(Ä").append(i).append(")\n");
+        }
+        byte[] bytes = input.toString().getBytes(StandardCharsets.UTF_8);
+        //a channel that gives a few bytes at a time, so characters and costs are split between reads
+        ReadableByteChannel channel = new ReadableByteChannel(){
+            private int position = 0;
+
+            @Override
+            public int read(ByteBuffer dst){
+                if(position == bytes.length){
+                    return -1;
+                }
+                int n = Math.min(Math.min(dst.remaining(), 3), bytes.length - position);
+                dst.put(bytes, position, n);
+                position += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen(){
+                return true;
+            }
+
+            @Override
+            public void close(){
+            }
+        };
+        InstanceParser p = new InstanceParser(channel);
+        int n = 0;
+        Instance instance;
+        while((instance = p.next()) != null){
+            assertEquals(instance.getLine(), 2 * n + 1);
+            assertEquals(instance.size(), 2);
+            n++;
+        }
+        assertEquals(n, 5000);
+        assertEquals(cost(parser(input.substring(0, input.indexOf("\n", input.indexOf("\n") + 1))).next()), 10);
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LineChannel class
+ * Lines of UTF-8 text over a socket, as spoken by SolverServer and SolverClient.
+ * One thread reads while any number of threads write whole lines (a line is never mixed with another).
+ */
+class LineChannel implements Closeable {
+    /** longest line that can be read, in bytes */
+    static final int MAX_LINE = 1 << 20;
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    /**
+     * LineChannel constructor
+     * @param channel connected socket, in blocking mode
+     */
+    LineChannel(SocketChannel channel){
+        this.channel = channel;
+        this.in.flip();
+    }
+
+    /**
+     * Reads a line
+     * @return the line, without its end (\n or \r\n), null at the end of the input
+     * @throws IOException if the socket fails or the line is too long
+     */
+    String readLine() throws IOException{
+        this.line.reset();
+        while(true){
+            while(this.in.hasRemaining()){
+                byte b = this.in.get();
+                if(b == '\n'){
+                    String s = this.line.toString(StandardCharsets.UTF_8);
+                    return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+                }
+                if(this.line.size() == MAX_LINE){
+                    throw new IOException("Line too long");
+                }
+                this.line.write(b);
+            }
+            this.in.clear();
+            int n = this.channel.read(this.in);
+            this.in.flip();
+            if(n == -1){
+                //the last line may have no end
+                return this.line.size() == 0 ? null : this.line.toString(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Writes a line, from any thread
+     * @param s line, without its end
+     * @throws IOException if the socket fails
+     */
+    void send(String s) throws IOException{
+        ByteBuffer out = StandardCharsets.UTF_8.encode(s + "\n");
+        synchronized(this){
+            while(out.hasRemaining()){
+                this.channel.write(out);
+            }
+        }
+    }
+
+    /**
+     * Closes the socket, a thread blocked reading gets the end of the input or an exception
+     * @throws IOException if it can't be closed
+     */
+    @Override
+    public void close() throws IOException{
+        this.channel.close();
+    }
+}
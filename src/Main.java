@@ -1,26 +1,228 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Stack;
 
 public class Main {
     public static void main(String[] args) throws Exception{
-        Scanner sc = new Scanner(System.in);
-        BestFirst s = new BestFirst();
-        Iterator<BestFirst.State> it = s.solve(new StacksOfContainers(sc.nextLine(), false), new StacksOfContainers(sc.nextLine(), true));
-        if(it == null){
+        List<String> options = Arrays.asList(args);
+        //the external search only works on packed layouts
+        boolean packed = options.contains("-packed") || options.contains("-external");
+        boolean bucket = options.contains("-bucket");
+        int threads = options.contains("-threads") ? Integer.parseInt(args[options.indexOf("-threads") + 1]) : 1;
+        if(options.contains("-batch")){
+            batch(args, options, packed, bucket);
+            return;
+        }
+        if(options.contains("-serve")){
+            serve(args, options, packed, bucket);
+            return;
+        }
+        if(options.contains("-client")){
+            client(args, options);
+            return;
+        }
+        Instance instance = new InstanceParser(Channels.newChannel(System.in)).next();
+        if(instance == null){
+            throw new IllegalStateException("No instance in the input");
+        }
+        //the buckets are kept by integer f, reject decimal costs before searching instead of failing in the middle
+        if(bucket && !instance.getContainers().hasIntegerCosts()){
+            throw new IllegalStateException("-bucket needs integer costs");
+        }
+        Solver s;
+        if(threads > 1){
+            ParallelBestFirst p = new ParallelBestFirst(threads);
+            p.setLimits(0, options.contains("-timeout") ? Long.parseLong(args[options.indexOf("-timeout") + 1]) : 0);
+            s = p;
+        }
+        else if(options.contains("-bidir")){
+            s = new BidirectionalBestFirst();
+        }
+        else if(options.contains("-ida")){
+            //optional transposition table size, in entries
+            int i = options.indexOf("-ida");
+            s = i + 1 < args.length && args[i + 1].matches("\\d+") ? new IDAStar(Integer.parseInt(args[i + 1])) : new IDAStar();
+        }
+        else if(options.contains("-sma")){
+            //memory bounded search, with the maximum number of nodes, -timeout ms stops it
+            SMAStar sma = new SMAStar(Integer.parseInt(args[options.indexOf("-sma") + 1]));
+            sma.setTimeLimit(options.contains("-timeout") ? Long.parseLong(args[options.indexOf("-timeout") + 1]) : 0);
+            s = sma;
+        }
+        else if(options.contains("-external")){
+            //abertos and fechados in files, inside the optional directory
+            int i = options.indexOf("-external");
+            s = new ExternalBestFirst(i + 1 < args.length && !args[i + 1].startsWith("-") ? Path.of(args[i + 1]) : Path.of(System.getProperty("java.io.tmpdir")));
+        }
+        else if(options.contains("-anytime")){
+            //optional initial weight, each better solution and its bound go to stderr, -timeout ms stops it
+            int i = options.indexOf("-anytime");
+            AnytimeBestFirst a = i + 1 < args.length && args[i + 1].matches("[\\d.]+") ? new AnytimeBestFirst(Double.parseDouble(args[i + 1]), 0.5) : new AnytimeBestFirst();
+            a.setLimits(0, options.contains("-timeout") ? Long.parseLong(args[options.indexOf("-timeout") + 1]) : 0);
+            a.setListener(new SearchListener(){
+                @Override
+                public void improved(Solution solution, double bound, SearchStatistics statistics){
+                    System.err.printf(Locale.ROOT, "cost %d bound %.3f after %.1f ms%n", (int) solution.getCost(), bound,
+                            (System.nanoTime() - statistics.startNanos) / 1e6);
+                }
+            });
+            s = a;
+        }
+        else{
+            s = bucket ? new BestFirst(BucketOpenList::new) : new BestFirst();
+        }
+        //pattern database heuristic: -pdb [size], added (default) or -pdbmax, files kept in -pdbdir dir
+        int pdb = 0;
+        if(options.contains("-pdb")){
+            int i = options.indexOf("-pdb");
+            pdb = i + 1 < args.length && args[i + 1].matches("\\d+") ? Integer.parseInt(args[i + 1]) : PatternDatabase.MAX_SIZE;
+        }
+        PatternHeuristic.Combine combine = options.contains("-pdbmax") ? PatternHeuristic.Combine.MAX : PatternHeuristic.Combine.ADD;
+        Path pdbDir = options.contains("-pdbdir") ? Path.of(args[options.indexOf("-pdbdir") + 1]) : Path.of(System.getProperty("java.io.tmpdir"), "ialab2-pdb");
+        Ilayout[] layouts = instance.layouts(packed);
+        Ilayout initial = layouts[0];
+        Ilayout goal = layouts[1];
+        if(pdb > 0){
+            if(packed){
+                ((PackedStacksOfContainers) goal).usePatterns(pdb, combine, pdbDir);
+            }
+            else{
+                ((StacksOfContainers) goal).usePatterns(pdb, combine, pdbDir);
+            }
+        }
+        //checkpoints of BestFirst: -checkpoint file [-every ms] saves the search, -resume file goes on from one
+        if(s instanceof BestFirst b){
+            if(options.contains("-checkpoint")){
+                long every = options.contains("-every") ? Long.parseLong(args[options.indexOf("-every") + 1]) : 60_000;
+                b.setCheckpoint(Path.of(args[options.indexOf("-checkpoint") + 1]), every);
+            }
+            b.setLimits(0, options.contains("-timeout") ? Long.parseLong(args[options.indexOf("-timeout") + 1]) : 0);
+            //pruning of moves: -prune [rules], every rule by default, or a comma list of repeat, settled and settling
+            if(options.contains("-prune")){
+                int i = options.indexOf("-prune");
+                EnumSet<Pruning> rules = EnumSet.allOf(Pruning.class);
+                if(i + 1 < args.length && !args[i + 1].startsWith("-")){
+                    rules.clear();
+                    for(String rule : args[i + 1].split(",")){
+                        rules.add(Pruning.valueOf(rule.trim().toUpperCase(Locale.ROOT)));
+                    }
+                }
+                b.setPruning(rules);
+            }
+        }
+        else if(options.contains("-checkpoint") || options.contains("-resume")){
+            throw new IllegalStateException("Checkpoints are only kept by BestFirst");
+        }
+        Solution solution;
+        try{
+            solution = options.contains("-resume") ? ((BestFirst) s).resume(Path.of(args[options.indexOf("-resume") + 1]), initial, goal)
+                    : s.solution(initial, goal);
+        } catch(SearchLimitException e){
+            System.out.println(e.getMessage());
+            return;
+        }
+        if(solution == null){
             System.out.println("no solution found");
         }
         else{
-            while(it.hasNext()){
-                BestFirst.State i = it.next();
-                //System.out.println(i+ "\n");
-                if(!it.hasNext()){
-                    System.out.println(i);
-                    System.out.println((int)i.getG());
+            //the moves of the solution, one per line (-moves)
+            if(options.contains("-moves")){
+                for(Move m : solution){
+                    System.out.println(m.toString(instance.getContainers()));
+                }
+            }
+            System.out.println(solution.getGoal());
+            System.out.println((int) solution.getCost());
+        }
+        //statistics of the solve, as text (-stats) or as a json record (-json)
+        if(options.contains("-stats") || options.contains("-json")){
+            SearchStatistics stats = s.getStatistics();
+            if(stats == null){
+                System.out.println("no statistics for this solver");
+            }
+            else{
+                System.out.println(options.contains("-json") ? stats.toJson() : stats);
+            }
+        }
+    }
+
+    /**
+     * Batch mode: solves every instance of stdin (or of the file after -in) with BatchSolver,
+     * writing one result per line
+     * -batch [threads] (default: number of processors), -timeout ms, -maxstates n,
+     * -unordered (results as they complete), -json (json records)
+     */
+    private static void batch(String[] args, List<String> options, boolean packed, boolean bucket) throws Exception{
+        int i = options.indexOf("-batch");
+        int threads = i + 1 < args.length && args[i + 1].matches("\\d+") ? Integer.parseInt(args[i + 1]) : Runtime.getRuntime().availableProcessors();
+        long timeout = options.contains("-timeout") ? Long.parseLong(args[options.indexOf("-timeout") + 1]) : 0;
+        long maxStates = options.contains("-maxstates") ? Long.parseLong(args[options.indexOf("-maxstates") + 1]) : 0;
+        BatchSolver b = new BatchSolver(threads, packed, bucket);
+        b.setLimits(maxStates, timeout);
+        b.setOrdered(!options.contains("-unordered"));
+        b.setJson(options.contains("-json"));
+        try(ReadableByteChannel in = options.contains("-in") ? FileChannel.open(Path.of(args[options.indexOf("-in") + 1]))
+                : Channels.newChannel(System.in)){
+            b.run(new InstanceParser(in), System.out);
+        }
+    }
+
+    /**
+     * Daemon mode: solves the requests of the clients of a SolverServer until the process is stopped
+     * -serve address (a port on the loopback interface or the path of a Unix-domain socket),
+     * -threads n (default: number of processors), -timeout ms, -maxstates n
+     */
+    private static void serve(String[] args, List<String> options, boolean packed, boolean bucket) throws Exception{
+        int threads = options.contains("-threads") ? Integer.parseInt(args[options.indexOf("-threads") + 1]) : Runtime.getRuntime().availableProcessors();
+        long timeout = options.contains("-timeout") ? Long.parseLong(args[options.indexOf("-timeout") + 1]) : 0;
+        long maxStates = options.contains("-maxstates") ? Long.parseLong(args[options.indexOf("-maxstates") + 1]) : 0;
+        SolverServer server = new SolverServer(threads, packed, bucket);
+        server.setLimits(maxStates, timeout);
+        server.start(SolverServer.address(args[options.indexOf("-serve") + 1]));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.err.println("listening on " + server.getAddress());
+        server.await();
+    }
+
+    /**
+     * Load test of a SolverServer: sends the instances of stdin (or of the file after -in) in turns
+     * and prints the throughput and the p50 and p99 latencies
+     * -client address, -requests n (default: the number of instances), -inflight n (requests waiting
+     * for their responses, default 1)
+     */
+    private static void client(String[] args, List<String> options) throws Exception{
+        List<String[]> instances = new ArrayList<>();
+        try(BufferedReader in = options.contains("-in") ? Files.newBufferedReader(Path.of(args[options.indexOf("-in") + 1]))
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))){
+            //the server reads them, so they are only split into pairs of lines here
+            String initial = null;
+            String line;
+            while((line = in.readLine()) != null){
+                if(line.isBlank()){
+                    continue;
+                }
+                if(initial == null){
+                    initial = line;
+                }
+                else{
+                    instances.add(new String[]{initial, line});
+                    initial = null;
                 }
             }
         }
-        sc.close();
+        int requests = options.contains("-requests") ? Integer.parseInt(args[options.indexOf("-requests") + 1]) : instances.size();
+        int inFlight = options.contains("-inflight") ? Integer.parseInt(args[options.indexOf("-inflight") + 1]) : 1;
+        System.out.println(SolverClient.loadTest(SolverServer.address(args[options.indexOf("-client") + 1]), instances, requests, inFlight));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+/**
+ * Class that describes a move: the container on top of stack from
+ * is placed on top of stack to (or on the ground, in a new stack)
+ * Moves are cheap to create, the child layout is only built by Ilayout.apply
+ */
+public class Move {
+    /** value of to when the container goes to a new stack on the ground */
+    public static final int NEW_STACK = -1;
+
+    public final int from;
+    public final int to;
+    public final int container;
+    public final boolean undo;
+
+    /**
+     * Move constructor
+     * @param from index of the stack the container is taken from
+     * @param to index of the stack the container is placed on, NEW_STACK for the ground
+     * @param container id of the moved container (in the ContainerTable of the problem)
+     * @param undo true if this move takes back the move that created the layout
+     */
+    public Move(int from, int to, int container, boolean undo){
+        this.from = from;
+        this.to = to;
+        this.container = container;
+        this.undo = undo;
+    }
+
+    /**
+     * toString method
+     * @return move in string format, with the id of the container
+     */
+    @Override
+    public String toString(){
+        return "#" + this.container + ": " + this.from + " -> " + (this.to == NEW_STACK ? "ground" : this.to);
+    }
+
+    /**
+     * toString method
+     * @param containers containers of the problem
+     * @return move in string format, with the name of the container
+     */
+    public String toString(ContainerTable containers){
+        return containers.get(this.container) + ": " + this.from + " -> " + (this.to == NEW_STACK ? "ground" : this.to);
+    }
+}
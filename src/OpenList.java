@@ -0,0 +1,53 @@
+import java.util.Collection;
+
+/**
+ * Open list used by BestFirst
+ * Keeps the states waiting to be expanded ordered by f = g + h and knows, in O(1),
+ * if a layout is already waiting, so a cheaper path to it can lower its cost in place.
+ */
+public interface OpenList {
+    /**
+     * Adds a state that isn't in the list yet
+     * @param s state
+     */
+    void add(BestFirst.State s);
+
+    /**
+     * Takes and removes the state with the smallest f
+     * @return state with the smallest f, null if the list is empty
+     */
+    BestFirst.State poll();
+
+    /**
+     * Finds the state waiting with a given layout
+     * @param l layout
+     * @return the state with that layout, null if there is none
+     */
+    BestFirst.State get(Ilayout l);
+
+    /**
+     * Tells the list that the g of a state it holds was lowered
+     * @param s state whose f got smaller
+     */
+    void decreaseKey(BestFirst.State s);
+
+    /**
+     * @return true if there are no states waiting
+     */
+    boolean isEmpty();
+
+    /**
+     * @return number of states waiting
+     */
+    int size();
+
+    /**
+     * @return the states waiting, in no particular order (a view, it must not be changed)
+     */
+    Collection<BestFirst.State> states();
+
+    /**
+     * Removes every state, keeping the memory taken by the list so the next solve can reuse it
+     */
+    void clear();
+}
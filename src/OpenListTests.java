@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenListTests {
+
+    /**
+     * Fills the list with all the grandchildren of a layout
+     * @return states added
+     */
+    private static List<BestFirst.State> fill(OpenList open){
+        StacksOfContainers goal = new StacksOfContainers("ABC DEF", true);
+        BestFirst.State root = new BestFirst.State(new StacksOfContainers("C1B2A2 F4E1D1", false), null, goal);
+        List<BestFirst.State> added = new ArrayList<>();
+        for(Ilayout child : root.getLayout().children()){
+            BestFirst.State s = new BestFirst.State(child, root, goal);
+            for(Ilayout grandChild : child.children()){
+                BestFirst.State gs = new BestFirst.State(grandChild, s, goal);
+                if(open.get(grandChild) == null){
+                    open.add(gs);
+                    added.add(gs);
+                }
+            }
+        }
+        return added;
+    }
+
+    @Test
+    void testPollOrder(){
+        testPollOrder(new BinaryHeapOpenList());
+        testPollOrder(new BucketOpenList());
+        testPollOrder(new BucketOpenList(true, BucketOpenList.Order.LIFO));
+    }
+
+    /**
+     * States must come out by f, and by h when f is the same
+     */
+    private static void testPollOrder(OpenList open){
+        List<BestFirst.State> added = fill(open);
+        assertEquals(open.size(), added.size());
+        double last = -1;
+        BestFirst.State lastState = null;
+        while(!open.isEmpty()){
+            BestFirst.State s = open.poll();
+            double f = s.getG() + s.getH();
+            assertTrue(f >= last);
+            //same f: smaller h first
+            if(f == last){
+                assertTrue(s.getH() >= lastState.getH());
+            }
+            assertNull(open.get(s.getLayout()));
+            last = f;
+            lastState = s;
+        }
+        assertNull(open.poll());
+    }
+
+    @Test
+    void testGet(){
+        for(OpenList open : new OpenList[]{new BinaryHeapOpenList(), new BucketOpenList()}){
+            for(BestFirst.State s : fill(open)){
+                assertSame(open.get(s.getLayout()), s);
+            }
+        }
+    }
+
+    @Test
+    void testAddAfterPoll(){
+        //states taken out are still found in the map of BinaryHeapOpenList until it is purged
+        for(OpenList open : new OpenList[]{new BinaryHeapOpenList(), new BucketOpenList()}){
+            List<BestFirst.State> added = fill(open);
+            BestFirst.State first = open.poll();
+            BestFirst.State second = open.poll();
+            assertEquals(open.states().size(), added.size() - 2);
+            assertFalse(open.states().contains(first));
+            //a state taken out can be added again (reopened)
+            open.add(first);
+            assertSame(open.get(first.getLayout()), first);
+            assertNull(open.get(second.getLayout()));
+            assertEquals(open.states().size(), added.size() - 1);
+            int n = 0;
+            while(open.poll() != null){
+                n++;
+            }
+            assertEquals(n, added.size() - 1);
+            assertTrue(open.states().isEmpty());
+        }
+    }
+
+    @Test
+    void testBucketFifo(){
+        //without preferDeeper, states with the same f come out in the order they were added
+        OpenList open = new BucketOpenList(false, BucketOpenList.Order.FIFO);
+        List<BestFirst.State> added = fill(open);
+        double f = added.stream().mapToDouble(s -> s.getG() + s.getH()).min().getAsDouble();
+        List<BestFirst.State> expected = added.stream().filter(s -> s.getG() + s.getH() == f).toList();
+        for(BestFirst.State s : expected){
+            assertSame(open.poll(), s);
+        }
+    }
+}
@@ -0,0 +1,646 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact alternative to StacksOfContainers
+ * The layout is stored as a single byte array holding the id of every container
+ * (bottom to top) and a separator between stacks. Stacks are always kept sorted by
+ * their bottom container, so two equal layouts always have the same bytes.
+ * Containers themselves live in a ContainerTable shared by every layout of the same problem.
+ * Each cell takes one byte when the problem has at most Byte.MAX_VALUE containers and two (big endian)
+ * otherwise, so small problems keep their layouts as small as before and a layout of 10000 containers
+ * still takes less than 40KB.
+ */
+public class PackedStacksOfContainers implements Ilayout{
+
+    /** marks the end of a stack inside cells */
+    static final int SEPARATOR = -1;
+
+    /** ids have to fit in the cells */
+    public static final int MAX_CONTAINERS = Short.MAX_VALUE;
+
+    private final ContainerTable containers; //shared table
+
+    private final byte[] cells;
+
+    private final byte width; //bytes per cell, 1 or 2
+
+    private final short lastMovedContainer; //id of the container, -1 if none
+
+    private final short lastMovedFrom; //container that was below lastMovedContainer, -1 if it was on the ground
+
+    private final long key; //zobrist key, kept up to date from father to child
+
+    private GoalIndex hIndex; //goal index h was computed for, null if it wasn't computed yet
+    private double h; //h0 value towards the goal of hIndex
+    private GoalIndex goalIndex; //only built for goal layouts, it holds everything else a goal needs
+
+    /**
+     * Constructor for the initial layout (same input format as StacksOfContainers)
+     * @param str linear string defining stacks of containers layout
+     * @throws InstanceFormatException if the string isn't formatted correctly
+     * @throws IllegalStateException if there are too many containers
+     */
+    public PackedStacksOfContainers(String str){
+        this(new InstanceParser.Names(), str);
+    }
+
+    /**
+     * Constructor for the initial layout
+     * @param names containers of the problem, filled while str is read
+     * @param str linear string defining stacks of containers layout
+     */
+    private PackedStacksOfContainers(InstanceParser.Names names, String str){
+        this(InstanceParser.layout(str, names, true, false), names.table());
+    }
+
+    /**
+     * Constructor for the initial layout read by InstanceParser
+     * @param stacks ids of the containers of each stack, bottom to top
+     * @param containers containers of the problem
+     * @throws IllegalStateException if there are too many containers
+     */
+    PackedStacksOfContainers(int[][] stacks, ContainerTable containers){
+        if(containers.size() > MAX_CONTAINERS){
+            throw new IllegalStateException("Too many containers for PackedStacksOfContainers");
+        }
+        this.containers = containers;
+        this.width = width(containers);
+        this.cells = pack(stacks, this.width);
+        this.lastMovedContainer = -1;
+        this.lastMovedFrom = -1;
+        this.key = computeKey(this.cells, this.width);
+    }
+
+    /**
+     * Constructor for the goal layout
+     * Shares the container table of the initial layout, so the goal also knows the real costs
+     * @param str linear string defining the goal layout (ids only)
+     * @param initial initial layout of the same problem
+     * @throws InstanceFormatException if the string isn't formatted correctly, has a container that isn't in initial
+     * or misses one that is
+     */
+    public PackedStacksOfContainers(String str, PackedStacksOfContainers initial){
+        this(new InstanceParser.Names(initial.containers), str, initial);
+    }
+
+    /**
+     * Constructor for the goal layout
+     * @param names containers of initial
+     * @param str linear string defining the goal layout (ids only)
+     * @param initial initial layout of the same problem
+     */
+    private PackedStacksOfContainers(InstanceParser.Names names, String str, PackedStacksOfContainers initial){
+        this(InstanceParser.layout(str, names, false, true), initial);
+    }
+
+    /**
+     * Constructor for the goal layout read by InstanceParser
+     * @param stacks ids of the containers of each stack, bottom to top
+     * @param initial initial layout of the same problem
+     */
+    PackedStacksOfContainers(int[][] stacks, PackedStacksOfContainers initial){
+        this.containers = initial.containers;
+        this.width = initial.width;
+        this.cells = pack(stacks, this.width);
+        this.lastMovedContainer = -1;
+        this.lastMovedFrom = -1;
+        this.key = computeKey(this.cells, this.width);
+    }
+
+    /**
+     * PackedStacksOfContainers constructor
+     * @param containers shared container table
+     * @param cells canonical encoding
+     * @param lastMovedContainer index of last moved container
+     * @param lastMovedFrom index of the container that was below it, -1 for the ground
+     * @param key zobrist key of cells
+     */
+    private PackedStacksOfContainers(ContainerTable containers, byte[] cells, short lastMovedContainer, short lastMovedFrom, long key){
+        this.containers = containers;
+        this.width = width(containers);
+        this.cells = cells;
+        this.lastMovedContainer = lastMovedContainer;
+        this.lastMovedFrom = lastMovedFrom;
+        this.key = key;
+    }
+
+    /**
+     * @param containers containers of the problem
+     * @return bytes per cell of the layouts of the problem
+     */
+    private static byte width(ContainerTable containers){
+        return (byte) (containers.size() > Byte.MAX_VALUE ? 2 : 1);
+    }
+
+    /**
+     * @param cells canonical encoding
+     * @param i index of a cell
+     * @param width bytes per cell
+     * @return id in the cell, SEPARATOR between stacks
+     */
+    private static int get(byte[] cells, int i, int width){
+        return width == 1 ? cells[i] : (short) (cells[2 * i] << 8 | cells[2 * i + 1] & 0xFF);
+    }
+
+    /**
+     * @param cells canonical encoding, changed
+     * @param i index of a cell
+     * @param id id (or SEPARATOR) to put in the cell
+     * @param width bytes per cell
+     */
+    private static void set(byte[] cells, int i, int id, int width){
+        if(width == 1){
+            cells[i] = (byte) id;
+        }
+        else{
+            cells[2 * i] = (byte) (id >> 8);
+            cells[2 * i + 1] = (byte) id;
+        }
+    }
+
+    /**
+     * @param i index of a cell
+     * @return id in the cell of this layout, SEPARATOR between stacks
+     */
+    private int cell(int i){
+        return get(this.cells, i, this.width);
+    }
+
+    /**
+     * @return number of cells of this layout
+     */
+    private int length(){
+        return this.cells.length / this.width;
+    }
+
+    /**
+     * Computes the zobrist key from scratch
+     * @param cells canonical encoding
+     * @param width bytes per cell
+     * @return xor of the positions of all the containers
+     */
+    private static long computeKey(byte[] cells, int width){
+        long result = 0;
+        int start = 0;
+        for(int i = 0; i < cells.length / width; i++){
+            int c = get(cells, i, width);
+            if(c == SEPARATOR){
+                start = i + 1;
+            }
+            else{
+                result ^= Zobrist.position(c, get(cells, start, width), i - start);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return canonical encoding of the layout, shared (it must not be changed)
+     */
+    byte[] cells(){
+        return this.cells;
+    }
+
+    /**
+     * Builds a layout of the same problem from its canonical encoding (as given by cells())
+     * It has no last move, like an initial layout, so getG can only be used on its children
+     * @param cells canonical encoding, kept by the layout
+     * @return layout with those cells
+     */
+    PackedStacksOfContainers withCells(byte[] cells){
+        return new PackedStacksOfContainers(this.containers, cells, (short) -1, (short) -1, computeKey(cells, this.width));
+    }
+
+    /**
+     * @return the same layout with no last move, like an initial layout (the cells are shared)
+     */
+    PackedStacksOfContainers withoutLastMove(){
+        return new PackedStacksOfContainers(this.containers, this.cells, (short) -1, (short) -1, this.key);
+    }
+
+    /**
+     * @return length in bytes of the longest encoding of the problem (every container on the ground)
+     */
+    int maxCellBytes(){
+        return this.width * (2 * this.containers.size() - 1);
+    }
+
+    /**
+     * @return table of the containers of the problem, shared by its layouts
+     */
+    public ContainerTable getContainers(){
+        return this.containers;
+    }
+
+    /**
+     * @return number of containers of the problem
+     */
+    int size(){
+        return this.containers.size();
+    }
+
+    /**
+     * Turns the stacks given in the input into the canonical encoding
+     * @param stacks ids of the containers of each stack, bottom to top
+     * @param width bytes per cell
+     * @return canonical encoding
+     */
+    private static byte[] pack(int[][] stacks, int width){
+        int[][] sorted = stacks.clone();
+        Arrays.sort(sorted, (s1, s2) -> Integer.compare(s1[0], s2[0]));
+        int length = stacks.length - 1;
+        for(int[] s : stacks){
+            length += s.length;
+        }
+        byte[] cells = new byte[length * width];
+        int p = 0;
+        for(int s = 0; s < sorted.length; s++){
+            if(s > 0){
+                set(cells, p++, SEPARATOR, width);
+            }
+            for(int c : sorted[s]){
+                set(cells, p++, c, width);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Finds where every stack starts inside cells
+     * @return start of every stack plus one extra entry with the number of cells + 1,
+     * so stack s is in [starts[s], starts[s+1]-1[
+     */
+    private int[] starts(){
+        int n = this.length();
+        int k = 1;
+        for(int i = 0; i < n; i++){
+            if(this.cell(i) == SEPARATOR){
+                k++;
+            }
+        }
+        int[] starts = new int[k + 1];
+        int s = 1;
+        for(int i = 0; i < n; i++){
+            if(this.cell(i) == SEPARATOR){
+                starts[s++] = i + 1;
+            }
+        }
+        starts[k] = n + 1;
+        return starts;
+    }
+
+    /**
+     * Builds the layout we get by moving the top container of one stack to another stack
+     * @param m move created by moves()
+     * @return child layout (already canonical)
+     */
+    @Override
+    public PackedStacksOfContainers apply(Move m){
+        int[] starts = this.starts();
+        int from = m.from;
+        int to = m.to;
+        int k = starts.length - 1;
+        int w = this.width;
+        int c = this.cell(starts[from + 1] - 2);
+        boolean emptied = starts[from + 1] - starts[from] == 2;
+        byte[] child = new byte[this.cells.length + w * ((to == Move.NEW_STACK ? 1 : 0) - (emptied ? 1 : 0))];
+        int p = 0;
+        boolean placed = to != Move.NEW_STACK;
+        for(int s = 0; s < k; s++){
+            int start = starts[s];
+            int end = starts[s + 1] - 1;
+            //a new stack goes before the first stack with a bigger bottom container
+            if(!placed && this.cell(start) > c){
+                if(p > 0){
+                    set(child, p++, SEPARATOR, w);
+                }
+                set(child, p++, c, w);
+                placed = true;
+            }
+            if(s == from){
+                end--;
+                if(emptied){
+                    continue;
+                }
+            }
+            if(p > 0){
+                set(child, p++, SEPARATOR, w);
+            }
+            System.arraycopy(this.cells, start * w, child, p * w, (end - start) * w);
+            p += end - start;
+            if(s == to){
+                set(child, p++, c, w);
+            }
+        }
+        if(!placed){
+            set(child, p++, SEPARATOR, w);
+            set(child, p, c, w);
+        }
+        long childKey;
+        if(to == Move.NEW_STACK){
+            childKey = Zobrist.move(this.key, c, this.cell(starts[from]), starts[from + 1] - 2 - starts[from], c, 0);
+        }
+        else{
+            childKey = Zobrist.move(this.key, c, this.cell(starts[from]), starts[from + 1] - 2 - starts[from],
+                    this.cell(starts[to]), starts[to + 1] - 1 - starts[to]);
+        }
+        PackedStacksOfContainers result = new PackedStacksOfContainers(this.containers, child, (short) c,
+                (short) (emptied ? -1 : this.cell(starts[from + 1] - 3)), childKey);
+        //only the source and destination stacks changed, so only those are scored again
+        if(this.hIndex != null){
+            int fromEnd = starts[from + 1] - 1;
+            double h = this.h - this.score(starts[from], fromEnd, -1, this.hIndex);
+            if(!emptied){
+                h += this.score(starts[from], fromEnd - 1, -1, this.hIndex);
+            }
+            if(to == Move.NEW_STACK){
+                h += this.score(0, 0, c, this.hIndex);
+            }
+            else{
+                h += this.score(starts[to], starts[to + 1] - 1, c, this.hIndex) - this.score(starts[to], starts[to + 1] - 1, -1, this.hIndex);
+            }
+            result.h = h;
+            result.hIndex = this.hIndex;
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the successors of the current layout, in the same order as StacksOfContainers
+     * and also without the one that takes the last moved container back
+     * @return children of current layout
+     */
+    @Override
+    public List<Ilayout> children(){
+        List<Ilayout> children = new ArrayList<>();
+        for(Move m : this.moves()){
+            if(!m.undo){
+                children.add(this.apply(m));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Lists all the moves of 1 container, in the same order as StacksOfContainers
+     * @return moves of current layout
+     */
+    @Override
+    public List<Move> moves(){
+        int[] starts = this.starts();
+        int k = starts.length - 1;
+        List<Move> moves = new ArrayList<>();
+        for(int i = 0; i < k; i++){
+            int c = this.cell(starts[i + 1] - 2);
+            boolean last = c == this.lastMovedContainer;
+            for(int j = 0; j < k; j++){
+                if(j != i){
+                    moves.add(new Move(i, j, c, last && this.cell(starts[j + 1] - 2) == this.lastMovedFrom));
+                }
+            }
+            if(starts[i + 1] - starts[i] > 2){
+                moves.add(new Move(i, Move.NEW_STACK, c, last && this.lastMovedFrom == -1));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Verifies current layout has reached goal or not
+     * @param l goal layout
+     * @return true if we have reached it, false if not
+     */
+    @Override
+    public boolean isGoal(Ilayout l){
+        return this.equals(l);
+    }
+
+    /**
+     * Getter of cost
+     * @return cost of last operation done in order to get to the current layout
+     */
+    @Override
+    public double getG(){
+        return this.containers.cost(this.lastMovedContainer);
+    }
+
+    /**
+     * heuristics() uses the same h0 heuristic as StacksOfContainers
+     * The value is computed once per goal, children of a layout that already has it
+     * get theirs updated by apply()
+     * @param l goal (objective)
+     * @return heuristic value of current layout of containers
+     */
+    @Override
+    public double heuristics(Ilayout l){
+        PackedStacksOfContainers goal = (PackedStacksOfContainers) l;
+        GoalIndex index = goal.goalIndex();
+        if(this.hIndex != index){
+            this.h = this.h0(index);
+            this.hIndex = index;
+        }
+        PatternHeuristic patterns = index.getPatterns();
+        if(patterns != null){
+            return Math.max(this.h, patterns.value(this.cells, this.width, SEPARATOR));
+        }
+        return this.h;
+    }
+
+    /**
+     * Makes the layouts that use this one as goal also use a pattern database heuristic,
+     * see StacksOfContainers.usePatterns
+     * @param size maximum number of containers of a pattern (at most PatternDatabase.MAX_SIZE)
+     * @param combine how the values of the patterns are combined
+     * @param dir directory of the database files, null to keep them in memory only
+     * @throws IOException if a database file can't be read or written
+     */
+    public void usePatterns(int size, PatternHeuristic.Combine combine, Path dir) throws IOException{
+        int[][] stacks = this.stacks();
+        int[][] costs = new int[stacks.length][];
+        for(int s = 0; s < stacks.length; s++){
+            costs[s] = new int[stacks[s].length];
+            for(int i = 0; i < stacks[s].length; i++){
+                costs[s][i] = PatternHeuristic.cost(this.containers.cost(stacks[s][i]));
+            }
+        }
+        this.goalIndex().setPatterns(new PatternHeuristic(stacks, costs, size, combine, dir));
+    }
+
+    /**
+     * Flags of the moves of this layout for the pruning of BestFirst (see Pruning)
+     * @param moves moves of this layout, as given by moves()
+     * @param l goal (objective)
+     * @return Pruning flags of every move
+     */
+    @Override
+    public byte[] classify(List<Move> moves, Ilayout l){
+        PackedStacksOfContainers goal = (PackedStacksOfContainers) l;
+        return Pruning.classify(moves, this.stacks(), this.lastMovedContainer, goal.goalIndex());
+    }
+
+    /**
+     * @return indexes of the containers of each stack, bottom to top
+     */
+    private int[][] stacks(){
+        int[] starts = this.starts();
+        int[][] stacks = new int[starts.length - 1][];
+        for(int s = 0; s < stacks.length; s++){
+            stacks[s] = new int[starts[s + 1] - 1 - starts[s]];
+            for(int i = 0; i < stacks[s].length; i++){
+                stacks[s][i] = this.cell(starts[s] + i);
+            }
+        }
+        return stacks;
+    }
+
+    /**
+     * Getter of the goal index of this layout (built the first time it is needed)
+     * @return goal index of this layout when used as goal
+     */
+    private GoalIndex goalIndex(){
+        if(this.goalIndex == null){
+            this.goalIndex = new GoalIndex(this.stacks());
+        }
+        return this.goalIndex;
+    }
+
+    /**
+     * h0 heuristic function, see StacksOfContainers.h0
+     * @param index goal index of the objective
+     * @return heuristic h0 value
+     */
+    private double h0(GoalIndex index){
+        double result = 0;
+        int[] starts = this.starts();
+        for(int s = 0; s < starts.length - 1; s++){
+            result += this.score(starts[s], starts[s + 1] - 1, -1, index);
+        }
+        return result;
+    }
+
+    /**
+     * Contribution of one stack to h0
+     * @param start index of the bottom container of the stack in cells
+     * @param end index after the top container of the stack in cells
+     * @param top container placed on top of that stack, -1 for none
+     * @param index goal index of the objective
+     * @return heuristic value of the stack
+     */
+    private double score(int start, int end, int top, GoalIndex index){
+        int size = end - start + (top == -1 ? 0 : 1);
+        int[] ids = new int[size];
+        double[] costs = new double[size];
+        for(int i = 0; i < size; i++){
+            ids[i] = i < end - start ? this.cell(start + i) : top;
+            costs[i] = this.containers.cost(ids[i]);
+        }
+        return index.score(ids, costs, size);
+    }
+
+    /**
+     * Writes the layout in binary form: length of cells, cells, last moved container and the one that was below it
+     * @param out where the layout is written
+     * @throws IOException if out can't be written
+     */
+    @Override
+    public void write(DataOutput out) throws IOException{
+        out.writeInt(this.cells.length);
+        out.write(this.cells);
+        out.writeShort(this.lastMovedContainer);
+        out.writeShort(this.lastMovedFrom);
+    }
+
+    /**
+     * Reads a layout of the same problem written by write, sharing the container table of this layout
+     * @param in where the layout is read from
+     * @return the layout read
+     * @throws IOException if in can't be read
+     * @throws IllegalStateException if the data isn't a layout with the containers of this problem
+     */
+    @Override
+    public PackedStacksOfContainers read(DataInput in) throws IOException{
+        int length = in.readInt();
+        if(length < 0 || length > this.maxCellBytes() || length % this.width != 0){
+            throw new IllegalStateException("Invalid layout data");
+        }
+        byte[] cells = new byte[length];
+        in.readFully(cells);
+        short last = in.readShort();
+        short from = in.readShort();
+        int n = 0;
+        for(int i = 0; i < length / this.width; i++){
+            int c = get(cells, i, this.width);
+            if(c != SEPARATOR){
+                if(c < 0 || c >= this.containers.size()){
+                    throw new IllegalStateException("Unknown container " + c + " in layout data");
+                }
+                n++;
+            }
+        }
+        if(n != this.containers.size() || last < -1 || last >= this.containers.size() || from < -1 || from >= this.containers.size()){
+            throw new IllegalStateException("Invalid layout data");
+        }
+        return new PackedStacksOfContainers(this.containers, cells, last, from, computeKey(cells, this.width));
+    }
+
+    /**
+     * Getter of key
+     * @return zobrist key of the layout
+     */
+    @Override
+    public long key(){
+        return this.key;
+    }
+
+    /**
+     * equals method
+     * Keys are compared first, the encodings are only compared when they match
+     * @param o another object to compare with this object
+     * @return true if they have the same encoding, false if not
+     */
+    @Override
+    public boolean equals(Object o){
+        if(o == null || this.getClass() != o.getClass()){
+            return false;
+        }
+        PackedStacksOfContainers that = (PackedStacksOfContainers) o;
+        return this.key == that.key && Arrays.equals(this.cells, that.cells);
+    }
+
+    /**
+     * hashCode method
+     * @return hashCode of the zobrist key
+     */
+    @Override
+    public int hashCode(){
+        return Long.hashCode(this.key);
+    }
+
+    /**
+     * toString method
+     * @return layout in the same string format as StacksOfContainers
+     */
+    @Override
+    public String toString(){
+        StringBuilder str = new StringBuilder("[");
+        for(int i = 0; i < this.length(); i++){
+            if(this.cell(i) == SEPARATOR){
+                str.append("]\r\n[");
+            }
+            else{
+                if(i > 0 && this.cell(i - 1) != SEPARATOR){
+                    str.append(", ");
+                }
+                str.append(this.containers.get(this.cell(i)));
+            }
+        }
+        str.append("]\r\n");
+        return str.toString();
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedStacksOfContainersTests {
+
+    @Test
+    void testConstructor0(){
+        String str = "J2K4L9M0 D1F4 G5 A1B2C3";
+        PackedStacksOfContainers soc = new PackedStacksOfContainers(str);
+        assertEquals(soc.toString(), "[A, B, C]\r\n[D, F]\r\n[G]\r\n[J, K, L, M]\r\n");
+    }
+
+    @Test
+    void testConstructor1(){
+        String str = "X2Y2 A1B1C1D1E1F1 Z2";
+        String strGoal = "XY ABCDEF Z";
+        PackedStacksOfContainers soc = new PackedStacksOfContainers(str);
+        PackedStacksOfContainers socGoal = new PackedStacksOfContainers(strGoal, soc);
+        assertTrue(soc.isGoal(socGoal));
+        assertEquals(soc.hashCode(), socGoal.hashCode());
+    }
+
+    @Test
+    void testConstructorInvalid(){
+        assertThrows(IllegalStateException.class, () -> new PackedStacksOfContainers(""));
+        assertThrows(IllegalStateException.class, () -> new PackedStacksOfContainers("A1B"));
+        PackedStacksOfContainers soc = new PackedStacksOfContainers("A1B2 C3");
+        assertThrows(IllegalStateException.class, () -> new PackedStacksOfContainers("AB D", soc));
+        assertThrows(IllegalStateException.class, () -> new PackedStacksOfContainers("AB", soc));
+    }
+
+    @Test
+    void children(){
+        String str = "A1B2 C3";
+        PackedStacksOfContainers soc = new PackedStacksOfContainers(str);
+        List<Ilayout> children = soc.children();
+        assertEquals(children.size(), 3);
+        assertEquals(children.get(0).toString(), "[A]\r\n[C, B]\r\n");
+        assertEquals(children.get(1).toString(), "[A]\r\n[B]\r\n[C]\r\n");
+        assertEquals(children.get(2).toString(), "[A, B, C]\r\n");
+        assertEquals(children.get(0).getG(), 2);
+        assertEquals(children.get(2).getG(), 3);
+    }
+
+    @Test
+    void childrenMatchStacksOfContainers(){
+        String str = "G1H2I3 J1K4 L5 M2N4O9P0";
+        List<Ilayout> packed = new PackedStacksOfContainers(str).children();
+        List<Ilayout> objects = new StacksOfContainers(str, false).children();
+        assertEquals(packed.size(), objects.size());
+        for(int i = 0; i < packed.size(); i++){
+            assertEquals(packed.get(i).toString(), objects.get(i).toString());
+            assertEquals(packed.get(i).getG(), objects.get(i).getG());
+        }
+    }
+
+    @Test
+    void testHeuristics(){
+        String goalStr = "ABC DEF";
+        String[] strs = {"C1B2A2 F4E1D1", "A2F4E1 D1C1B2", "B2D1F4 E1A2C1", "A2C1E1 D1F4B2", "A2E1F4 D1B2C1", "A2 B2 C1 D1 E1 F4"};
+        int[] expected = {11, 8, 16, 13, 13, 8};
+        for(int i = 0; i < strs.length; i++){
+            PackedStacksOfContainers state = new PackedStacksOfContainers(strs[i]);
+            PackedStacksOfContainers goal = new PackedStacksOfContainers(goalStr, state);
+            assertEquals(state.heuristics(goal), expected[i]);
+        }
+    }
+
+    @Test
+    void incrementalHeuristicsMatchFromScratch(){
+        //n12 of the benchmark corpus, every state reached by a breadth first search from it, in both layouts
+        String str = "B2J8D2 I2 A9G4K8 L9 F3 C6 H6 E5";
+        String goalStr = "G E J H K B F L C D I A";
+        PackedStacksOfContainers packed = new PackedStacksOfContainers(str);
+        StacksOfContainers objects = new StacksOfContainers(str, false);
+        PackedStacksOfContainers packedGoal = new PackedStacksOfContainers(goalStr, packed);
+        StacksOfContainers objectsGoal = new StacksOfContainers(goalStr, objects);
+        for(Ilayout[] problem : new Ilayout[][]{{packed, packedGoal}, {objects, objectsGoal}}){
+            Ilayout goal = problem[1];
+            ArrayDeque<Ilayout> queue = new ArrayDeque<>(List.of(problem[0]));
+            Set<Ilayout> seen = new HashSet<>(queue);
+            //h of the father is known before its children are made, so they update it
+            problem[0].heuristics(goal);
+            while(!queue.isEmpty() && seen.size() < 5000){
+                Ilayout l = queue.poll();
+                for(Move m : l.moves()){
+                    Ilayout child = l.apply(m);
+                    Ilayout fromScratch = problem[0] == packed ? new PackedStacksOfContainers(layout(child), packed)
+                            : new StacksOfContainers(layout(child), objects);
+                    assertEquals(child.heuristics(goal), fromScratch.heuristics(goal));
+                    if(seen.add(child)){
+                        queue.add(child);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param l layout whose containers have one letter names
+     * @return l in the format of goal layouts, stacks separated by spaces
+     */
+    private static String layout(Ilayout l){
+        return l.toString().replaceAll("[\\[\\], ]", "").trim().replace("\r\n", " ");
+    }
+
+    @Test
+    void testLargeInstance(){
+        //more containers than fit in a byte, with names and real costs
+        StringBuilder initial = new StringBuilder("(c0)1.5(c1)2.25");
+        StringBuilder goal = new StringBuilder("(c1)(c0)");
+        for(int i = 2; i < 300; i++){
+            initial.append(" (c").append(i).append(")").append(i % 7 + 0.5);
+            goal.append(" (c").append(i).append(")");
+        }
+        PackedStacksOfContainers s = new PackedStacksOfContainers(initial.toString());
+        PackedStacksOfContainers g = new PackedStacksOfContainers(goal.toString(), s);
+        assertEquals(s.getContainers().size(), 300);
+        assertFalse(s.getContainers().hasIntegerCosts());
+        //ids follow the names, so stacks are sorted by name
+        assertTrue(s.toString().startsWith("[(c0), (c1)]\r\n[(c10)]"));
+        assertEquals(new BestFirst().solution(s, g).getCost(), 3.75);
+        assertThrows(IllegalStateException.class, () -> new ExternalBestFirst(Path.of(System.getProperty("java.io.tmpdir"))).solve(s, g));
+    }
+}
@@ -0,0 +1,352 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParallelBestFirst class
+ * Hash distributed A* (HDA*): every layout is owned by one worker thread, chosen by its key.
+ * Each worker keeps its own open list and its own map of seen states and only expands the states it owns.
+ * Children owned by another worker are sent to it through a lock free queue.
+ * The search ends when no worker has a state with f below the best solution found and
+ * no message is on its way, so the solution is optimal, like the one of BestFirst.
+ * A worker with nothing to do parks until a message is sent to it or the search ends.
+ * If a worker fails, or a limit is reached, every worker stops and solve throws the failure
+ * (a SearchLimitException for a limit). The statistics add up the ones of the workers: peak abertos and
+ * peak fechados are the sums of the peaks of the workers, and the time of each phase isn't measured.
+ */
+public class ParallelBestFirst implements Solver {
+    private final int threads;
+
+    private Ilayout objective;
+    private Worker[] workers;
+    //messages on their way plus busy workers, the search is over when it gets to 0
+    private AtomicInteger work;
+    private volatile BestFirst.State best;
+    private volatile double bestCost;
+    private long maxStates = Long.MAX_VALUE;
+    private long timeLimit = Long.MAX_VALUE; //nanos
+    private AtomicLong states; //states kept by all the workers
+    //first failure of a worker, or SearchLimitException of the limit reached
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private SearchStatistics statistics;
+    private long[] expandedPerWorker;
+
+    /**
+     * ParallelBestFirst constructor
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads isn't positive
+     */
+    public ParallelBestFirst(int threads){
+        if(threads < 1){
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the limits of the next solves (see BestFirst.setLimits)
+     * The limit of states is checked on every state a worker keeps, the time on every expansion.
+     * @param maxStates maximum number of states kept by all the workers, 0 for no limit
+     * @param timeoutMillis maximum duration of a solve, in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public void setLimits(long maxStates, long timeoutMillis){
+        if(maxStates < 0 || timeoutMillis < 0){
+            throw new IllegalArgumentException("Invalid limits: " + maxStates + " states, " + timeoutMillis + " ms");
+        }
+        this.maxStates = maxStates == 0 ? Long.MAX_VALUE : maxStates;
+        this.timeLimit = timeoutMillis == 0 ? Long.MAX_VALUE : timeoutMillis * 1_000_000;
+    }
+
+    /**
+     * @return statistics of the last solve, null before the first one
+     */
+    @Override
+    public SearchStatistics getStatistics(){
+        return this.statistics;
+    }
+
+    /**
+     * Load balance of the last solve: with enough cores, the search can't take less time than the
+     * expansions of its busiest worker
+     * @return states expanded by each worker in the last solve, null before the first one
+     */
+    public long[] getExpandedPerWorker(){
+        return this.expandedPerWorker == null ? null : this.expandedPerWorker.clone();
+    }
+
+    /**
+     * Worker class
+     * Owns part of the states: an inbox for the states sent by the others,
+     * an open list and the best state found for every layout it owns
+     */
+    private class Worker extends Thread {
+        private final ConcurrentLinkedQueue<BestFirst.State> inbox = new ConcurrentLinkedQueue<>();
+        private final OpenList abertos = new BinaryHeapOpenList();
+        private final HashMap<Ilayout, BestFirst.State> vistos = new HashMap<>();
+        private final SearchStatistics statistics = new SearchStatistics();
+        private boolean busy = false;
+
+        /**
+         * Takes messages first, then expands its best state, until the search is over
+         * or stopped; a failure stops every worker and is thrown by solve
+         */
+        @Override
+        public void run(){
+            try{
+                this.search();
+            } catch(Throwable t){
+                halt(t);
+            }
+        }
+
+        /**
+         * Takes messages first, then expands its best state, until the search is over
+         */
+        private void search(){
+            while(!this.isInterrupted()){
+                BestFirst.State message = this.inbox.poll();
+                if(message != null){
+                    //becomes busy before the message stops being counted, so work never hits 0 too soon
+                    if(!this.busy){
+                        this.busy = true;
+                        work.incrementAndGet();
+                    }
+                    this.receive(message);
+                    this.idle();
+                    continue;
+                }
+                BestFirst.State actual = this.abertos.poll();
+                if(actual != null){
+                    if(System.nanoTime() - statistics.startNanos > timeLimit){
+                        halt(new SearchLimitException(SearchLimitException.Limit.TIME, null));
+                        return;
+                    }
+                    //states with f not below the best solution can't lead to a better one
+                    if(actual.getG() + actual.getH() < bestCost){
+                        this.expand(actual);
+                    }
+                    continue;
+                }
+                if(this.busy){
+                    this.busy = false;
+                    this.idle();
+                }
+                if(work.get() == 0){
+                    return;
+                }
+                //a message or the end of the search unparks it, an unpark that came first isn't lost
+                LockSupport.park(this);
+            }
+        }
+
+        /**
+         * Takes one unit out of work, waking every worker if the search is over
+         */
+        private void idle(){
+            if(work.decrementAndGet() == 0){
+                for(Worker w : workers){
+                    LockSupport.unpark(w);
+                }
+            }
+        }
+
+        /**
+         * Keeps a state if it's the first or the cheapest path found to its layout
+         * (closed states reached by a cheaper path are opened again)
+         * @param s state owned by this worker
+         */
+        private void receive(BestFirst.State s){
+            if(s.getG() + s.getH() >= bestCost){
+                return;
+            }
+            BestFirst.State old = this.vistos.get(s.getLayout());
+            if(old == null){
+                if(states.incrementAndGet() > maxStates){
+                    halt(new SearchLimitException(SearchLimitException.Limit.STATES, null));
+                    return;
+                }
+                this.vistos.put(s.getLayout(), s);
+                this.abertos.add(s);
+                this.statistics.sizes(this.abertos.size(), this.vistos.size());
+            }
+            else if(s.getG() >= old.getG()){
+                this.statistics.duplicates++;
+            }
+            else{
+                this.statistics.reopened++;
+                old.takePath(s);
+                if(this.abertos.get(old.getLayout()) != null){
+                    this.abertos.decreaseKey(old);
+                }
+                else{
+                    this.abertos.add(old);
+                }
+            }
+        }
+
+        /**
+         * Expands a state, sending every child to its owner
+         * @param actual state taken from the open list
+         */
+        private void expand(BestFirst.State actual){
+            if(actual.getLayout().isGoal(objective)){
+                offer(actual);
+                return;
+            }
+            this.statistics.expanded++;
+            if(this.statistics.expanded % SearchStatistics.HEAP_SAMPLE == 0){
+                this.statistics.sampleHeap();
+            }
+            for(Move m : actual.getLayout().moves()){
+                if(m.undo){
+                    continue;
+                }
+                BestFirst.State suc = new BestFirst.State(actual.getLayout().apply(m), actual, m, objective);
+                this.statistics.generated++;
+                Worker owner = owner(suc.getLayout());
+                if(owner == this){
+                    this.receive(suc);
+                }
+                else if(suc.getG() + suc.getH() < bestCost){
+                    work.incrementAndGet();
+                    owner.inbox.add(suc);
+                    LockSupport.unpark(owner);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the worker that owns a layout
+     * @param l layout
+     * @return owner of l
+     */
+    private Worker owner(Ilayout l){
+        return this.workers[(int) Long.remainderUnsigned(l.key(), this.threads)];
+    }
+
+    /**
+     * Stops every worker, keeping the first reason
+     * @param reason failure of a worker, or SearchLimitException of the limit reached
+     */
+    private void halt(Throwable reason){
+        this.failure.compareAndSet(null, reason);
+        for(Worker w : this.workers){
+            w.interrupt();
+        }
+    }
+
+    /**
+     * Keeps a goal state if it's cheaper than the best one found until now
+     * @param s goal state
+     */
+    private synchronized void offer(BestFirst.State s){
+        if(s.getG() < this.bestCost){
+            this.best = s;
+            this.bestCost = s.getG();
+        }
+    }
+
+    /**
+     * Method that solves the board
+     * @param s initial board layout
+     * @param goal board layout
+     * @return iterator with all the steps taken to reach the goal in it, null if there is no solution
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
+     * @throws RuntimeException or Error thrown by a worker (e.g. OutOfMemoryError)
+     */
+    @Override
+    public Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal){
+        this.objective = goal;
+        this.best = null;
+        this.bestCost = Double.POSITIVE_INFINITY;
+        this.failure.set(null);
+        this.states = new AtomicLong();
+        this.statistics = new SearchStatistics();
+        this.statistics.startNanos = System.nanoTime();
+        this.workers = new Worker[this.threads];
+        for(int i = 0; i < this.threads; i++){
+            this.workers[i] = new Worker();
+            this.workers[i].statistics.startNanos = this.statistics.startNanos;
+        }
+        //the initial state is the first message, it keeps work above 0 until someone takes it
+        BestFirst.State root = new BestFirst.State(s, null, goal);
+        this.statistics.rootH = root.getH();
+        this.work = new AtomicInteger(1);
+        this.owner(s).inbox.add(root);
+        for(Worker w : this.workers){
+            w.start();
+        }
+        boolean interrupted = false;
+        for(Worker w : this.workers){
+            try{
+                w.join();
+            } catch(InterruptedException e){
+                //stops the workers and still waits for them, so none is left running
+                if(!interrupted){
+                    interrupted = true;
+                    this.halt(new SearchLimitException(SearchLimitException.Limit.INTERRUPTED, null));
+                }
+                while(w.isAlive()){
+                    try{
+                        w.join();
+                    } catch(InterruptedException again){
+                        //already stopping
+                    }
+                }
+            }
+        }
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+        this.finish();
+        Throwable t = this.failure.get();
+        if(t instanceof SearchLimitException e){
+            throw new SearchLimitException(e.getLimit(), this.statistics);
+        }
+        if(t instanceof RuntimeException e){
+            throw e;
+        }
+        if(t instanceof Error e){
+            throw e;
+        }
+        if(t != null){
+            throw new IllegalStateException(t);
+        }
+        return this.best == null ? null : this.best.path();
+    }
+
+    /**
+     * Adds up the statistics of the workers
+     */
+    private void finish(){
+        this.expandedPerWorker = new long[this.threads];
+        for(int i = 0; i < this.threads; i++){
+            SearchStatistics w = this.workers[i].statistics;
+            this.expandedPerWorker[i] = w.expanded;
+            this.statistics.generated += w.generated;
+            this.statistics.expanded += w.expanded;
+            this.statistics.duplicates += w.duplicates;
+            this.statistics.reopened += w.reopened;
+            this.statistics.peakOpen += w.peakOpen;
+            this.statistics.peakClosed += w.peakClosed;
+            this.statistics.peakHeap = Math.max(this.statistics.peakHeap, w.peakHeap);
+        }
+        this.statistics.sampleHeap();
+        if(this.best != null){
+            this.statistics.cost = this.best.getG();
+            int depth = 0;
+            for(BestFirst.State f = this.best.getFather(); f != null; f = f.getFather()){
+                depth++;
+            }
+            this.statistics.depth = depth;
+        }
+        this.statistics.totalNanos = System.nanoTime() - this.statistics.startNanos;
+        this.workers = null;
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Pattern database of one pattern (a subset of at most 8 containers)
+ * The abstract problem only sees the containers of the pattern: a layout becomes, for each
+ * of them, the pattern container directly below it (or the ground, when no pattern container is).
+ * That is the abstract key, 4 bits per container (0 for the ground, j + 1 for container j).
+ * Moving a pattern container costs its real cost and moving any other container is free,
+ * so the exact abstract cost to the goal never overestimates the real one, and the
+ * abstract costs of disjoint patterns can be added.
+ * Every abstract cost is found by a single Dijkstra search backwards from the abstract goal
+ * (moves are reversible and moving a container back costs the same) and kept as a table of
+ * sorted keys and their costs, which can be saved to a file and memory mapped later.
+ * The table only depends on the costs of the pattern containers and on their goal layout,
+ * so a file can be shared by every problem with the same goal shape.
+ */
+public class PatternDatabase {
+    /** maximum number of containers of a pattern */
+    public static final int MAX_SIZE = 8;
+
+    private static final int MAGIC = 0x50444231; //"PDB1"
+
+    private final int[] costs; //cost of each pattern container
+    private final int goalKey;
+    private final IntBuffer keys; //sorted as unsigned ints
+    private final ShortBuffer values; //cost of each key, unsigned
+
+    /**
+     * PatternDatabase constructor
+     * @param costs cost of each pattern container
+     * @param goalKey abstract key of the goal
+     * @param data table in the file format
+     */
+    private PatternDatabase(int[] costs, int goalKey, ByteBuffer data){
+        this.costs = costs;
+        this.goalKey = goalKey;
+        int count = data.getInt(headerSize(costs.length) - 4);
+        int keysAt = headerSize(costs.length);
+        this.keys = data.slice(keysAt, count * 4).asIntBuffer();
+        this.values = data.slice(keysAt + count * 4, count * 2).asShortBuffer();
+    }
+
+    /**
+     * @param k number of containers of the pattern
+     * @return bytes before the keys: magic, k, costs, goal key and number of keys
+     */
+    private static int headerSize(int k){
+        return 4 * (4 + k);
+    }
+
+    /**
+     * Gets the database of a pattern: from its file in dir if it is there, built (and saved there) if it isn't
+     * @param costs cost of each pattern container
+     * @param goalKey abstract key of the goal (see the class comment)
+     * @param dir directory of the database files, null to keep the table in memory only
+     * @return pattern database
+     * @throws IllegalStateException if there are more than MAX_SIZE containers
+     * @throws IOException if a file can't be read or written
+     */
+    public static PatternDatabase of(int[] costs, int goalKey, Path dir) throws IOException{
+        if(costs.length == 0 || costs.length > MAX_SIZE){
+            throw new IllegalStateException("A pattern needs between 1 and " + MAX_SIZE + " containers, got " + costs.length);
+        }
+        if(dir == null){
+            return new PatternDatabase(costs, goalKey, build(costs, goalKey));
+        }
+        StringBuilder name = new StringBuilder("pdb-").append(Integer.toHexString(goalKey));
+        for(int c : costs){
+            name.append('-').append(c);
+        }
+        Path file = dir.resolve(name.append(".bin").toString());
+        if(!Files.exists(file)){
+            Files.createDirectories(dir);
+            ByteBuffer data = build(costs, goalKey);
+            //written aside and moved, so a file is never seen half written
+            Path tmp = Files.createTempFile(dir, "pdb", ".tmp");
+            try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)){
+                while(data.hasRemaining()){
+                    ch.write(data);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        ByteBuffer data;
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)){
+            data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if(data.capacity() < headerSize(costs.length) || data.getInt(0) != MAGIC || data.getInt(4) != costs.length
+                || data.getInt(headerSize(costs.length) - 8) != goalKey){
+            throw new IllegalStateException("Invalid pattern database file: " + file);
+        }
+        for(int i = 0; i < costs.length; i++){
+            if(data.getInt(8 + 4 * i) != costs[i]){
+                throw new IllegalStateException("Invalid pattern database file: " + file);
+            }
+        }
+        return new PatternDatabase(costs, goalKey, data);
+    }
+
+    /**
+     * Builds the table of a pattern with a Dijkstra search from the abstract goal
+     * Costs are small integers, so the open list is a bucket queue
+     * @param costs cost of each pattern container
+     * @param goalKey abstract key of the goal
+     * @return table in the file format
+     * @throws IllegalStateException if an abstract cost doesn't fit in 16 bits
+     */
+    private static ByteBuffer build(int[] costs, int goalKey){
+        int k = costs.length;
+        IntIntMap dist = new IntIntMap();
+        int[][] buckets = new int[1][16];
+        int[] sizes = new int[1];
+        dist.put(goalKey, 0);
+        buckets[0][sizes[0]++] = goalKey;
+        for(int d = 0; d < buckets.length; d++){
+            //the bucket can grow while it is read, when a container costs 0
+            for(int i = 0; i < sizes[d]; i++){
+                int key = buckets[d][i];
+                if(dist.get(key) != d){
+                    continue;
+                }
+                int covered = 0; //containers with a pattern container on top
+                for(int c = 0; c < k; c++){
+                    int below = (key >>> (4 * c)) & 15;
+                    if(below != 0){
+                        covered |= 1 << (below - 1);
+                    }
+                }
+                for(int c = 0; c < k; c++){
+                    if((covered & (1 << c)) != 0){
+                        continue;
+                    }
+                    int below = (key >>> (4 * c)) & 15;
+                    int cleared = key & ~(15 << (4 * c));
+                    //to the ground or on top of another uncovered container
+                    for(int to = 0; to <= k; to++){
+                        if(to == below || (to != 0 && (to - 1 == c || (covered & (1 << (to - 1))) != 0))){
+                            continue;
+                        }
+                        int child = cleared | (to << (4 * c));
+                        int nd = d + costs[c];
+                        int old = dist.get(child);
+                        if(old != -1 && old <= nd){
+                            continue;
+                        }
+                        dist.put(child, nd);
+                        if(nd >= buckets.length){
+                            buckets = Arrays.copyOf(buckets, nd + 1);
+                            sizes = Arrays.copyOf(sizes, nd + 1);
+                        }
+                        if(buckets[nd] == null){
+                            buckets[nd] = new int[16];
+                        }
+                        if(sizes[nd] == buckets[nd].length){
+                            buckets[nd] = Arrays.copyOf(buckets[nd], 2 * sizes[nd]);
+                        }
+                        buckets[nd][sizes[nd]++] = child;
+                    }
+                }
+            }
+            buckets[d] = null;
+        }
+        int[] keys = dist.keys();
+        //sorted as unsigned ints
+        for(int i = 0; i < keys.length; i++){
+            keys[i] ^= Integer.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        ByteBuffer data = ByteBuffer.allocate(headerSize(k) + keys.length * 6);
+        data.putInt(MAGIC).putInt(k);
+        for(int c : costs){
+            data.putInt(c);
+        }
+        data.putInt(goalKey).putInt(keys.length);
+        for(int i = 0; i < keys.length; i++){
+            keys[i] ^= Integer.MIN_VALUE;
+            data.putInt(keys[i]);
+        }
+        for(int key : keys){
+            int d = dist.get(key);
+            if(d > 0xFFFF){
+                throw new IllegalStateException("Pattern database cost too big: " + d);
+            }
+            data.putShort((short) d);
+        }
+        return data.flip();
+    }
+
+    /**
+     * Exact abstract cost to the goal
+     * @param key abstract key of a layout
+     * @return cost of the cheapest abstract path from key to the goal
+     * @throws IllegalStateException if key isn't a valid abstract key
+     */
+    public int value(int key){
+        int lo = 0;
+        int hi = this.keys.limit() - 1;
+        while(lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            int cmp = Integer.compareUnsigned(this.keys.get(mid), key);
+            if(cmp < 0){
+                lo = mid + 1;
+            }
+            else if(cmp > 0){
+                hi = mid - 1;
+            }
+            else{
+                return this.values.get(mid) & 0xFFFF;
+            }
+        }
+        throw new IllegalStateException("Invalid abstract key: " + Integer.toHexString(key));
+    }
+
+    /**
+     * @return number of abstract layouts of the pattern
+     */
+    public int size(){
+        return this.keys.limit();
+    }
+
+    /**
+     * @return abstract key of the goal
+     */
+    public int getGoalKey(){
+        return goalKey;
+    }
+
+    /**
+     * @return cost of each pattern container
+     */
+    public int[] getCosts(){
+        return costs.clone();
+    }
+
+    /**
+     * Open addressing map from int keys to non negative int values, used while building
+     */
+    private static class IntIntMap {
+        private int[] keys = new int[1 << 10];
+        private int[] values = new int[1 << 10];
+        private boolean[] used = new boolean[1 << 10];
+        private int size = 0;
+
+        private int slot(int key){
+            int mask = this.keys.length - 1;
+            int i = (key * 0x9E3779B9) >>> 8 & mask;
+            while(this.used[i] && this.keys[i] != key){
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * @param key key
+         * @return value of key, -1 if it isn't there
+         */
+        int get(int key){
+            int i = this.slot(key);
+            return this.used[i] ? this.values[i] : -1;
+        }
+
+        void put(int key, int value){
+            int i = this.slot(key);
+            if(!this.used[i]){
+                if(2 * (this.size + 1) > this.keys.length){
+                    this.grow();
+                    i = this.slot(key);
+                }
+                this.used[i] = true;
+                this.keys[i] = key;
+                this.size++;
+            }
+            this.values[i] = value;
+        }
+
+        private void grow(){
+            int[] k = this.keys;
+            int[] v = this.values;
+            boolean[] u = this.used;
+            this.keys = new int[2 * k.length];
+            this.values = new int[2 * k.length];
+            this.used = new boolean[2 * k.length];
+            for(int i = 0; i < k.length; i++){
+                if(u[i]){
+                    int j = this.slot(k[i]);
+                    this.used[j] = true;
+                    this.keys[j] = k[i];
+                    this.values[j] = v[i];
+                }
+            }
+        }
+
+        /**
+         * @return every key in the map
+         */
+        int[] keys(){
+            int[] result = new int[this.size];
+            int n = 0;
+            for(int i = 0; i < this.keys.length; i++){
+                if(this.used[i]){
+                    result[n++] = this.keys[i];
+                }
+            }
+            return result;
+        }
+    }
+}
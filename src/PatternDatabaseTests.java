@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternDatabaseTests {
+
+    private static final String[][] INSTANCES = {
+            {"A2 B8C5 D1E1F3", "EACFB D"},
+            {"F9 E8 B9C1 D6A2", "E FB C A D"},
+            {"C8B5A2E3H3 G2F6D8", "BHAEDCGF"},
+            {"A1B2C3D4 E5", "DCBAE"}
+    };
+
+    @Test
+    void testExact() throws IOException{
+        //with every container in a single pattern the abstract problem is the real one
+        for(String[] instance : INSTANCES){
+            PackedStacksOfContainers s = new PackedStacksOfContainers(instance[0]);
+            PackedStacksOfContainers goal = new PackedStacksOfContainers(instance[1], s);
+            double cost = SolverTests.cost(new BestFirst(), instance[0], instance[1]);
+            goal.usePatterns(PatternDatabase.MAX_SIZE, PatternHeuristic.Combine.ADD, null);
+            assertEquals(new PackedStacksOfContainers(instance[0]).heuristics(goal), cost);
+            assertEquals(new PackedStacksOfContainers(instance[1], s).heuristics(goal), 0);
+        }
+    }
+
+    @Test
+    void testSolve() throws IOException{
+        for(String[] instance : INSTANCES){
+            double expected = SolverTests.cost(new BestFirst(), instance[0], instance[1]);
+            for(PatternHeuristic.Combine combine : PatternHeuristic.Combine.values()){
+                for(int size = 1; size <= 3; size++){
+                    StacksOfContainers s = new StacksOfContainers(instance[0], false);
+                    StacksOfContainers goal = new StacksOfContainers(instance[1], s);
+                    goal.usePatterns(size, combine, null);
+                    assertTrue(s.heuristics(goal) <= expected);
+                    BestFirst.State last = null;
+                    for(var it = new BestFirst().solve(s, goal); it.hasNext(); ){
+                        last = it.next();
+                    }
+                    assertEquals(last.getG(), expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFiles(@TempDir Path dir) throws IOException{
+        PatternDatabase built = PatternDatabase.of(new int[]{3, 1, 4}, 0x210, dir);
+        Path file;
+        try(Stream<Path> files = Files.list(dir)){
+            file = files.findFirst().orElseThrow();
+        }
+        //the second time the table comes from the file
+        PatternDatabase loaded = PatternDatabase.of(new int[]{3, 1, 4}, 0x210, dir);
+        assertEquals(loaded.size(), 13);
+        assertEquals(loaded.value(0x210), 0);
+        assertEquals(loaded.value(0), built.value(0));
+        assertThrows(IllegalStateException.class, () -> loaded.value(0x111));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IllegalStateException.class, () -> PatternDatabase.of(new int[]{3, 1, 4}, 0x210, dir));
+        assertThrows(IllegalStateException.class, () -> PatternDatabase.of(new int[PatternDatabase.MAX_SIZE + 1], 0, dir));
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pattern database heuristic of a goal layout
+ * The containers of the goal are split into disjoint patterns of at most PatternDatabase.MAX_SIZE
+ * containers, keeping goal stacks together whenever they fit, and every pattern gets its PatternDatabase.
+ * The values of the patterns are added (ADD) or the biggest one is taken (MAX), both are admissible
+ * because the patterns are disjoint. The layouts then use the biggest of that and h0.
+ * Containers are identified by the int ids of the layout that built the heuristic (like GoalIndex).
+ */
+public class PatternHeuristic {
+
+    /**
+     * How the values of the patterns are combined
+     */
+    public enum Combine { ADD, MAX }
+
+    private final PatternDatabase[] databases;
+    private final int[] codes; //database << 4 | container of the pattern, for every id, -1 if it isn't in a pattern
+    private final Combine combine;
+
+    /**
+     * PatternHeuristic constructor
+     * @param stacks ids of the containers of each goal stack, bottom to top
+     * @param costs cost of each of those containers
+     * @param size maximum number of containers of a pattern
+     * @param combine how the values of the patterns are combined
+     * @param dir directory of the database files, null to keep them in memory only
+     * @throws IllegalStateException if size isn't between 1 and PatternDatabase.MAX_SIZE
+     * @throws IOException if a database file can't be read or written
+     */
+    public PatternHeuristic(int[][] stacks, int[][] costs, int size, Combine combine, Path dir) throws IOException{
+        if(size < 1 || size > PatternDatabase.MAX_SIZE){
+            throw new IllegalStateException("Invalid pattern size: " + size);
+        }
+        this.combine = combine;
+        List<int[]> patterns = new ArrayList<>(); //{stack, position} of every container of each pattern
+        List<int[]> current = new ArrayList<>();
+        int maxId = 0;
+        for(int s = 0; s < stacks.length; s++){
+            //a goal stack that doesn't fit in the current pattern starts a new one
+            if(!current.isEmpty() && current.size() + stacks[s].length > size){
+                patterns.add(flatten(current));
+                current.clear();
+            }
+            for(int i = 0; i < stacks[s].length; i++){
+                if(current.size() == size){
+                    patterns.add(flatten(current));
+                    current.clear();
+                }
+                current.add(new int[]{s, i});
+                maxId = Math.max(maxId, stacks[s][i]);
+            }
+        }
+        if(!current.isEmpty()){
+            patterns.add(flatten(current));
+        }
+        this.codes = new int[maxId + 1];
+        Arrays.fill(this.codes, -1);
+        this.databases = new PatternDatabase[patterns.size()];
+        int[][] patternCosts = new int[patterns.size()][];
+        for(int p = 0; p < patternCosts.length; p++){
+            int[] pattern = patterns.get(p);
+            patternCosts[p] = new int[pattern.length / 2];
+            for(int c = 0; c < patternCosts[p].length; c++){
+                int s = pattern[2 * c];
+                int i = pattern[2 * c + 1];
+                patternCosts[p][c] = costs[s][i];
+                this.codes[stacks[s][i]] = p << 4 | c;
+            }
+        }
+        int[] goalKeys = new int[patterns.size()];
+        int[] below = new int[patterns.size()];
+        for(int[] s : stacks){
+            this.keys(s, s.length, goalKeys, below);
+        }
+        for(int p = 0; p < this.databases.length; p++){
+            this.databases[p] = PatternDatabase.of(patternCosts[p], goalKeys[p], dir);
+        }
+    }
+
+    /**
+     * Cost of a container inside the databases, which only work with integer costs
+     * Real costs are rounded down, so the abstract costs still never overestimate the real ones
+     * @param cost real cost of a container
+     * @return cost used by the databases
+     */
+    public static int cost(double cost){
+        return (int) Math.floor(cost);
+    }
+
+    /**
+     * @param list pairs of ints
+     * @return the pairs one after the other
+     */
+    private static int[] flatten(List<int[]> list){
+        int[] result = new int[2 * list.size()];
+        for(int i = 0; i < list.size(); i++){
+            result[2 * i] = list.get(i)[0];
+            result[2 * i + 1] = list.get(i)[1];
+        }
+        return result;
+    }
+
+    /**
+     * Adds one stack to the abstract keys of a layout
+     * @param ids containers of the stack, bottom to top
+     * @param size number of containers in the stack
+     * @param keys abstract key of each pattern, updated
+     * @param below used to keep the last pattern container seen of each pattern (reset here)
+     */
+    private void keys(int[] ids, int size, int[] keys, int[] below){
+        Arrays.fill(below, 0);
+        for(int i = 0; i < size; i++){
+            int code = ids[i] < this.codes.length ? this.codes[ids[i]] : -1;
+            if(code == -1){
+                continue;
+            }
+            int p = code >>> 4;
+            int c = code & 15;
+            keys[p] |= below[p] << (4 * c);
+            below[p] = c + 1;
+        }
+    }
+
+    /**
+     * Value of a layout given by its stacks
+     * @param stacks ids of the containers of each stack, bottom to top
+     * @return combined value of the patterns
+     */
+    public int value(int[][] stacks){
+        int[] keys = new int[this.databases.length];
+        int[] below = new int[this.databases.length];
+        for(int[] s : stacks){
+            this.keys(s, s.length, keys, below);
+        }
+        return this.combine(keys);
+    }
+
+    /**
+     * Value of a layout given as ids, bottom to top, with a separator between stacks
+     * @param cells ids and separators, one or two bytes each (big endian)
+     * @param width bytes per id
+     * @param separator value of the separator
+     * @return combined value of the patterns
+     */
+    public int value(byte[] cells, int width, int separator){
+        int[] keys = new int[this.databases.length];
+        int[] below = new int[this.databases.length];
+        for(int i = 0; i < cells.length; i += width){
+            int id = width == 1 ? cells[i] : (short) (cells[i] << 8 | cells[i + 1] & 0xFF);
+            if(id == separator){
+                Arrays.fill(below, 0);
+                continue;
+            }
+            int code = id < this.codes.length ? this.codes[id] : -1;
+            if(code == -1){
+                continue;
+            }
+            int p = code >>> 4;
+            int c = code & 15;
+            keys[p] |= below[p] << (4 * c);
+            below[p] = c + 1;
+        }
+        return this.combine(keys);
+    }
+
+    /**
+     * @param keys abstract key of each pattern
+     * @return sum or biggest of the values of the patterns
+     */
+    private int combine(int[] keys){
+        int result = 0;
+        for(int p = 0; p < keys.length; p++){
+            int v = this.databases[p].value(keys[p]);
+            result = this.combine == Combine.ADD ? result + v : Math.max(result, v);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of patterns
+     */
+    public int size(){
+        return this.databases.length;
+    }
+}
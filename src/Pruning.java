@@ -0,0 +1,66 @@
+import java.util.List;
+
+/**
+ * Pruning rules of BestFirst
+ * Each rule skips moves that an optimal plan never needs, so the cost found stays optimal while fewer
+ * children are built and expanded. A container is settled when it and everything below it are in their
+ * goal place (its stack, from the bottom up to it, is the bottom of a goal stack): nothing under it ever
+ * needs to move, so it doesn't either.
+ * The rules work on the moves of sucessores, never on Ilayout.moves or children: the backward search of
+ * BidirectionalBestFirst and the replay of Solution need every move of a layout.
+ */
+public enum Pruning {
+    /**
+     * Never move the container moved by the last move: moving it twice in a row costs more than moving it
+     * once to the same place, from the layout before (this includes taking the last move back)
+     */
+    REPEAT,
+    /**
+     * Never move a settled container
+     */
+    SETTLED,
+    /**
+     * If a move settles its container (puts it on the ground, or on a stack of settled containers, where it goes
+     * in goal), that move is the only child: the container has to get there anyway, and nothing else needs its place
+     */
+    SETTLING;
+
+    /** flag of a move of the container moved by the last move */
+    static final byte REPEATS = 1;
+    /** flag of a move of a settled container */
+    static final byte UNSETTLES = 2;
+    /** flag of a move that settles its container */
+    static final byte SETTLES = 4;
+
+    /**
+     * Flags of the moves of a layout, used by its Ilayout.classify
+     * @param moves moves of the layout, as given by its moves()
+     * @param stacks ids of the containers of every stack of the layout, bottom to top (by the stack indexes of the moves)
+     * @param last id of the container moved by the last move, -1 for none
+     * @param index goal index of the objective
+     * @return flags of every move
+     */
+    static byte[] classify(List<Move> moves, int[][] stacks, int last, GoalIndex index){
+        boolean[] settled = new boolean[stacks.length];
+        for(int s = 0; s < stacks.length; s++){
+            settled[s] = stacks[s].length > 0 && index.settled(stacks[s], stacks[s].length);
+        }
+        byte[] flags = new byte[moves.size()];
+        for(int i = 0; i < flags.length; i++){
+            Move m = moves.get(i);
+            byte f = 0;
+            if(m.container == last){
+                f |= REPEATS;
+            }
+            if(settled[m.from]){
+                f |= UNSETTLES;
+            }
+            else if(m.to == Move.NEW_STACK ? index.below(m.container) == GoalIndex.GROUND
+                    : settled[m.to] && index.below(m.container) == stacks[m.to][stacks[m.to].length - 1]){
+                f |= SETTLES;
+            }
+            flags[i] = f;
+        }
+        return flags;
+    }
+}
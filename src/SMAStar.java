@@ -0,0 +1,439 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * SMAStar class
+ * Memory bounded A* (simplified SMA*): a best first search that never keeps more than a given number of nodes.
+ * When the budget is full, the worst leaf (biggest f, then shallowest) is evicted to make room, and its f is
+ * backed up into its father, which remembers the f of each forgotten child (a new child that would be the worst
+ * leaf is forgotten right away). A father whose best forgotten child is the best thing left to search is expanded
+ * again, and regenerates that child with the f it had.
+ * Every node has f = max(g + h, f of its father), and the f of a father goes up to the smallest f of its
+ * children and forgotten children, so what was learned about a subtree isn't lost when it is forgotten.
+ * With a budget that holds the nodes A* would keep, it searches like A*. With a smaller one it evicts and
+ * regenerates instead of running out of memory, and still returns an optimal solution as long as the budget
+ * holds the path to it. A child that doesn't fit even when the path to it is all there is in memory is dropped,
+ * and the solution found is then the best of the ones that fit in the budget.
+ * Layouts are searched as a tree: a child is dropped when its layout is on its own path, or is in memory
+ * with a g that isn't bigger.
+ * Statistics: peak abertos is the most nodes waiting to be expanded (again), peak fechados the most nodes
+ * in memory that weren't, evicted counts the nodes forgotten and regenerated the ones built again, by their
+ * father or through another path (the keys of the evicted layouts are kept in a table with as many slots as
+ * the budget, where a newer key replaces an older one, so a layout evicted long ago may not be counted).
+ */
+public class SMAStar implements Solver {
+    private final int maxNodes;
+    private long timeLimit = Long.MAX_VALUE; //nanos
+
+    private Ilayout objective;
+    private SearchStatistics statistics;
+    //nodes with children to generate, or to regenerate, by key, the deepest first
+    private TreeSet<Node> open;
+    //nodes without children in memory, by f, the worst (and then shallowest) one last
+    private TreeSet<Node> leaves;
+    private HashMap<Ilayout, Node> nodes; //nodes in memory, by layout (the cheapest one of each)
+    private int size; //nodes in memory
+    private long ids; //creation order of the nodes, the last tie break
+    private boolean dropped; //a child didn't fit in the budget
+    private long[] evictedKeys; //keys of evicted layouts, by slot
+
+    /**
+     * SMAStar constructor
+     * @param maxNodes maximum number of nodes kept in memory
+     * @throws IllegalArgumentException if maxNodes isn't positive
+     */
+    public SMAStar(int maxNodes){
+        if(maxNodes < 1){
+            throw new IllegalArgumentException("Invalid node budget: " + maxNodes);
+        }
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Sets the maximum duration of the next solves, a solve that reaches it throws a SearchLimitException
+     * (a budget that barely holds the path to the goal makes the search evict and regenerate the same nodes
+     * over and over, see BestFirst.setLimits for a limit of states)
+     * @param timeoutMillis maximum duration of a solve, in milliseconds, 0 for no limit
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public void setTimeLimit(long timeoutMillis){
+        if(timeoutMillis < 0){
+            throw new IllegalArgumentException("Invalid limit: " + timeoutMillis + " ms");
+        }
+        this.timeLimit = timeoutMillis == 0 ? Long.MAX_VALUE : timeoutMillis * 1_000_000;
+    }
+
+    /**
+     * Node class
+     * Node of the search tree, with its children in memory and what is left of the forgotten ones
+     */
+    private static final class Node {
+        private final Ilayout layout;
+        private final Node father;
+        private final double g;
+        private final int depth;
+        private final int move; //index of the move that made it among the moves of its father, -1 for the root
+        private final long id;
+        private final List<Node> children = new ArrayList<>();
+        private double f; //lower bound of the cost of a solution through this node
+        private boolean expanded;
+        private int branching; //number of moves, known once it is expanded
+        private double[] forgotten; //f of every forgotten child by move index, infinite for the others, null for none
+        private double best = Double.POSITIVE_INFINITY; //smallest f in forgotten
+
+        /**
+         * Node constructor
+         * @param layout layout
+         * @param father father node, null for the root
+         * @param move index of the move that made it among the moves of its father, -1 for the root
+         * @param g cost of the path to layout
+         * @param f lower bound of the cost of a solution through layout
+         * @param id creation order
+         */
+        private Node(Ilayout layout, Node father, int move, double g, double f, long id){
+            this.layout = layout;
+            this.father = father;
+            this.move = move;
+            this.g = g;
+            this.f = f;
+            this.depth = father == null ? 0 : father.depth + 1;
+            this.id = id;
+        }
+
+        /**
+         * @return f of what is left to search from this node: its own one before it is expanded,
+         * the one of its best forgotten child after
+         */
+        private double key(){
+            return this.expanded ? this.best : this.f;
+        }
+
+        /**
+         * @return true if the node has children to generate or to regenerate
+         */
+        private boolean waiting(){
+            return !this.expanded || this.best != Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Remembers the f of a child that is forgotten
+         * @param move index of the move that makes the child
+         * @param f f of the child
+         */
+        private void forget(int move, double f){
+            if(this.forgotten == null){
+                this.forgotten = new double[this.branching];
+                Arrays.fill(this.forgotten, Double.POSITIVE_INFINITY);
+            }
+            this.forgotten[move] = f;
+            this.best = Math.min(this.best, f);
+        }
+
+        /**
+         * Takes the best forgotten child out of forgotten
+         * @return index of the move that makes it
+         */
+        private int remember(){
+            int move = 0;
+            for(int i = 1; i < this.branching; i++){
+                if(this.forgotten[i] < this.forgotten[move]){
+                    move = i;
+                }
+            }
+            this.forgotten[move] = Double.POSITIVE_INFINITY;
+            this.best = Double.POSITIVE_INFINITY;
+            for(double f : this.forgotten){
+                this.best = Math.min(this.best, f);
+            }
+            return move;
+        }
+    }
+
+    /**
+     * Method that solves the board
+     * @param s initial board layout
+     * @param goal board layout
+     * @return iterator with all the steps taken to reach the goal in it, null if there is no solution
+     * @throws SearchLimitException if no solution fits in the budget (STATES), the time limit is reached
+     * or the thread is interrupted
+     */
+    @Override
+    public Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal){
+        this.objective = goal;
+        this.statistics = new SearchStatistics();
+        this.statistics.startNanos = System.nanoTime();
+        this.open = new TreeSet<>(Comparator.comparingDouble(Node::key)
+                .thenComparing(Comparator.comparingInt((Node n) -> n.depth).reversed())
+                .thenComparingLong(n -> n.id));
+        this.leaves = new TreeSet<>(Comparator.comparingDouble((Node n) -> n.f)
+                .thenComparing(Comparator.comparingInt((Node n) -> n.depth).reversed())
+                .thenComparingLong(n -> n.id));
+        this.nodes = new HashMap<>();
+        this.size = 0;
+        this.ids = 0;
+        this.dropped = false;
+        this.evictedKeys = new long[Integer.highestOneBit(this.maxNodes)];
+        double h = s.heuristics(goal);
+        this.statistics.rootH = h;
+        this.add(new Node(s, null, -1, 0, h, this.ids++));
+        Node last = this.run();
+        this.statistics.sampleHeap();
+        this.statistics.totalNanos = System.nanoTime() - this.statistics.startNanos;
+        this.open = null;
+        this.leaves = null;
+        this.nodes = null;
+        this.evictedKeys = null;
+        if(last == null){
+            if(this.dropped){
+                throw new SearchLimitException(SearchLimitException.Limit.STATES, this.statistics);
+            }
+            return null;
+        }
+        this.statistics.cost = last.g;
+        this.statistics.depth = last.depth;
+        return this.path(last).path();
+    }
+
+    /**
+     * Expands the best node until the goal is reached
+     * @return goal node reached, null if there is nothing left to search
+     * @throws SearchLimitException if the time limit is reached or the thread is interrupted
+     */
+    private Node run(){
+        while(true){
+            long t = System.nanoTime() - this.statistics.startNanos;
+            if(t > this.timeLimit || Thread.currentThread().isInterrupted()){
+                this.statistics.totalNanos = t;
+                throw new SearchLimitException(t > this.timeLimit ? SearchLimitException.Limit.TIME
+                        : SearchLimitException.Limit.INTERRUPTED, this.statistics);
+            }
+            Node n = this.open.pollFirst();
+            if(n == null){
+                return null;
+            }
+            if(!n.expanded && n.layout.isGoal(this.objective)){
+                return n;
+            }
+            this.expand(n);
+            this.statistics.expanded++;
+            this.statistics.sizes(this.open.size(), this.size - this.open.size());
+            if(this.statistics.expanded % SearchStatistics.HEAP_SAMPLE == 0){
+                this.statistics.sampleHeap();
+            }
+        }
+    }
+
+    /**
+     * Generates the children of a node taken from open, or regenerates its best forgotten one
+     * @param n node
+     */
+    private void expand(Node n){
+        List<Move> moves = n.layout.moves();
+        this.leaves.remove(n);
+        if(!n.expanded){
+            n.expanded = true;
+            n.branching = moves.size();
+            for(int i = 0; i < moves.size(); i++){
+                if(!moves.get(i).undo){
+                    this.generate(n, moves.get(i), i, n.f, false);
+                }
+            }
+        }
+        else{
+            double f = n.best;
+            int i = n.remember();
+            this.generate(n, moves.get(i), i, f, true);
+        }
+        this.open.remove(n);
+        this.leaves.remove(n);
+        this.backUp(n);
+        this.place(n);
+    }
+
+    /**
+     * Builds a child and adds it to the tree, evicting the worst leaf when the budget is full
+     * @param n father, being expanded
+     * @param m move that makes the child
+     * @param move index of m among the moves of n
+     * @param bound lower bound of the f of the child (f of its father, or its own f when it was forgotten)
+     * @param best true if the child is the best thing left to search, so it must get into memory
+     */
+    private void generate(Node n, Move m, int move, double bound, boolean best){
+        Ilayout l = n.layout.apply(m);
+        this.statistics.generated++;
+        int slot = this.slot(l);
+        if(this.evictedKeys[slot] == l.key()){
+            this.statistics.regenerated++;
+            //counted once per eviction
+            this.evictedKeys[slot] = ~l.key();
+        }
+        double g = n.g + l.getG();
+        Node other = this.nodes.get(l);
+        if(this.onPath(n, l) || (other != null && other.g <= g)){
+            this.statistics.duplicates++;
+            return;
+        }
+        Node c = new Node(l, n, move, g, Math.max(g + l.heuristics(this.objective), bound), this.ids++);
+        if(this.size >= this.maxNodes){
+            Node worst = this.worstLeaf(n);
+            //the path to n is all there is in memory
+            if(worst == null){
+                this.dropped = true;
+                return;
+            }
+            if(!best && this.leaves.comparator().compare(c, worst) > 0){
+                n.forget(move, c.f);
+                this.forgotten(l);
+                return;
+            }
+            this.evict(worst, n);
+        }
+        this.add(c);
+    }
+
+    /**
+     * Adds a new node to the tree
+     * @param c node
+     */
+    private void add(Node c){
+        if(c.father != null){
+            c.father.children.add(c);
+        }
+        this.nodes.put(c.layout, c);
+        this.size++;
+        this.place(c);
+    }
+
+    /**
+     * Puts a node that isn't in open nor in leaves back in the ones it belongs to
+     * @param n node
+     */
+    private void place(Node n){
+        if(n.waiting()){
+            this.open.add(n);
+        }
+        if(n.children.isEmpty()){
+            this.leaves.add(n);
+        }
+    }
+
+    /**
+     * Finds the leaf that is evicted first
+     * @param keep node that must stay (the one being expanded)
+     * @return the worst leaf other than the root and keep, null if there is none
+     */
+    private Node worstLeaf(Node keep){
+        Iterator<Node> it = this.leaves.descendingIterator();
+        while(it.hasNext()){
+            Node candidate = it.next();
+            if(candidate != keep && candidate.father != null){
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evicts a leaf and backs its f up into its father
+     * @param x leaf
+     * @param keep node being expanded, put back in open and leaves when its expansion ends
+     */
+    private void evict(Node x, Node keep){
+        this.leaves.remove(x);
+        this.open.remove(x);
+        this.nodes.remove(x.layout, x);
+        this.size--;
+        this.forgotten(x.layout);
+        Node p = x.father;
+        this.open.remove(p);
+        this.leaves.remove(p);
+        p.children.remove(x);
+        p.forget(x.move, x.f);
+        if(p != keep){
+            this.place(p);
+        }
+    }
+
+    /**
+     * Counts a layout that is forgotten and remembers its key
+     * @param l layout
+     */
+    private void forgotten(Ilayout l){
+        this.statistics.evicted++;
+        this.evictedKeys[this.slot(l)] = l.key();
+    }
+
+    /**
+     * @param l layout
+     * @return slot of l in evictedKeys
+     */
+    private int slot(Ilayout l){
+        long key = l.key();
+        return (int) (key ^ (key >>> 32)) & (this.evictedKeys.length - 1);
+    }
+
+    /**
+     * Raises the f of a node to the smallest f of its children and forgotten children (infinite if it has none),
+     * and goes on with its ancestors while their f changes
+     * @param n node that isn't in open nor in leaves
+     */
+    private void backUp(Node n){
+        double f = n.best;
+        for(Node c : n.children){
+            f = Math.min(f, c.f);
+        }
+        if(f <= n.f){
+            return;
+        }
+        n.f = f;
+        for(Node a = n.father; a != null; a = a.father){
+            double min = a.best;
+            for(Node c : a.children){
+                min = Math.min(min, c.f);
+            }
+            if(min <= a.f){
+                break;
+            }
+            //an ancestor has children, so it isn't a leaf, and its key isn't its f
+            a.f = min;
+        }
+    }
+
+    /**
+     * Tells if a layout is already in the path that leads to a node
+     * @param n node
+     * @param l layout of a child of n
+     * @return true if n or one of its ancestors has layout l
+     */
+    private boolean onPath(Node n, Ilayout l){
+        for(Node a = n; a != null; a = a.father){
+            if(a.layout.key() == l.key() && a.layout.equals(l)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the states of the path to a node
+     * @param n node
+     * @return state of n, its fathers are the states of the path
+     */
+    private BestFirst.State path(Node n){
+        BestFirst.State father = n.father == null ? null : this.path(n.father);
+        return new BestFirst.State(n.layout, father, n.g, n.layout.heuristics(this.objective));
+    }
+
+    /**
+     * @return statistics of the last solve, null before the first one
+     */
+    @Override
+    public SearchStatistics getStatistics(){
+        return this.statistics;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Thrown by a solver that stops before the end of the search because it reached one of its limits
+ * The statistics of the search until that point are kept with it.
+ */
+public class SearchLimitException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Limit that stopped the search
+     */
+    public enum Limit { TIME, STATES, INTERRUPTED }
+
+    private final Limit limit;
+    private final transient SearchStatistics statistics;
+
+    /**
+     * SearchLimitException constructor
+     * @param limit limit reached
+     * @param statistics statistics of the search when it stopped
+     */
+    public SearchLimitException(Limit limit, SearchStatistics statistics){
+        super("Search stopped: " + limit.name().toLowerCase() + " limit reached");
+        this.limit = limit;
+        this.statistics = statistics;
+    }
+
+    public Limit getLimit(){
+        return limit;
+    }
+
+    public SearchStatistics getStatistics(){
+        return statistics;
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Listener of a search, told about its progress by the solver
+ * All methods run in the thread of the search, so they should return quickly.
+ */
+public interface SearchListener {
+    /**
+     * Called after each state is expanded
+     * @param s expanded state
+     * @param statistics statistics of the search until now
+     */
+    default void expanded(BestFirst.State s, SearchStatistics statistics){
+    }
+
+    /**
+     * Called by anytime solvers (AnytimeBestFirst) each time they find a better solution
+     * @param solution new best solution
+     * @param bound proven bound of its suboptimality, its cost is at most bound times the optimum
+     * @param statistics statistics of the search until now
+     */
+    default void improved(Solution solution, double bound, SearchStatistics statistics){
+    }
+
+    /**
+     * Called once, when the search ends
+     * @param statistics final statistics of the search
+     */
+    default void finished(SearchStatistics statistics){
+    }
+}
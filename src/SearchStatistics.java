@@ -0,0 +1,243 @@
+import java.util.Locale;
+
+/**
+ * SearchStatistics class
+ * Counters of one solve, filled by the solver while it runs.
+ * Counting is just a few increments per expanded state, so it is always on.
+ * Times are taken once per expanded state for each phase of the expansion, never per child:
+ * poll (taking the best state out of abertos), generate (moves and apply, which also update
+ * the key and, incrementally, h of each child), evaluate (building the states, h of children
+ * that didn't get it from apply), lookup (fechados and abertos membership, decrease-key of
+ * cheaper paths) and insert (adding the new states to abertos).
+ * Memory is estimated from the peak sizes of abertos and fechados and from the used heap,
+ * sampled every few thousand expansions.
+ */
+public class SearchStatistics {
+    //expansions between two samples of the used heap
+    static final int HEAP_SAMPLE = 4096;
+
+    long generated; //children built
+    long expanded; //states taken from abertos and expanded
+    long duplicates; //children dropped because their layout was already closed or waiting with a smaller g
+    long reopened; //waiting states that got a cheaper path (decrease-key)
+    long evicted; //nodes forgotten by a memory bounded search
+    long regenerated; //children built again after they were forgotten
+    final long[] pruned = new long[Pruning.values().length]; //moves skipped by each pruning rule, by ordinal
+    int peakOpen;
+    int peakClosed;
+    long peakHeap; //bytes
+    double rootH = Double.NaN;
+    double cost = Double.NaN; //NaN while there is no solution
+    int depth = -1; //moves of the solution
+    long startNanos;
+    long totalNanos;
+    long pollNanos;
+    long generateNanos;
+    long evaluateNanos;
+    long lookupNanos;
+    long insertNanos;
+
+    /**
+     * Samples the used heap, keeping the biggest value seen
+     */
+    void sampleHeap(){
+        Runtime r = Runtime.getRuntime();
+        this.peakHeap = Math.max(this.peakHeap, r.totalMemory() - r.freeMemory());
+    }
+
+    /**
+     * Records the sizes of abertos and fechados, keeping the biggest ones seen
+     * @param open size of abertos
+     * @param closed size of fechados
+     */
+    void sizes(int open, int closed){
+        if(open > this.peakOpen){
+            this.peakOpen = open;
+        }
+        if(closed > this.peakClosed){
+            this.peakClosed = closed;
+        }
+    }
+
+    public long getGenerated(){
+        return generated;
+    }
+
+    public long getExpanded(){
+        return expanded;
+    }
+
+    public long getDuplicates(){
+        return duplicates;
+    }
+
+    public long getReopened(){
+        return reopened;
+    }
+
+    /**
+     * @param rule pruning rule
+     * @return moves skipped by the rule
+     */
+    public long getPruned(Pruning rule){
+        return pruned[rule.ordinal()];
+    }
+
+    /**
+     * @return nodes forgotten to stay within the memory budget (SMAStar)
+     */
+    public long getEvicted(){
+        return evicted;
+    }
+
+    /**
+     * @return children built again after they were forgotten (SMAStar)
+     */
+    public long getRegenerated(){
+        return regenerated;
+    }
+
+    public int getPeakOpen(){
+        return peakOpen;
+    }
+
+    public int getPeakClosed(){
+        return peakClosed;
+    }
+
+    /**
+     * @return biggest used heap sampled during the solve, in bytes
+     */
+    public long getPeakHeap(){
+        return peakHeap;
+    }
+
+    /**
+     * @return h of the initial layout
+     */
+    public double getRootH(){
+        return rootH;
+    }
+
+    /**
+     * @return cost of the solution, NaN if none was found
+     */
+    public double getCost(){
+        return cost;
+    }
+
+    /**
+     * @return number of moves of the solution, -1 if none was found
+     */
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getTotalNanos(){
+        return totalNanos;
+    }
+
+    public long getPollNanos(){
+        return pollNanos;
+    }
+
+    public long getGenerateNanos(){
+        return generateNanos;
+    }
+
+    public long getEvaluateNanos(){
+        return evaluateNanos;
+    }
+
+    public long getLookupNanos(){
+        return lookupNanos;
+    }
+
+    public long getInsertNanos(){
+        return insertNanos;
+    }
+
+    /**
+     * Heuristic accuracy: how much of the real cost h saw at the start
+     * @return h of the initial layout over the cost of the solution (1 is a perfect h), NaN without a solution
+     */
+    public double getHeuristicAccuracy(){
+        if(Double.isNaN(this.cost)){
+            return Double.NaN;
+        }
+        return this.cost == 0 ? 1 : this.rootH / this.cost;
+    }
+
+    /**
+     * Effective branching factor: the b for which a uniform tree as deep as the solution
+     * has as many states as the ones generated, 1 + b + b^2 + ... + b^depth = generated + 1
+     * @return effective branching factor, NaN without a solution
+     */
+    public double getEffectiveBranchingFactor(){
+        if(this.depth < 1){
+            return Double.NaN;
+        }
+        double n = this.generated + 1;
+        double lo = 0;
+        double hi = Math.max(1, n);
+        //the sum grows with b, so it can be found by bisection
+        for(int i = 0; i < 100; i++){
+            double b = (lo + hi) / 2;
+            double sum = 1;
+            double power = 1;
+            for(int d = 1; d <= this.depth && sum <= n; d++){
+                power *= b;
+                sum += power;
+            }
+            if(sum < n){
+                lo = b;
+            }
+            else{
+                hi = b;
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    /**
+     * @return the statistics as a single line json object
+     */
+    public String toJson(){
+        return String.format(Locale.ROOT,
+                "{\"solved\":%b,\"cost\":%s,\"depth\":%d,\"generated\":%d,\"expanded\":%d,\"duplicates\":%d,"
+                        + "\"reopened\":%d,\"pruned\":{\"repeat\":%d,\"settled\":%d,\"settling\":%d},\"evicted\":%d,\"regenerated\":%d,\"peakOpen\":%d,\"peakClosed\":%d,\"peakHeapBytes\":%d,"
+                        + "\"rootH\":%s,\"heuristicAccuracy\":%s,\"branchingFactor\":%s,"
+                        + "\"nanos\":{\"total\":%d,\"poll\":%d,\"generate\":%d,\"evaluate\":%d,\"lookup\":%d,\"insert\":%d}}",
+                !Double.isNaN(this.cost), json(this.cost), this.depth, this.generated, this.expanded, this.duplicates,
+                this.reopened, this.pruned[0], this.pruned[1], this.pruned[2], this.evicted, this.regenerated,
+                this.peakOpen, this.peakClosed, this.peakHeap,
+                json(this.rootH), json(this.getHeuristicAccuracy()), json(this.getEffectiveBranchingFactor()),
+                this.totalNanos, this.pollNanos, this.generateNanos, this.evaluateNanos, this.lookupNanos, this.insertNanos);
+    }
+
+    /**
+     * @param d number
+     * @return d as a json number, null if it's NaN or infinite
+     */
+    private static String json(double d){
+        if(Double.isNaN(d) || Double.isInfinite(d)){
+            return "null";
+        }
+        return d == Math.rint(d) ? Long.toString((long) d) : String.format(Locale.ROOT, "%.4f", d);
+    }
+
+    public String toString(){
+        return String.format(Locale.ROOT,
+                "generated %d, expanded %d, duplicates %d, reopened %d%n"
+                        + "pruned repeat %d, settled %d, settling %d, evicted %d, regenerated %d%n"
+                        + "peak abertos %d, peak fechados %d, peak heap %.1f MB%n"
+                        + "h(root) %s, cost %s, accuracy %s, branching factor %s%n"
+                        + "time %.1f ms (poll %.1f, generate %.1f, evaluate %.1f, lookup %.1f, insert %.1f)",
+                this.generated, this.expanded, this.duplicates, this.reopened,
+                this.pruned[0], this.pruned[1], this.pruned[2], this.evicted, this.regenerated,
+                this.peakOpen, this.peakClosed, this.peakHeap / 1e6,
+                json(this.rootH), json(this.cost), json(this.getHeuristicAccuracy()), json(this.getEffectiveBranchingFactor()),
+                this.totalNanos / 1e6, this.pollNanos / 1e6, this.generateNanos / 1e6, this.evaluateNanos / 1e6,
+                this.lookupNanos / 1e6, this.insertNanos / 1e6);
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Solution class
+ * Result of a solve: the cost, the goal state and the moves that lead to it.
+ * Nothing is copied when the solution is built: every state keeps the move that made it,
+ * so iterating the moves only walks the chain of fathers once, without building any layout.
+ * The solution only keeps the states of its own path, so the solver can let go of everything else.
+ */
+public class Solution implements Iterable<Move> {
+    private final BestFirst.State goal;
+
+    /**
+     * Solution constructor
+     * @param goal goal state reached by the search
+     */
+    public Solution(BestFirst.State goal){
+        this.goal = goal;
+    }
+
+    /**
+     * @return cost of the solution
+     */
+    public double getCost(){
+        return goal.getG();
+    }
+
+    /**
+     * @return goal state reached, its fathers are the path
+     */
+    public BestFirst.State getGoal(){
+        return goal;
+    }
+
+    /**
+     * @return number of moves of the solution
+     */
+    public int length(){
+        int n = 0;
+        for(BestFirst.State s = this.goal.getFather(); s != null; s = s.getFather()){
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return iterator with all the states from the initial one to the goal
+     */
+    public Iterator<BestFirst.State> states(){
+        BestFirst.State[] path = new BestFirst.State[this.length() + 1];
+        int i = path.length;
+        for(BestFirst.State s = this.goal; s != null; s = s.getFather()){
+            path[--i] = s;
+        }
+        return Arrays.asList(path).iterator();
+    }
+
+    /**
+     * Moves of the solution, from the initial layout to the goal
+     * Stack indexes of each move refer to the layout before it (see Ilayout.moves)
+     * @return iterator over the moves kept by the states of the path
+     */
+    @Override
+    public Iterator<Move> iterator(){
+        //the chain goes from the goal back, so its moves are taken in reverse
+        Move[] moves = new Move[this.length()];
+        int i = moves.length;
+        for(BestFirst.State s = this.goal; s.getFather() != null; s = s.getFather()){
+            moves[--i] = s.getMove() != null ? s.getMove() : move(s.getFather().getLayout(), s.getLayout());
+        }
+        return Arrays.asList(moves).iterator();
+    }
+
+    /**
+     * Finds the move between two layouts, for states built without their move (read from a checkpoint
+     * or rebuilt from layouts)
+     * @param from layout before the move
+     * @param to layout after the move
+     * @return move that makes to from from
+     * @throws IllegalStateException if no move of from gives to
+     */
+    private static Move move(Ilayout from, Ilayout to){
+        for(Move m : from.moves()){
+            Ilayout child = from.apply(m);
+            if(child.key() == to.key() && child.equals(to)){
+                return m;
+            }
+        }
+        throw new IllegalStateException("No move from " + from + " to " + to);
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.Iterator;
+
+public interface Solver {
+    /**
+     * @return iterator with all the steps taken to go from s to goal, null if goal can't be reached
+     */
+    Iterator<BestFirst.State> solve(Ilayout s, Ilayout goal);
+
+    /**
+     * @return solution from s to goal, null if goal can't be reached
+     */
+    default Solution solution(Ilayout s, Ilayout goal){
+        BestFirst.State last = null;
+        Iterator<BestFirst.State> it = this.solve(s, goal);
+        if(it == null){
+            return null;
+        }
+        while(it.hasNext()){
+            last = it.next();
+        }
+        return new Solution(last);
+    }
+
+    /**
+     * @return statistics of the last solve, null if the solver doesn't keep them
+     */
+    default SearchStatistics getStatistics(){
+        return null;
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SolverClient class
+ * Client of a SolverServer: sends requests and reads their responses on one connection (see SolverServer
+ * for the protocol). loadTest measures a server, pipelining requests so that a number of them are always
+ * waiting for their responses, and reports the throughput and the percentiles of the latency.
+ */
+public class SolverClient implements Closeable {
+    private final LineChannel channel;
+
+    /**
+     * SolverClient constructor, connects to a server
+     * @param address address of the server (see SolverServer.address)
+     * @throws IOException if it can't connect
+     */
+    public SolverClient(SocketAddress address) throws IOException{
+        SocketChannel c = address instanceof UnixDomainSocketAddress ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        try{
+            c.connect(address);
+        } catch(IOException e){
+            c.close();
+            throw e;
+        }
+        this.channel = new LineChannel(c);
+    }
+
+    /**
+     * Sends a request to solve an instance, it doesn't wait for the response
+     * @param id id of the request, not used by another request waiting for its response
+     * @param initial initial layout, with the costs of the containers
+     * @param goal goal layout
+     * @throws IOException if the connection fails
+     */
+    public void solve(int id, String initial, String goal) throws IOException{
+        this.channel.send("solve " + id + "\n" + initial + "\n" + goal);
+    }
+
+    /**
+     * Sends a request to cancel a request, its response will be "id cancelled" unless it was already answered
+     * @param id id of the request
+     * @throws IOException if the connection fails
+     */
+    public void cancel(int id) throws IOException{
+        this.channel.send("cancel " + id);
+    }
+
+    /**
+     * Waits for the next response
+     * @return the response, null if the server closed the connection
+     * @throws IOException if the connection fails
+     */
+    public String receive() throws IOException{
+        return this.channel.readLine();
+    }
+
+    /**
+     * Closes the connection, the requests waiting for a response are cancelled by the server
+     * @throws IOException if it can't be closed
+     */
+    @Override
+    public void close() throws IOException{
+        this.channel.close();
+    }
+
+    /**
+     * Report class
+     * Outcome of a load test
+     */
+    public static class Report {
+        private final long[] latencies; //nanos, sorted
+        private final long nanos;
+        private final int failed;
+
+        /**
+         * Report constructor
+         * @param latencies latency of each request, in nanoseconds
+         * @param nanos duration of the test
+         * @param failed number of requests that weren't solved (or found unsolvable)
+         */
+        Report(long[] latencies, long nanos, int failed){
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.nanos = nanos;
+            this.failed = failed;
+        }
+
+        /**
+         * @return number of requests
+         */
+        public int getRequests(){
+            return this.latencies.length;
+        }
+
+        /**
+         * @return number of requests that weren't solved or found unsolvable (errors, limits...)
+         */
+        public int getFailed(){
+            return this.failed;
+        }
+
+        /**
+         * @return requests answered per second
+         */
+        public double getThroughput(){
+            return this.latencies.length / (this.nanos / 1e9);
+        }
+
+        /**
+         * Latency that a fraction of the requests didn't go over (nearest rank)
+         * @param p fraction, between 0 and 1 (0.5 for the median, 0.99 for p99)
+         * @return the latency, in milliseconds
+         */
+        public double getPercentile(double p){
+            if(this.latencies.length == 0){
+                return 0;
+            }
+            int rank = (int) Math.ceil(p * this.latencies.length);
+            return this.latencies[Math.max(0, Math.min(rank, this.latencies.length) - 1)] / 1e6;
+        }
+
+        public String toString(){
+            return String.format(Locale.ROOT, "%d requests in %.2f s, %.1f requests/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d failed",
+                    this.latencies.length, this.nanos / 1e9, this.getThroughput(), this.getPercentile(0.5),
+                    this.getPercentile(0.99), this.getPercentile(1), this.failed);
+        }
+    }
+
+    /**
+     * Load test of a server: sends requests on one connection, keeping at most inFlight of them waiting
+     * for their responses, and measures the time from sending each one to reading its response
+     * @param address address of the server
+     * @param instances initial and goal layout of each instance, sent in turns
+     * @param requests number of requests
+     * @param inFlight maximum number of requests waiting for their responses
+     * @return report of the test
+     * @throws IOException if the connection fails, or the server closes it before answering every request
+     * @throws InterruptedException if the thread is interrupted
+     * @throws IllegalArgumentException if there are no instances or inFlight isn't positive
+     */
+    public static Report loadTest(SocketAddress address, List<String[]> instances, int requests, int inFlight)
+            throws IOException, InterruptedException{
+        if(instances.isEmpty() || inFlight < 1){
+            throw new IllegalArgumentException("Invalid load test: " + instances.size() + " instances, " + inFlight + " in flight");
+        }
+        Semaphore window = new Semaphore(inFlight);
+        AtomicLongArray sent = new AtomicLongArray(requests);
+        long[] latencies = new long[requests];
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        int failed = 0;
+        try(SolverClient client = new SolverClient(address)){
+            //requests are sent by their own thread, while this one reads the responses
+            Thread sender = new Thread(() -> {
+                try{
+                    for(int i = 0; i < requests; i++){
+                        window.acquire();
+                        String[] instance = instances.get(i % instances.size());
+                        sent.set(i, System.nanoTime());
+                        client.solve(i, instance[0], instance[1]);
+                    }
+                } catch(IOException e){
+                    failure.set(e);
+                } catch(InterruptedException e){
+                    //the test stopped
+                }
+            }, "load-sender");
+            long start = System.nanoTime();
+            sender.start();
+            try{
+                for(int n = 0; n < requests; n++){
+                    String response = client.receive();
+                    long now = System.nanoTime();
+                    if(response == null){
+                        IOException e = failure.get();
+                        throw e != null ? e : new IOException("The server closed the connection after " + n + " responses");
+                    }
+                    String[] fields = response.split(" ", 3);
+                    int id = Integer.parseInt(fields[0]);
+                    latencies[n] = now - sent.get(id);
+                    if(!fields[1].equals("solved") && !fields[1].equals("unsolvable")){
+                        failed++;
+                    }
+                    window.release();
+                }
+            } finally{
+                sender.interrupt();
+                sender.join();
+            }
+            return new Report(latencies, System.nanoTime() - start, failed);
+        }
+    }
+}
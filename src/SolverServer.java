@@ -0,0 +1,346 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * SolverServer class
+ * Long-running solver daemon, so the clients pay for JVM startup, class loading and JIT warm up once, not per query.
+ * It listens on a local TCP port or Unix-domain socket, and every connection sends requests and gets responses,
+ * one per line, in UTF-8:
+ * solve id (an int chosen by the client), followed by the two lines of an instance (initial layout and goal)
+ * cancel id, stops a request of the same connection that wasn't answered yet
+ * Requests are pipelined: a client can send many of them before reading a response. Each instance is solved
+ * by BatchSolver.solve on the pool of workers, and its response is written as soon as it's ready (not in
+ * request order), as the result line of BatchSolver followed by the moves of the solution, if it has one:
+ * id solved cost moves ms move, move, ...
+ * id status - - ms [message] (unsolvable, timeout, limit, error...)
+ * id cancelled
+ * Closing a connection cancels the requests it didn't get a response to.
+ */
+public class SolverServer implements Closeable {
+    private final BatchSolver solver;
+    private final ExecutorService workers;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private ServerSocketChannel server;
+    private SocketAddress address;
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * SolverServer constructor
+     * @param threads number of worker threads
+     * @param packed true to use PackedStacksOfContainers, false for StacksOfContainers
+     * @param bucket true to give BestFirst a BucketOpenList
+     * @throws IllegalArgumentException if threads isn't positive
+     */
+    public SolverServer(int threads, boolean packed, boolean bucket){
+        this.solver = new BatchSolver(threads, packed, bucket);
+        this.workers = Executors.newFixedThreadPool(threads, daemon("solver-worker"));
+    }
+
+    /**
+     * Sets the limits of each request (see BestFirst.setLimits)
+     * @param maxStates maximum number of states kept by the search, 0 for no limit
+     * @param timeoutMillis maximum time to solve, in milliseconds, 0 for no limit
+     */
+    public void setLimits(long maxStates, long timeoutMillis){
+        this.solver.setLimits(maxStates, timeoutMillis);
+    }
+
+    /**
+     * Address of a local socket
+     * @param s a port number (TCP, on the loopback interface) or the path of a Unix-domain socket
+     * @return the address
+     */
+    public static SocketAddress address(String s){
+        if(s.matches("\\d+")){
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(s));
+        }
+        return UnixDomainSocketAddress.of(s);
+    }
+
+    /**
+     * Starts listening, connections are accepted by a background thread
+     * @param address where to listen (see address), port 0 for any free port
+     * @throws IOException if the socket can't be bound (e.g. the path of a Unix-domain socket already exists)
+     * @throws IllegalStateException if the server was already started
+     */
+    public synchronized void start(SocketAddress address) throws IOException{
+        if(this.server != null){
+            throw new IllegalStateException("The server was already started");
+        }
+        this.server = address instanceof UnixDomainSocketAddress ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        this.server.bind(address);
+        this.address = this.server.getLocalAddress();
+        this.acceptor = daemon("solver-acceptor").newThread(this::accept);
+        this.acceptor.start();
+    }
+
+    /**
+     * @return address the server listens on (with the port chosen, if it was 0), null before start
+     */
+    public SocketAddress getAddress(){
+        return this.address;
+    }
+
+    /**
+     * Accepts connections until the server is closed
+     */
+    private void accept(){
+        ThreadFactory readers = daemon("solver-connection");
+        while(!this.closed){
+            SocketChannel channel;
+            try{
+                channel = this.server.accept();
+            } catch(IOException e){
+                //closed by close(), or the socket failed and nothing else can be accepted
+                return;
+            }
+            Connection c = new Connection(channel);
+            this.connections.add(c);
+            readers.newThread(c).start();
+        }
+    }
+
+    /**
+     * Waits until the server is closed
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void await() throws InterruptedException{
+        Thread t;
+        synchronized(this){
+            t = this.acceptor;
+        }
+        if(t != null){
+            t.join();
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and stops their requests
+     * (the file of a Unix-domain socket is removed)
+     */
+    @Override
+    public synchronized void close(){
+        this.closed = true;
+        if(this.server != null){
+            try{
+                this.server.close();
+            } catch(IOException e){
+                //nothing else to release
+            }
+            if(this.address instanceof UnixDomainSocketAddress u){
+                try{
+                    Files.deleteIfExists(u.getPath());
+                } catch(IOException e){
+                    //a stale file only stops the next start on the same path
+                }
+            }
+        }
+        for(Connection c : this.connections){
+            c.close();
+        }
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * @param name name of the threads
+     * @return factory of daemon threads, so a server doesn't keep the JVM alive by itself
+     */
+    private static ThreadFactory daemon(String name){
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Response to a request that was solved
+     * @param r result of the request
+     * @param containers containers of the instance
+     * @return result line, followed by the moves of the solution if it has one
+     */
+    static String response(BatchSolver.Result r, ContainerTable containers){
+        if(r.solution == null){
+            return r.toString();
+        }
+        StringBuilder sb = new StringBuilder(r.toString());
+        String separator = " ";
+        for(Move m : r.solution){
+            sb.append(separator).append(m.toString(containers));
+            separator = ", ";
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Connection class
+     * Reads the requests of a client, on its own thread, and writes their responses from the workers
+     */
+    private final class Connection implements Runnable {
+        private final LineChannel channel;
+        private final ConcurrentHashMap<Integer, Future<?>> pending = new ConcurrentHashMap<>();
+
+        /**
+         * Connection constructor
+         * @param channel socket of the client
+         */
+        Connection(SocketChannel channel){
+            this.channel = new LineChannel(channel);
+        }
+
+        /**
+         * Reads requests until the client closes the connection
+         */
+        @Override
+        public void run(){
+            try{
+                String request;
+                while((request = this.channel.readLine()) != null){
+                    if(!request.isBlank()){
+                        this.handle(request.strip());
+                    }
+                }
+            } catch(IOException e){
+                //the client is gone, its requests are stopped
+            } finally{
+                this.close();
+            }
+        }
+
+        /**
+         * Handles a request
+         * @param request first line of the request
+         * @throws IOException if the rest of the request can't be read
+         */
+        private void handle(String request) throws IOException{
+            String[] words = request.split("\\s+");
+            int id;
+            try{
+                id = words.length == 2 ? Integer.parseInt(words[1]) : -1;
+            } catch(NumberFormatException e){
+                id = -1;
+            }
+            if(words[0].equals("solve")){
+                //the instance lines are read even when the id is wrong, so the next request starts where it should
+                String initial = this.channel.readLine();
+                String goal = this.channel.readLine();
+                if(initial == null || goal == null){
+                    return;
+                }
+                if(id < 0){
+                    this.send(new BatchSolver.Result(id, "error", null, "invalid request: " + request).toString());
+                    return;
+                }
+                this.solve(id, initial, goal);
+            }
+            else if(words[0].equals("cancel") && id >= 0){
+                Future<?> f = this.pending.remove(id);
+                //the request wasn't answered yet, and now it won't be
+                if(f != null){
+                    f.cancel(true);
+                    this.send(id + " cancelled");
+                }
+            }
+            else{
+                this.send(new BatchSolver.Result(id, "error", null, "invalid request: " + request).toString());
+            }
+        }
+
+        /**
+         * Hands an instance to the workers, its response is written when it's solved
+         * @param id id of the request
+         * @param initial initial layout, with the costs of the containers
+         * @param goal goal layout
+         */
+        private void solve(int id, String initial, String goal){
+            Instance instance;
+            try{
+                byte[] bytes = (initial + "\n" + goal + "\n").getBytes(StandardCharsets.UTF_8);
+                instance = new InstanceParser(ByteBuffer.wrap(bytes)).next();
+            } catch(IOException | InstanceFormatException e){
+                this.send(new BatchSolver.Result(id, "error", null, e.getMessage()).toString());
+                return;
+            }
+            if(instance == null){
+                this.send(new BatchSolver.Result(id, "error", null, "empty instance").toString());
+                return;
+            }
+            FutureTask<BatchSolver.Result> task = new FutureTask<>(() -> solver.solve(id, instance)){
+                @Override
+                protected void done(){
+                    //a request that was cancelled was already answered, and its id may be used by a new one
+                    if(this.isCancelled() || !pending.remove(id, this)){
+                        return;
+                    }
+                    try{
+                        send(response(this.get(), instance.getContainers()));
+                    } catch(InterruptedException | ExecutionException e){
+                        send(new BatchSolver.Result(id, "error", null, String.valueOf(e.getCause())).toString());
+                    }
+                }
+            };
+            if(this.pending.putIfAbsent(id, task) != null){
+                this.send(new BatchSolver.Result(id, "error", null, "request " + id + " is still running").toString());
+                return;
+            }
+            try{
+                workers.execute(task);
+            } catch(RejectedExecutionException e){
+                //the server is closing
+                this.pending.remove(id);
+            }
+        }
+
+        /**
+         * Writes a line to the client, from any thread
+         * @param s line
+         */
+        private void send(String s){
+            try{
+                this.channel.send(s);
+            } catch(ClosedChannelException e){
+                //the connection was closed, its requests don't need responses
+            } catch(IOException e){
+                this.close();
+            }
+        }
+
+        /**
+         * Closes the connection and stops its requests
+         */
+        void close(){
+            for(Future<?> f : this.pending.values()){
+                f.cancel(true);
+            }
+            this.pending.clear();
+            try{
+                this.channel.close();
+            } catch(IOException e){
+                //nothing else to release
+            }
+            connections.remove(this);
+        }
+    }
+}
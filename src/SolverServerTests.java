@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverServerTests {
+
+    private static final String[][] INSTANCES = {
+            {"A1B2 C3", "ABC"},
+            {"C1B2A2 F4E1D1", "ABC DEF"},
+            {"A2 B8C5 D1E1F3", "EACFB D"},
+            {"A4 H7 F4E1D9I5 C1B8G1", "HAFIDB CE G"}
+    };
+
+    //solved in tens of seconds, so it is still running when it gets cancelled
+    private static final String[] HARD = {
+            "Q7 V7L6R2M8 I2H7A4 K6J9 B3 T7 C3 D4G9 O3P6E7 S3X1U7 N1W7F3",
+            "P LJD NEF XH V C GM TQ WUIA KOSBR"
+    };
+
+    @Test
+    void testPipelining() throws IOException{
+        try(SolverServer server = new SolverServer(2, true, false)){
+            server.start(SolverServer.address("0"));
+            try(SolverClient client = new SolverClient(server.getAddress())){
+                //every request is sent before reading any response
+                for(int i = 0; i < 20; i++){
+                    String[] instance = INSTANCES[i % INSTANCES.length];
+                    client.solve(i, instance[0], instance[1]);
+                }
+                client.solve(20, "A1 B", "AB");
+                HashMap<Integer, String> responses = new HashMap<>();
+                for(int i = 0; i <= 20; i++){
+                    String response = client.receive();
+                    responses.put(Integer.parseInt(response.split(" ")[0]), response);
+                }
+                for(int i = 0; i < 20; i++){
+                    String[] instance = INSTANCES[i % INSTANCES.length];
+                    String[] fields = responses.get(i).split(" ", 6);
+                    assertEquals(fields[1], "solved");
+                    assertEquals(Double.parseDouble(fields[2]), SolverTests.cost(new BestFirst(), instance[0], instance[1]));
+                    //one move per step of the solution
+                    assertEquals(fields[5].split(", ").length, Integer.parseInt(fields[3]));
+                }
+                assertTrue(responses.get(20).startsWith("20 error"));
+                assertTrue(responses.get(20).contains("line 1, column 5"));
+            }
+        }
+    }
+
+    @Test
+    void testCancel() throws IOException{
+        try(SolverServer server = new SolverServer(1, true, false)){
+            server.start(SolverServer.address("0"));
+            try(SolverClient client = new SolverClient(server.getAddress())){
+                client.solve(1, HARD[0], HARD[1]);
+                //waits behind the first one on the only worker
+                client.solve(2, INSTANCES[0][0], INSTANCES[0][1]);
+                client.cancel(1);
+                assertEquals(client.receive(), "1 cancelled");
+                assertTrue(client.receive().startsWith("2 solved 3 "));
+                //a request that was answered can't be cancelled, so there is no response
+                client.cancel(2);
+                client.solve(3, INSTANCES[0][0], INSTANCES[0][1]);
+                assertTrue(client.receive().startsWith("3 solved"));
+                //the id of a cancelled request can be used again, and gets the response of the new request only
+                client.solve(4, HARD[0], HARD[1]);
+                client.cancel(4);
+                assertEquals(client.receive(), "4 cancelled");
+                client.solve(4, INSTANCES[1][0], INSTANCES[1][1]);
+                client.solve(5, INSTANCES[0][0], INSTANCES[0][1]);
+                assertTrue(client.receive().startsWith("4 solved 11 "));
+                assertTrue(client.receive().startsWith("5 solved 3 "));
+            }
+        }
+    }
+
+    @Test
+    void testInvalidSolve() throws IOException{
+        try(SolverServer server = new SolverServer(1, true, false)){
+            server.start(SolverServer.address("0"));
+            try(LineChannel channel = new LineChannel(SocketChannel.open(server.getAddress()))){
+                //the instance of a solve without a valid id is read all the same, and gets a single error
+                channel.send("solve x\n" + INSTANCES[0][0] + "\n" + INSTANCES[0][1]);
+                channel.send("solve\n" + INSTANCES[0][0] + "\n" + INSTANCES[0][1]);
+                channel.send("solve 1\n" + INSTANCES[0][0] + "\n" + INSTANCES[0][1]);
+                assertEquals(channel.readLine(), new BatchSolver.Result(-1, "error", null, "invalid request: solve x").toString());
+                assertEquals(channel.readLine(), new BatchSolver.Result(-1, "error", null, "invalid request: solve").toString());
+                assertTrue(channel.readLine().startsWith("1 solved 3 "));
+            }
+        }
+    }
+
+    @Test
+    void testLoad(@TempDir Path dir) throws Exception{
+        try(SolverServer server = new SolverServer(2, false, false)){
+            server.start(UnixDomainSocketAddress.of(dir.resolve("solver.sock")));
+            List<String[]> instances = new ArrayList<>(List.of(INSTANCES));
+            instances.add(new String[]{"A1 B1", "C"});
+            SolverClient.Report report = SolverClient.loadTest(server.getAddress(), instances, 50, 4);
+            assertEquals(report.getRequests(), 50);
+            //the bad instance is sent every fifth request
+            assertEquals(report.getFailed(), 10);
+            assertTrue(report.getThroughput() > 0);
+            assertTrue(report.getPercentile(0.5) <= report.getPercentile(0.99));
+            assertTrue(report.getPercentile(0.99) <= report.getPercentile(1));
+        }
+        assertFalse(dir.resolve("solver.sock").toFile().exists());
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * SolverSession class
+ * Long-lived solver for many instances that share their goal layout, e.g. the initial layouts of a shift
+ * that only differ by a few moves. What doesn't depend on the initial layout is kept between solves:
+ * - the goal layout, so its goal index and pattern databases (see usePatterns) are built once
+ * - the container table, initial layouts are read against it
+ * - abertos and fechados of the BestFirst, emptied but not freed, so they don't grow again from scratch
+ * - a HeuristicCache with the lower bounds of the cost to the goal learned by each solve, so layouts
+ * that were already searched start with a better h
+ * Not thread safe, a session solves one instance at a time.
+ */
+public class SolverSession {
+    private final Ilayout goal;
+    private final ContainerTable containers;
+    private final BestFirst solver;
+    private final HeuristicCache cache; //null for none
+    private int solves;
+
+    /**
+     * SolverSession constructor
+     * @param goal goal layout of every instance, built with the real costs of the containers
+     * (e.g. new PackedStacksOfContainers(goal, initial)), its heuristics set up already
+     * @param cacheCapacity maximum number of layouts of the heuristic cache, 0 for no cache
+     * @throws IllegalArgumentException if cacheCapacity is negative
+     * @throws IllegalStateException if goal isn't a StacksOfContainers or a PackedStacksOfContainers
+     */
+    public SolverSession(Ilayout goal, int cacheCapacity){
+        if(cacheCapacity < 0){
+            throw new IllegalArgumentException("Invalid cache capacity: " + cacheCapacity);
+        }
+        if(goal instanceof PackedStacksOfContainers p){
+            this.containers = p.getContainers();
+        }
+        else if(goal instanceof StacksOfContainers s){
+            this.containers = s.getContainers();
+        }
+        else{
+            throw new IllegalStateException("Unknown layout: " + goal.getClass().getName());
+        }
+        this.goal = goal;
+        this.cache = cacheCapacity == 0 ? null : new HeuristicCache(cacheCapacity);
+        this.solver = new BestFirst();
+        this.solver.setHeuristicCache(this.cache);
+    }
+
+    /**
+     * Reads an initial layout of the session, of the same kind as the goal
+     * @param str linear string defining the initial layout (ids followed by their costs)
+     * @return the layout
+     * @throws InstanceFormatException if the string isn't formatted correctly, or its containers or their costs
+     * aren't the ones of the goal
+     */
+    public Ilayout layout(String str){
+        int[][] stacks = InstanceParser.layout(str, new InstanceParser.Names(containers), true, true);
+        if(goal instanceof PackedStacksOfContainers p){
+            return new PackedStacksOfContainers(stacks, p);
+        }
+        return new StacksOfContainers(stacks, containers);
+    }
+
+    /**
+     * Solves an instance and learns the cost to the goal of the states it closed
+     * The initial layout is solved as a layout of its own: if it is the child of another one, the move
+     * that created it doesn't forbid the first move (taking it back), so the cost found is its real one
+     * and so are the values learned from it.
+     * @param initial initial layout, with the containers of the goal (see layout)
+     * @return solution found, null if the goal can't be reached
+     * @throws SearchLimitException if a limit is reached or the thread is interrupted
+     */
+    public Solution solve(Ilayout initial){
+        Solution solution = solver.solution(root(initial), goal);
+        solves++;
+        if(solution != null && cache != null){
+            solver.learn(cache, solution);
+        }
+        return solution;
+    }
+
+    /**
+     * @param initial initial layout
+     * @return the same layout with no last move
+     */
+    private static Ilayout root(Ilayout initial){
+        if(initial instanceof PackedStacksOfContainers p){
+            return p.withoutLastMove();
+        }
+        return ((StacksOfContainers) initial).withoutLastMove();
+    }
+
+    /**
+     * Sets the limits of the next solves (see BestFirst.setLimits)
+     * @param maxStates maximum number of states kept in abertos and fechados together, 0 for no limit
+     * @param timeoutMillis maximum duration of a solve, in milliseconds, 0 for no limit
+     */
+    public void setLimits(long maxStates, long timeoutMillis){
+        solver.setLimits(maxStates, timeoutMillis);
+    }
+
+    /**
+     * Lets go of abertos and fechados, the next solve creates them again (the heuristic cache is kept)
+     */
+    public void release(){
+        solver.release();
+    }
+
+    /**
+     * @return goal layout of the session
+     */
+    public Ilayout getGoal(){
+        return goal;
+    }
+
+    /**
+     * @return containers of the session
+     */
+    public ContainerTable getContainers(){
+        return containers;
+    }
+
+    /**
+     * @return heuristic cache of the session, null if it has none
+     */
+    public HeuristicCache getCache(){
+        return cache;
+    }
+
+    /**
+     * @return number of solves of the session
+     */
+    public int getSolves(){
+        return solves;
+    }
+
+    /**
+     * @return statistics of the last solve, null before the first one
+     */
+    public SearchStatistics getStatistics(){
+        return solver.getStatistics();
+    }
+}
@@ -0,0 +1,598 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverTests {
+
+    private static final String[][] INSTANCES = {
+            {"A1B2 C3", "ABC"},
+            {"C1B2A2 F4E1D1", "ABC DEF"},
+            {"B2D1F4 E1A2C1", "ABC DEF"},
+            {"A2 B8C5 D1E1F3", "EACFB D"},
+            {"F9 E8 B9C1 D6A2", "E FB C A D"},
+            {"A1D1G1J1 B1E1H1K1 C1F1I1L1", "ABCDEFGHIJKL"}
+    };
+
+    /**
+     * Solves an instance and checks the path: it starts on the initial layout,
+     * ends on the goal, every step is a child of the one before and g adds up
+     * @return cost of the solution
+     */
+    static double cost(Solver solver, String initial, String goal){
+        PackedStacksOfContainers s = new PackedStacksOfContainers(initial);
+        PackedStacksOfContainers g = new PackedStacksOfContainers(goal, s);
+        Iterator<BestFirst.State> it = solver.solve(s, g);
+        assertNotNull(it);
+        BestFirst.State previous = it.next();
+        assertEquals(previous.getLayout(), s);
+        assertEquals(previous.getG(), 0);
+        while(it.hasNext()){
+            BestFirst.State step = it.next();
+            assertTrue(previous.getLayout().children().contains(step.getLayout()));
+            assertEquals(step.getG(), previous.getG() + step.getLayout().getG());
+            previous = step;
+        }
+        assertTrue(previous.getLayout().isGoal(g));
+        return previous.getG();
+    }
+
+    /**
+     * @return parser of the instances of input
+     */
+    static InstanceParser parser(String input){
+        return new InstanceParser(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testIDAStar(){
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            assertEquals(cost(new IDAStar(), instance[0], instance[1]), expected);
+            assertEquals(cost(new IDAStar(1 << 16), instance[0], instance[1]), expected);
+            //a tiny table keeps replacing its entries but must still find the optimum
+            assertEquals(cost(new IDAStar(4), instance[0], instance[1]), expected);
+        }
+    }
+
+    @Test
+    void testBidirectionalBestFirst(){
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            assertEquals(cost(new BidirectionalBestFirst(), instance[0], instance[1]), expected);
+        }
+        //already on the goal
+        assertEquals(cost(new BidirectionalBestFirst(), "A1B2 C3", "AB C"), 0);
+    }
+
+    @Test
+    void testParallelBestFirst(){
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            assertEquals(cost(new ParallelBestFirst(3), instance[0], instance[1]), expected);
+        }
+        PackedStacksOfContainers s = new PackedStacksOfContainers(INSTANCES[5][0]);
+        PackedStacksOfContainers g = new PackedStacksOfContainers(INSTANCES[5][1], s);
+        ParallelBestFirst p = new ParallelBestFirst(3);
+        Solution solution = p.solution(s, g);
+        SearchStatistics stats = p.getStatistics();
+        assertEquals(stats.getCost(), solution.getCost());
+        assertEquals(stats.getExpanded(), Arrays.stream(p.getExpandedPerWorker()).sum());
+        assertTrue(stats.getGenerated() > stats.getExpanded());
+        p.setLimits(10, 0);
+        SearchLimitException e = assertThrows(SearchLimitException.class, () -> p.solve(s, g));
+        assertEquals(e.getLimit(), SearchLimitException.Limit.STATES);
+        assertNotNull(e.getStatistics());
+        //interrupting solve stops the workers
+        Thread.currentThread().interrupt();
+        e = assertThrows(SearchLimitException.class, () -> new ParallelBestFirst(3).solve(s, g));
+        assertTrue(Thread.interrupted());
+        assertEquals(e.getLimit(), SearchLimitException.Limit.INTERRUPTED);
+        //a worker that fails stops the others, and solve throws its failure
+        PackedStacksOfContainers failing = new PackedStacksOfContainers(INSTANCES[5][0]){
+            @Override
+            public PackedStacksOfContainers apply(Move m){
+                throw new OutOfMemoryError("test");
+            }
+        };
+        assertThrows(OutOfMemoryError.class, () -> new ParallelBestFirst(3).solve(failing, g));
+    }
+
+    @Test
+    void testAnytimeBestFirst(){
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            AnytimeBestFirst solver = new AnytimeBestFirst(5, 1);
+            List<double[]> improvements = new ArrayList<>();
+            solver.setListener(new SearchListener(){
+                @Override
+                public void improved(Solution solution, double bound, SearchStatistics statistics){
+                    improvements.add(new double[]{solution.getCost(), bound});
+                }
+            });
+            assertEquals(cost(solver, instance[0], instance[1]), expected);
+            assertEquals(solver.getBound(), 1);
+            //costs never go up, bounds never go up, and each cost is within its bound
+            for(int i = 0; i < improvements.size(); i++){
+                double[] im = improvements.get(i);
+                assertTrue(im[0] <= im[1] * expected);
+                if(i > 0){
+                    assertTrue(im[0] <= improvements.get(i - 1)[0] && im[1] <= improvements.get(i - 1)[1]);
+                }
+            }
+        }
+        //on a deadline it gives the best solution it has, or stops if it has none
+        AnytimeBestFirst solver = new AnytimeBestFirst(1, 1);
+        solver.setLimits(10, 0);
+        PackedStacksOfContainers s = new PackedStacksOfContainers(INSTANCES[5][0]);
+        assertThrows(SearchLimitException.class, () -> solver.solve(s, new PackedStacksOfContainers(INSTANCES[5][1], s)));
+    }
+
+    @Test
+    void testAnytimeBoundBeforeSearchEnds(){
+        //S -> G costs 100 and S -> A -> G costs 2: G is generated with S, before any search ends
+        int[][] edges = {{0, 2, 100}, {0, 1, 1}, {1, 2, 1}};
+        AnytimeBestFirst solver = new AnytimeBestFirst(5, 1);
+        List<double[]> improvements = new ArrayList<>();
+        solver.setListener(new SearchListener(){
+            @Override
+            public void improved(Solution solution, double bound, SearchStatistics statistics){
+                improvements.add(new double[]{solution.getCost(), bound});
+            }
+        });
+        solver.solve(new Graph(edges, 0, 0), new Graph(edges, 2, 0));
+        assertEquals(solver.getCost(), 2);
+        assertFalse(improvements.isEmpty());
+        for(double[] im : improvements){
+            assertTrue(im[0] <= im[1] * 2);
+        }
+        assertEquals(solver.getBound(), 1);
+    }
+
+    /**
+     * Layout of a graph with weighted edges and no heuristic, the cheapest path isn't always the shortest one
+     */
+    private static final class Graph implements Ilayout {
+        private final int[][] edges; //from, to and cost
+        private final int node;
+        private final double g;
+
+        Graph(int[][] edges, int node, double g){
+            this.edges = edges;
+            this.node = node;
+            this.g = g;
+        }
+
+        @Override
+        public List<Ilayout> children(){
+            List<Ilayout> children = new ArrayList<>();
+            for(Move m : this.moves()){
+                children.add(this.apply(m));
+            }
+            return children;
+        }
+
+        @Override
+        public List<Move> moves(){
+            List<Move> moves = new ArrayList<>();
+            for(int i = 0; i < this.edges.length; i++){
+                if(this.edges[i][0] == this.node){
+                    moves.add(new Move(this.node, this.edges[i][1], i, false));
+                }
+            }
+            return moves;
+        }
+
+        @Override
+        public Ilayout apply(Move m){
+            return new Graph(this.edges, m.to, this.edges[m.container][2]);
+        }
+
+        @Override
+        public long key(){
+            return this.node;
+        }
+
+        @Override
+        public boolean isGoal(Ilayout l){
+            return this.equals(l);
+        }
+
+        @Override
+        public double getG(){
+            return this.g;
+        }
+
+        @Override
+        public double heuristics(Ilayout l){
+            return 0;
+        }
+
+        @Override
+        public void write(DataOutput out){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Ilayout read(DataInput in){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] classify(List<Move> moves, Ilayout goal){
+            return new byte[moves.size()];
+        }
+
+        @Override
+        public boolean equals(Object o){
+            return o instanceof Graph other && other.node == this.node;
+        }
+
+        @Override
+        public int hashCode(){
+            return this.node;
+        }
+    }
+
+    @Test
+    void testExternalBestFirst(@TempDir Path dir) throws IOException{
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            //with so few states in memory rounds are sorted in many runs, merged in groups
+            assertEquals(cost(new ExternalBestFirst(dir, 16), instance[0], instance[1]), expected);
+        }
+        //every file is deleted at the end
+        try(Stream<Path> files = Files.list(dir)){
+            assertEquals(files.count(), 0);
+        }
+        StacksOfContainers s = new StacksOfContainers(INSTANCES[0][0], false);
+        assertThrows(IllegalStateException.class, () -> new ExternalBestFirst(dir).solve(s, new StacksOfContainers(INSTANCES[0][1], s)));
+    }
+
+    @Test
+    void testCheckpoint(@TempDir Path dir) throws IOException{
+        Path file = dir.resolve("checkpoint.bin");
+        for(boolean packed : new boolean[]{false, true}){
+            Ilayout s = packed ? new PackedStacksOfContainers(INSTANCES[5][0]) : new StacksOfContainers(INSTANCES[5][0], false);
+            Ilayout g = packed ? new PackedStacksOfContainers(INSTANCES[5][1], (PackedStacksOfContainers) s)
+                    : new StacksOfContainers(INSTANCES[5][1], (StacksOfContainers) s);
+            //stopped at a limit, the search is saved where it stopped
+            BestFirst solver = new BestFirst();
+            solver.setCheckpoint(file, 1);
+            solver.setLimits(100, 0);
+            SearchLimitException e = assertThrows(SearchLimitException.class, () -> solver.solve(s, g));
+            long expanded = e.getStatistics().getExpanded();
+            assertTrue(Files.size(Checkpoint.log(file)) > 0);
+            //resumed with the same checkpoint, the log goes on from the snapshot
+            BestFirst again = new BestFirst();
+            again.setCheckpoint(file, 1);
+            again.setLimits(200, 0);
+            e = assertThrows(SearchLimitException.class, () -> again.resume(file, s, g));
+            assertTrue(e.getStatistics().getExpanded() > expanded);
+            expanded = e.getStatistics().getExpanded();
+            BestFirst resumed = new BestFirst();
+            Solution solution = resumed.resume(file, s, g);
+            assertEquals(solution.getCost(), cost(new BestFirst(), INSTANCES[5][0], INSTANCES[5][1]));
+            assertTrue(resumed.getStatistics().getExpanded() > expanded);
+            //the moves of the resumed solution go from s to the goal
+            Ilayout l = s;
+            for(Move m : solution){
+                l = l.apply(m);
+            }
+            assertTrue(l.isGoal(g));
+        }
+        //another problem
+        PackedStacksOfContainers other = new PackedStacksOfContainers(INSTANCES[0][0]);
+        assertThrows(IllegalStateException.class, () -> new BestFirst().resume(file, other, new PackedStacksOfContainers(INSTANCES[0][1], other)));
+    }
+
+    @Test
+    void testStatistics(){
+        BestFirst solver = new BestFirst();
+        int[] expanded = {0};
+        SearchStatistics[] finished = {null};
+        solver.setListener(new SearchListener(){
+            @Override
+            public void expanded(BestFirst.State s, SearchStatistics statistics){
+                expanded[0]++;
+            }
+
+            @Override
+            public void finished(SearchStatistics statistics){
+                finished[0] = statistics;
+            }
+        });
+        double cost = cost(solver, "A2 B8C5 D1E1F3", "EACFB D");
+        SearchStatistics stats = solver.getStatistics();
+        assertSame(stats, finished[0]);
+        assertEquals(stats.getCost(), cost);
+        assertEquals(stats.getExpanded(), expanded[0]);
+        assertTrue(stats.getGenerated() >= stats.getExpanded());
+        assertTrue(stats.getPeakOpen() > 0 && stats.getPeakClosed() == stats.getExpanded());
+        assertTrue(stats.getRootH() <= cost);
+        assertTrue(stats.getEffectiveBranchingFactor() >= 1);
+        assertTrue(stats.toJson().startsWith("{\"solved\":true,\"cost\":" + (int) cost + ","));
+        //solvers that don't keep statistics
+        assertNull(new IDAStar().getStatistics());
+    }
+
+    @Test
+    void testBatchSolver() throws IOException{
+        StringBuilder input = new StringBuilder();
+        for(String[] instance : INSTANCES){
+            input.append(instance[0]).append('\n').append(instance[1]).append("\n\n");
+        }
+        input.append("A1 B2\nAB C\n"); //bad goal
+        BatchSolver b = new BatchSolver(3, true, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(b.run(parser(input.toString()), new PrintStream(out)), INSTANCES.length);
+        String[] lines = out.toString().split("\\R");
+        assertEquals(lines.length, INSTANCES.length + 1);
+        for(int i = 0; i < INSTANCES.length; i++){
+            String[] fields = lines[i].split(" ");
+            assertEquals(fields[0], Integer.toString(i + 1));
+            assertEquals(fields[1], "solved");
+            assertEquals(Double.parseDouble(fields[2]), cost(new BestFirst(), INSTANCES[i][0], INSTANCES[i][1]));
+        }
+        assertTrue(lines[INSTANCES.length].startsWith((INSTANCES.length + 1) + " error"));
+        //a search that needs more states than allowed is stopped
+        b.setLimits(10, 0);
+        out.reset();
+        b.run(parser(INSTANCES[5][0] + "\n" + INSTANCES[5][1]), new PrintStream(out));
+        assertTrue(out.toString().startsWith("1 limit"));
+        //the buckets only take integer costs, decimal ones are rejected before the search
+        BatchSolver buckets = new BatchSolver(1, true, true);
+        out.reset();
+        assertEquals(buckets.run(parser("A1.5 B2\nAB\n\nA1 B2\nBA\n"), new PrintStream(out)), 1);
+        lines = out.toString().split("\\R");
+        assertTrue(lines[0].startsWith("1 error") && lines[0].contains("integer costs"), lines[0]);
+        assertTrue(lines[1].startsWith("2 solved"), lines[1]);
+    }
+
+    @Test
+    void testSolution(){
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            for(boolean packed : new boolean[]{false, true}){
+                Ilayout s = packed ? new PackedStacksOfContainers(instance[0]) : new StacksOfContainers(instance[0], false);
+                Ilayout g = packed ? new PackedStacksOfContainers(instance[1], (PackedStacksOfContainers) s)
+                        : new StacksOfContainers(instance[1], (StacksOfContainers) s);
+                BestFirst solver = new BestFirst();
+                Solution solution = solver.solution(s, g);
+                solver.release();
+                assertEquals(solution.getCost(), expected);
+                //replaying the moves from the initial layout reaches the goal with the same cost
+                Ilayout l = s;
+                double g0 = 0;
+                int n = 0;
+                for(Move m : solution){
+                    assertFalse(m.undo);
+                    l = l.apply(m);
+                    g0 += l.getG();
+                    n++;
+                }
+                assertTrue(l.isGoal(g));
+                assertEquals(g0, expected);
+                assertEquals(n, solution.length());
+                assertEquals(solution.length(), solver.getStatistics().getDepth());
+                //states go from the initial layout to the goal, and each one keeps the move that made it
+                Iterator<BestFirst.State> states = solution.states();
+                BestFirst.State last = states.next();
+                assertSame(last.getLayout(), s);
+                assertNull(last.getMove());
+                while(states.hasNext()){
+                    last = states.next();
+                    assertNotNull(last.getMove());
+                }
+                assertSame(last, solution.getGoal());
+            }
+        }
+        //the default of the other solvers walks the path
+        PackedStacksOfContainers s = new PackedStacksOfContainers(INSTANCES[3][0]);
+        Solution solution = new IDAStar().solution(s, new PackedStacksOfContainers(INSTANCES[3][1], s));
+        assertEquals(solution.getCost(), cost(new BestFirst(), INSTANCES[3][0], INSTANCES[3][1]));
+    }
+
+    @Test
+    void testSession(){
+        String initial = "A4 H7 F4E1D9I5 C1B8G1";
+        String goal = "HAFIDB CE G";
+        for(boolean packed : new boolean[]{false, true}){
+            Ilayout s = packed ? new PackedStacksOfContainers(initial) : new StacksOfContainers(initial, false);
+            Ilayout g = packed ? new PackedStacksOfContainers(goal, (PackedStacksOfContainers) s)
+                    : new StacksOfContainers(goal, (StacksOfContainers) s);
+            SolverSession session = new SolverSession(g, 20000);
+            assertEquals(session.layout(initial), s);
+            assertEquals(session.solve(session.layout(initial)).getCost(), cost(new BestFirst(), initial, goal));
+            //initial layouts a few random moves away from the first one, solved as well as from scratch
+            Random random = new Random(7);
+            for(int i = 0; i < 15; i++){
+                Ilayout l = s;
+                for(int j = random.nextInt(4); j >= 0; j--){
+                    List<Ilayout> children = l.children();
+                    l = children.get(random.nextInt(children.size()));
+                }
+                //the session doesn't forbid taking back the move that created l
+                Ilayout root = packed ? ((PackedStacksOfContainers) l).withoutLastMove() : ((StacksOfContainers) l).withoutLastMove();
+                assertEquals(session.solve(l).getCost(), new BestFirst().solution(root, g).getCost());
+            }
+            HeuristicCache cache = session.getCache();
+            assertTrue(cache.getHits() > 0);
+            assertTrue(cache.size() <= cache.capacity());
+            assertEquals(session.getSolves(), 16);
+            //the same instance again starts with its exact cost, and expands fewer states than from scratch
+            BestFirst fresh = new BestFirst();
+            fresh.solution(s, g);
+            Solution again = session.solve(s);
+            assertEquals(session.getStatistics().getRootH(), again.getCost());
+            assertTrue(session.getStatistics().getExpanded() < fresh.getStatistics().getExpanded());
+        }
+        //a small cache evicts, and its values are still admissible
+        PackedStacksOfContainers s = new PackedStacksOfContainers(initial);
+        PackedStacksOfContainers g = new PackedStacksOfContainers(goal, s);
+        SolverSession small = new SolverSession(g, 8);
+        for(Ilayout l : s.children()){
+            assertEquals(small.solve(l).getCost(), new BestFirst().solution(((PackedStacksOfContainers) l).withoutLastMove(), g).getCost());
+        }
+        assertEquals(small.getCache().size(), 8);
+        assertTrue(small.getCache().getEvictions() > 0);
+        //initial layouts must have the containers and costs of the goal
+        SolverSession session = new SolverSession(g, 0);
+        assertNull(session.getCache());
+        assertEquals(session.solve(session.layout("A4H7 F4E1D9I5 C1B8G1")).getCost(), cost(new BestFirst(), "A4H7 F4E1D9I5 C1B8G1", goal));
+        assertThrows(InstanceFormatException.class, () -> session.layout("A4 H7 F4E1D9I5 C1B8G2"));
+        assertThrows(InstanceFormatException.class, () -> session.layout("A4 H7 F4E1D9I5 C1B8J1"));
+        assertThrows(InstanceFormatException.class, () -> session.layout("A4 H7 F4E1D9I5 C1B8"));
+    }
+
+    @Test
+    void testSMAStar(){
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            assertEquals(cost(new SMAStar(1000), instance[0], instance[1]), expected);
+            //a fraction of what A* keeps is enough, after evicting and regenerating nodes
+            assertEquals(cost(new SMAStar(30), instance[0], instance[1]), expected);
+        }
+        PackedStacksOfContainers s = new PackedStacksOfContainers(INSTANCES[5][0]);
+        PackedStacksOfContainers g = new PackedStacksOfContainers(INSTANCES[5][1], s);
+        BestFirst a = new BestFirst();
+        a.solution(s, g);
+        SMAStar sma = new SMAStar(30);
+        assertEquals(sma.solution(s, g).getCost(), a.getStatistics().getCost());
+        SearchStatistics stats = sma.getStatistics();
+        assertTrue(stats.getPeakOpen() + stats.getPeakClosed() < a.getStatistics().getPeakOpen() + a.getStatistics().getPeakClosed());
+        assertTrue(stats.getEvicted() > 0);
+        assertTrue(stats.getRegenerated() > 0);
+        //a budget that can't hold the path to the goal
+        PackedStacksOfContainers small = new PackedStacksOfContainers(INSTANCES[1][0]);
+        SearchLimitException e = assertThrows(SearchLimitException.class,
+                () -> new SMAStar(4).solve(small, new PackedStacksOfContainers(INSTANCES[1][1], small)));
+        assertEquals(e.getLimit(), SearchLimitException.Limit.STATES);
+        assertTrue(e.getStatistics().getEvicted() > 0);
+        assertThrows(IllegalArgumentException.class, () -> new SMAStar(0));
+    }
+
+    @Test
+    void testPruning(){
+        //every combination of rules keeps the solutions optimal
+        for(String[] instance : INSTANCES){
+            double expected = cost(new BestFirst(), instance[0], instance[1]);
+            for(int mask = 1; mask < 1 << Pruning.values().length; mask++){
+                EnumSet<Pruning> rules = EnumSet.noneOf(Pruning.class);
+                for(Pruning rule : Pruning.values()){
+                    if((mask >> rule.ordinal() & 1) != 0){
+                        rules.add(rule);
+                    }
+                }
+                BestFirst pruned = new BestFirst();
+                pruned.setPruning(rules);
+                assertEquals(cost(pruned, instance[0], instance[1]), expected);
+            }
+        }
+        for(boolean packed : new boolean[]{false, true}){
+            Ilayout s = packed ? new PackedStacksOfContainers(INSTANCES[5][0]) : new StacksOfContainers(INSTANCES[5][0], false);
+            Ilayout g = packed ? new PackedStacksOfContainers(INSTANCES[5][1], (PackedStacksOfContainers) s)
+                    : new StacksOfContainers(INSTANCES[5][1], (StacksOfContainers) s);
+            BestFirst plain = new BestFirst();
+            double cost = plain.solution(s, g).getCost();
+            BestFirst pruned = new BestFirst();
+            pruned.setPruning(EnumSet.allOf(Pruning.class));
+            assertEquals(pruned.solution(s, g).getCost(), cost);
+            SearchStatistics stats = pruned.getStatistics();
+            assertTrue(stats.getGenerated() < plain.getStatistics().getGenerated());
+            assertTrue(stats.getExpanded() <= plain.getStatistics().getExpanded());
+            for(Pruning rule : Pruning.values()){
+                assertTrue(stats.getPruned(rule) > 0);
+            }
+        }
+    }
+
+    @Test
+    void testAsync() throws Exception{
+        String[] hard = {"Q7 V7L6R2M8 I2H7A4 K6J9 B3 T7 C3 D4G9 O3P6E7 S3X1U7 N1W7F3", "P LJD NEF XH V C GM TQ WUIA KOSBR"};
+        PackedStacksOfContainers hs = new PackedStacksOfContainers(hard[0]);
+        PackedStacksOfContainers hg = new PackedStacksOfContainers(hard[1], hs);
+        try(AsyncSolver solver = new AsyncSolver()){
+            //many solves at once, sharing their layouts
+            List<AsyncSolver.Solve> solves = new ArrayList<>();
+            List<Double> expected = new ArrayList<>();
+            for(int i = 0; i < 60; i++){
+                String[] instance = INSTANCES[i % INSTANCES.length];
+                PackedStacksOfContainers s = new PackedStacksOfContainers(instance[0]);
+                solves.add(solver.solve(s, new PackedStacksOfContainers(instance[1], s)));
+                expected.add(cost(new BestFirst(), instance[0], instance[1]));
+            }
+            CompletableFuture.allOf(solves.toArray(new CompletableFuture<?>[0])).get();
+            for(int i = 0; i < solves.size(); i++){
+                assertEquals(solves.get(i).get().getCost(), expected.get(i));
+                assertEquals(solves.get(i).statistics().get().getCost(), expected.get(i));
+            }
+            //a deadline stops the search, with the statistics until then
+            AsyncSolver.Solve late = solver.solve(hs, hg, Duration.ofMillis(50), 0);
+            ExecutionException e = assertThrows(ExecutionException.class, late::get);
+            SearchLimitException limit = assertInstanceOf(SearchLimitException.class, e.getCause());
+            assertEquals(limit.getLimit(), SearchLimitException.Limit.TIME);
+            assertTrue(limit.getStatistics().getExpanded() > 0);
+            assertSame(late.statistics().get(), limit.getStatistics());
+            //cancel interrupts the search, which still gives its partial statistics
+            AsyncSolver.Solve cancelled = solver.solve(hs, hg);
+            Thread.sleep(100);
+            assertTrue(cancelled.cancel(true));
+            assertThrows(CancellationException.class, cancelled::get);
+            SearchStatistics partial = cancelled.statistics().get(10, TimeUnit.SECONDS);
+            assertTrue(partial.getExpanded() > 0);
+        }
+        //an Error thrown by the search completes the solve too
+        try(AsyncSolver solver = new AsyncSolver(() -> {
+            BestFirst failing = new BestFirst();
+            failing.setListener(new SearchListener(){
+                @Override
+                public void expanded(BestFirst.State s, SearchStatistics statistics){
+                    throw new StackOverflowError("test");
+                }
+            });
+            return failing;
+        })){
+            ExecutionException e = assertThrows(ExecutionException.class, () -> solver.solve(hs, hg).get(10, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, e.getCause());
+        }
+        //a BestFirst can't run two solves at once
+        BestFirst shared = new BestFirst();
+        CountDownLatch started = new CountDownLatch(1);
+        shared.setListener(new SearchListener(){
+            @Override
+            public void expanded(BestFirst.State s, SearchStatistics statistics){
+                started.countDown();
+            }
+        });
+        Thread t = Thread.ofVirtual().start(() -> assertThrows(SearchLimitException.class, () -> shared.solve(hs, hg)));
+        started.await();
+        IllegalStateException busy = assertThrows(IllegalStateException.class, () -> shared.solve(hs, hg));
+        assertTrue(busy.getMessage().contains("already solving"));
+        t.interrupt();
+        t.join();
+    }
+}
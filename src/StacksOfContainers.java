@@ -1,84 +1,164 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Stack;
 
 /**
  * Class that will represent the different stacks of containers
+ * Stacks are always kept sorted by their bottom container (canonical form),
+ * so two equal layouts always have their stacks in the same order.
  */
 @SuppressWarnings({"unchecked"})
 public class StacksOfContainers implements Ilayout, Cloneable{
 
+    //order of the stacks in canonical form
+    private static final Comparator<Stack<Container>> BY_BOTTOM = (s1, s2) -> s1.getFirst().compareTo(s2.getFirst());
+
     private ArrayList<Stack<Container>> stacksOfContainers;
 
     private Container lastMovedContainer;
+    private Container lastMovedFrom; //container that was below lastMovedContainer, null if it was on the ground
 
     private String str; //stores the string so we only need to generate it once
-    private int hc; //stores the hashcode so we only need to generate it once
+    private long key; //zobrist key, kept up to date from father to child
+
+    private GoalIndex hIndex; //goal index h was computed for, null if it wasn't computed yet
+    private double h; //h0 value towards the goal of hIndex
+    private GoalIndex goalIndex; //only built for goal layouts, it holds everything else a goal needs
+    private ContainerTable table; //built by the first read, so a checkpoint builds it once for all its layouts
 
     /**
      * Constructor to help with the way different data is given in the input
+     * (see InstanceParser for the format, costs are only given in the initial layout)
      * @param str linear string defining stacks of containers layout
      * @param goal is it goal or is it initial layout (are given in different strings) true if it's goal, false if not
-     * @throws IllegalStateException if the string isn't formatted correctly
+     * @throws InstanceFormatException if the string isn't formatted correctly
      */
     public StacksOfContainers(String str, boolean goal){
-        if(str.isEmpty()){
-            throw new IllegalStateException("Invalid arg in StacksOfContainers constructor");
-        }
-        this.stacksOfContainers = new ArrayList<>();
-        this.lastMovedContainer = null;
-        String[] aos = str.split(" ");
-        if(!goal){
-            for(String s : aos){
-                Stack<Container> currentStack = new Stack<>();
-                for(int i = 0; i < s.length()/2; i++) {
-                    char id;
-                    int cost;
-                    try {
-                        id = s.charAt(i * 2);
-                        cost = Character.getNumericValue(s.charAt(i * 2 + 1));
-                    } catch (IllegalStateException e) {
-                        throw new IllegalStateException("Invalid arg in StacksOfContainers constructor");
-                    }
-                    Container currentContainer = new Container(id, cost);
-                    currentStack.push(currentContainer);
-                }
-                this.stacksOfContainers.add(currentStack);
+        this(new InstanceParser.Names(), str, !goal, false);
+    }
+
+    /**
+     * Constructor for goal layouts that also need the real cost of each container
+     * (the goal string only has ids, so the containers are taken from the initial layout)
+     * @param str linear string defining the goal layout
+     * @param initial initial layout of the same problem
+     * @throws InstanceFormatException if the string isn't formatted correctly, has a container that isn't in initial
+     * or misses one that is
+     */
+    public StacksOfContainers(String str, StacksOfContainers initial){
+        this(new InstanceParser.Names(ContainerTable.of(initial.containers())), str, false, true);
+    }
+
+    /**
+     * Constructor for layouts given as strings
+     * @param names containers of the problem, new ones are added to it unless closed
+     * @param str linear string defining stacks of containers layout
+     * @param costs true if every id is followed by its cost
+     * @param closed true if every container must already be in names, and all of them must be in str
+     */
+    private StacksOfContainers(InstanceParser.Names names, String str, boolean costs, boolean closed){
+        this(InstanceParser.layout(str, names, costs, closed), names.table());
+    }
+
+    /**
+     * Constructor for layouts read by InstanceParser
+     * @param stacks ids of the containers of each stack, bottom to top
+     * @param containers containers of the problem
+     */
+    StacksOfContainers(int[][] stacks, ContainerTable containers){
+        this(stacks(stacks, containers), null);
+    }
+
+    /**
+     * @param stacks ids of the containers of each stack, bottom to top
+     * @param containers containers of the problem
+     * @return the stacks of containers
+     */
+    private static ArrayList<Stack<Container>> stacks(int[][] stacks, ContainerTable containers){
+        ArrayList<Stack<Container>> soc = new ArrayList<>(stacks.length);
+        for(int[] s : stacks){
+            Stack<Container> stack = new Stack<>();
+            for(int i : s){
+                stack.push(containers.get(i));
             }
+            soc.add(stack);
         }
-        else{
-            this.stacksOfContainers = new ArrayList<>();
-            this.lastMovedContainer = null;
-            for(String s : aos){
-                Stack<Container> currentStack = new Stack<>();
-                for(int i = 0; i < s.length(); i++) {
-                    char id;
-                    try {
-                        id = s.charAt(i);
-                    } catch (IllegalStateException e) {
-                        throw new IllegalStateException("Invalid arg in StacksOfContainers constructor");
-                    }
-                    Container currentContainer = new Container(id, 0);
-                    currentStack.push(currentContainer);
-                }
-                this.stacksOfContainers.add(currentStack);
-            }
+        return soc;
+    }
+
+    /**
+     * @return table of the containers of the problem (built from the containers of the layout on each call)
+     */
+    public ContainerTable getContainers(){
+        return ContainerTable.of(this.containers());
+    }
+
+    /**
+     * @return every container of the layout, stack by stack from the bottom
+     */
+    private List<Container> containers(){
+        List<Container> result = new ArrayList<>();
+        for(Stack<Container> s : this.stacksOfContainers){
+            result.addAll(s);
         }
-        this.str = null;
-        this.hc = 0;
+        return result;
     }
 
     /**
      * StacksOfContainers constructor
-     * @param soc new stacks of containers
+     * @param soc new stacks of containers (sorted into canonical form)
      * @param c last moved container
      */
     public StacksOfContainers(ArrayList<Stack<Container>> soc, Container c){
+        soc.sort(BY_BOTTOM);
+        this.stacksOfContainers = soc;
+        this.lastMovedContainer = c;
+        this.str = null;
+        this.key = this.computeKey();
+    }
+
+    /**
+     * StacksOfContainers constructor used for children, whose key comes from the father
+     * @param soc new stacks of containers, already in canonical form
+     * @param c last moved container
+     * @param from container that was below c, null if it was on the ground
+     * @param key zobrist key of soc
+     */
+    private StacksOfContainers(ArrayList<Stack<Container>> soc, Container c, Container from, long key){
         this.stacksOfContainers = soc;
         this.lastMovedContainer = c;
+        this.lastMovedFrom = from;
         this.str = null;
-        this.hc = 0;
+        this.key = key;
+    }
+
+    /**
+     * @return the same layout with no last move, like an initial layout (the stacks are shared)
+     */
+    StacksOfContainers withoutLastMove(){
+        return new StacksOfContainers(this.stacksOfContainers, null, null, this.key);
+    }
+
+    /**
+     * Computes the zobrist key from scratch
+     * @return xor of the positions of all the containers
+     */
+    private long computeKey(){
+        long result = 0;
+        for(Stack<Container> s : this.stacksOfContainers){
+            int bottom = s.getFirst().id;
+            for(int i = 0; i < s.size(); i++){
+                result ^= Zobrist.position(s.get(i).id, bottom, i);
+            }
+        }
+        return result;
     }
 
     /**
@@ -98,57 +178,102 @@ public class StacksOfContainers implements Ilayout, Cloneable{
     /**
      * Returns all the successors of the current layout of the stacks of containers
      * (basically all moves possible regarding 1 container moving)
+     * Every move gives a different layout, the move that takes the last moved container back
+     * is left out because its child is the layout this one came from
      * @return children of current stacks of containers layout
      */
     @Override
     public List<Ilayout> children() {
+        List<Ilayout> children = new ArrayList<>();
+        for(Move m : this.moves()){
+            if(!m.undo){
+                children.add(this.apply(m));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Lists all the moves possible regarding 1 container moving, without building the children
+     * Stack indexes refer to the current order of stacksOfContainers
+     * @return moves of current stacks of containers layout
+     */
+    @Override
+    public List<Move> moves() {
         //we select a Container, get it in any other possible position in 1 iteration
         //and do it again to all containers that are available to move.
-
-        List<Ilayout> children = new ArrayList<>();
+        List<Move> moves = new ArrayList<>();
+        int n = this.stacksOfContainers.size();
 
         //use this loop because we will use 1 container of each stack of containers
-        for(int i = 0; i < this.stacksOfContainers.size(); i++){
-            //current stack chosen will be skipped inside the inner loop because we can't place
-            //a container where it already is
+        for(int i = 0; i < n; i++){
             Container currentContainer = this.stacksOfContainers.get(i).peek();
+            boolean last = currentContainer == this.lastMovedContainer;
 
-            for(int j = 0; j < this.stacksOfContainers.size(); j++){
+            for(int j = 0; j < n; j++){
                 //we aren't going to place a container where it already is
                 if(j == i){
                     continue;
                 }
-                StacksOfContainers currentChild = this.clone();
-
-                //save the last moved container into the child
-                currentChild.lastMovedContainer = currentContainer;
-
-                //pop the container that we are using as currentContainer
-                currentChild.stacksOfContainers.get(i).pop();
-
-                //push the container that has been popped from another stack into a new one
-                currentChild.stacksOfContainers.get(j).push(currentContainer);
-
-                //if the stack where the currentContainer has been popped from is now empty
-                //we remove it
-                if(currentChild.stacksOfContainers.get(i).isEmpty()){
-                    currentChild.stacksOfContainers.remove(i);
-                }
-                children.add(currentChild);
+                boolean undo = last && this.stacksOfContainers.get(j).peek() == this.lastMovedFrom;
+                moves.add(new Move(i, j, currentContainer.id, undo));
             }
             //case where stack in i postion has more than 1 element, so we need to create one extra case
             //where the element that is going to be popped can be in a new stack at the end of the list
             if(this.stacksOfContainers.get(i).size() > 1){
-                StacksOfContainers currentChild = this.clone();
-                currentChild.stacksOfContainers.get(i).pop();
-                currentChild.lastMovedContainer = currentContainer;
-                Stack<Container> newStack = new Stack<>();
-                newStack.push(currentContainer);
-                currentChild.stacksOfContainers.add(newStack);
-                children.add(currentChild);
+                moves.add(new Move(i, Move.NEW_STACK, currentContainer.id, last && this.lastMovedFrom == null));
             }
         }
-        return children;
+        return moves;
+    }
+
+    /**
+     * Builds the child we get by applying a move
+     * Only the two stacks touched by the move are copied, the others are shared with this layout
+     * (stacks are never changed after the layout that holds them is built)
+     * @param m move created by moves()
+     * @return child layout
+     */
+    @Override
+    public StacksOfContainers apply(Move m) {
+        ArrayList<Stack<Container>> soc = new ArrayList<>(this.stacksOfContainers);
+        Stack<Container> from = (Stack<Container>) soc.get(m.from).clone();
+        int fromBottom = from.getFirst().id;
+        Container currentContainer = from.pop();
+        soc.set(m.from, from);
+        Stack<Container> to;
+        if(m.to == Move.NEW_STACK){
+            to = new Stack<>();
+            to.push(currentContainer);
+            //the new stack goes where its bottom keeps the stacks sorted
+            int at = Collections.binarySearch(soc, to, BY_BOTTOM);
+            soc.add(-at - 1, to);
+        }
+        else{
+            to = (Stack<Container>) soc.get(m.to).clone();
+            to.push(currentContainer);
+            soc.set(m.to, to);
+            //if the stack where the currentContainer has been popped from is now empty
+            //we remove it
+            if(from.isEmpty()){
+                soc.remove(m.from);
+            }
+        }
+        long childKey = Zobrist.move(this.key, currentContainer.id, fromBottom, from.size(), to.getFirst().id, to.size() - 1);
+        StacksOfContainers child = new StacksOfContainers(soc, currentContainer, from.isEmpty() ? null : from.peek(), childKey);
+        //only the source and destination stacks changed, so only those are scored again
+        if(this.hIndex != null){
+            double h = this.h - score(this.stacksOfContainers.get(m.from), this.hIndex) + score(to, this.hIndex);
+            if(m.to != Move.NEW_STACK){
+                h -= score(this.stacksOfContainers.get(m.to), this.hIndex);
+            }
+            if(!from.isEmpty()){
+                h += score(from, this.hIndex);
+            }
+            child.h = h;
+            child.hIndex = this.hIndex;
+        }
+        return child;
     }
 
     /**
@@ -194,122 +319,117 @@ public class StacksOfContainers implements Ilayout, Cloneable{
     /**
      * heuristics() will use the h0 heuristic function
      * to calculate the heuristic value of the current layout of containers
+     * The value is computed once per goal, children of a layout that already has it
+     * get theirs updated by apply()
      * @param l goal (objective)
      * @return heuristic value of current layout of containers
      */
     public double heuristics(Ilayout l){
         StacksOfContainers goal = (StacksOfContainers) l;
-        return this.h0(goal);
+        GoalIndex index = goal.goalIndex();
+        if(this.hIndex != index){
+            this.h = this.h0(index);
+            this.hIndex = index;
+        }
+        PatternHeuristic patterns = index.getPatterns();
+        if(patterns != null){
+            return Math.max(this.h, patterns.value(this.ids()));
+        }
+        return this.h;
+    }
+
+    /**
+     * Flags of the moves of this layout for the pruning of BestFirst (see Pruning)
+     * @param moves moves of this layout, as given by moves()
+     * @param l goal (objective)
+     * @return Pruning flags of every move
+     */
+    @Override
+    public byte[] classify(List<Move> moves, Ilayout l){
+        StacksOfContainers goal = (StacksOfContainers) l;
+        int last = this.lastMovedContainer == null ? -1 : this.lastMovedContainer.id;
+        return Pruning.classify(moves, this.ids(), last, goal.goalIndex());
+    }
+
+    /**
+     * Makes the layouts that use this one as goal also use a pattern database heuristic
+     * (the biggest of it and h0). This layout must have the real costs of its containers.
+     * @param size maximum number of containers of a pattern (at most PatternDatabase.MAX_SIZE)
+     * @param combine how the values of the patterns are combined
+     * @param dir directory of the database files, null to keep them in memory only
+     * @throws IOException if a database file can't be read or written
+     */
+    public void usePatterns(int size, PatternHeuristic.Combine combine, Path dir) throws IOException{
+        int[][] costs = new int[this.stacksOfContainers.size()][];
+        for(int s = 0; s < costs.length; s++){
+            Stack<Container> currentStack = this.stacksOfContainers.get(s);
+            costs[s] = new int[currentStack.size()];
+            for(int i = 0; i < costs[s].length; i++){
+                costs[s][i] = PatternHeuristic.cost(currentStack.get(i).cost);
+            }
+        }
+        this.goalIndex().setPatterns(new PatternHeuristic(this.ids(), costs, size, combine, dir));
+    }
+
+    /**
+     * @return ids of the containers of each stack, bottom to top
+     */
+    private int[][] ids(){
+        int[][] stacks = new int[this.stacksOfContainers.size()][];
+        for(int s = 0; s < stacks.length; s++){
+            Stack<Container> currentStack = this.stacksOfContainers.get(s);
+            stacks[s] = new int[currentStack.size()];
+            for(int i = 0; i < stacks[s].length; i++){
+                stacks[s][i] = currentStack.get(i).id;
+            }
+        }
+        return stacks;
+    }
+
+    /**
+     * Getter of the goal index of this layout (built the first time it is needed)
+     * @return goal index of this layout when used as goal
+     */
+    private GoalIndex goalIndex(){
+        if(this.goalIndex == null){
+            this.goalIndex = new GoalIndex(this.ids());
+        }
+        return this.goalIndex;
     }
 
     /**
      * h0 heuristic function
      * takes into account the cost of each container that will need to get moved at least
      * either once or twice for us to be closer to the objective
-     * @param goal objective
+     * (see GoalIndex.score for the value of each stack)
+     * @param index goal index of the objective
      * @return heuristic h0 value
      */
-    private int h0(StacksOfContainers goal){
-        int result = 0;
-        int goalN = goal.stacksOfContainers.size();
-        HashSet<Container> containersBelow;
-        HashSet<Container> goalContainersBelow;
+    private double h0(GoalIndex index){
+        double result = 0;
         for(Stack<Container> s0 : this.stacksOfContainers){
-            //if stack in this already exists in goal we skip this stack
-            if(goal.stacksOfContainers.contains(s0)){
-                continue;
-            }
-            Container c0 = s0.getFirst();
-            int foundAt = -1;
-            int i = 0;
-            //search goal for a stack with a container on the ground equal to the
-            //one we have on the ground on the current this stack
-            while(i < goalN && foundAt == -1){
-                if(goal.stacksOfContainers.get(i).getFirst().equals(c0)){
-                    foundAt = i;
-                    continue;
-                }
-                i++;
-            }
-            containersBelow = new HashSet<>();
-            //if we didn't find a container on the ground on goal, then we need to
-            //remove all of these containers from this stack
-            //and move the bottom somewhere (we don't know where, we just know it shouldn't be on the ground)
-            //so what we need to do is move all of them (at least)
-            //(below we can see some cases where it's more than 1 time)
-            if(foundAt == -1){
-                for(int k = 0; k < s0.size(); k++){
-                    Container currentC = s0.get(k);
-                    //it's in the wrong place, so will need to move at least 1 time out
-                    result += currentC.cost;
-                    if(k >= 1){
-                        //containers that are below current container in goal
-                        goalContainersBelow = goal.findContainersBelow(currentC);
-                        if(!goalContainersBelow.isEmpty()){
-                            //if there is any container that should be below it, below it
-                            //(but they are mispositioned)
-                            //we'll need to move at least current container 2 times
-                            //1 out and 1 on above of the other container
-                            for(Container cC : goalContainersBelow){
-                                if(containersBelow.contains(cC)){
-                                    result += currentC.cost;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    containersBelow.add(currentC);
-                }
-            }
-            //if we found it, we will need to at least move all the
-            //containers that are placed wrong on the stack out of it.
-            //that is, find the deepest container inside the stack that is placed wrong
-            //and start removing from there
-            else{
-                Stack<Container> currentGoalStack = goal.stacksOfContainers.get(foundAt);
-                int currentGoalStackN = currentGoalStack.size();
-                boolean foundDifference = false;
-                for(int k = 1; k < s0.size(); k++){
-                    Container currentC = s0.get(k);
-                    if(!foundDifference){
-                        //case where goal stack is smaller than this stack
-                        if(k > currentGoalStackN-1){
-                            foundDifference = true;
-                        }
-                        //if they are not equal then we found the deepest difference in the stack
-                        else if(!currentGoalStack.get(k).equals(currentC)){
-                            foundDifference = true;
-                        }
-                    }
-                    if(foundDifference){
-                        goalContainersBelow = goal.findContainersBelow(currentC);
-                        //will always need to move ate least 1 time
-                        result += currentC.cost;
-                        //if the current container is contained in the same goal stack but is misplaced
-                        //we will need to move it at least 2 times
-                        //1 time out of the stack and another time in
-                        if(currentGoalStack.contains(currentC)){
-                            result += currentC.cost;
-                        }
-                        //if there is any container that should be below it, below it (but these are mispositioned),
-                        //so will need to move at least 2 times
-                        //1 out and one on top of the container
-                        else{
-                            for(Container cC : goalContainersBelow){
-                                if(containersBelow.contains(cC)){
-                                    result += currentC.cost;
-                                    break;
-                                }
-                            }
-                        }
-                        containersBelow.add(currentC);
-                    }
-                }
-            }
+            result += score(s0, index);
         }
         return result;
     }
 
+    /**
+     * Contribution of one stack to h0
+     * @param s stack of containers
+     * @param index goal index of the objective
+     * @return heuristic value of the stack
+     */
+    private static double score(Stack<Container> s, GoalIndex index){
+        int[] ids = new int[s.size()];
+        double[] costs = new double[s.size()];
+        for(int i = 0; i < ids.length; i++){
+            Container c = s.get(i);
+            ids[i] = c.id;
+            costs[i] = c.cost;
+        }
+        return index.score(ids, costs, ids.length);
+    }
+
     /**
      * Getter of stacksOfContainers
      * @return stacksOfContainers
@@ -333,7 +453,11 @@ public class StacksOfContainers implements Ilayout, Cloneable{
      * Note: This method is meant to be used for tests only
      */
     public void setStacksOfContainers(ArrayList<Stack<Container>> soc){
+        soc.sort(BY_BOTTOM);
         this.stacksOfContainers = soc;
+        this.str = null;
+        this.key = this.computeKey();
+        this.hIndex = null;
     }
 
     /**
@@ -344,34 +468,122 @@ public class StacksOfContainers implements Ilayout, Cloneable{
         this.lastMovedContainer = c;
     }
 
+    /**
+     * Writes the layout in binary form: number of stacks, then the size and the container ids of each stack
+     * (bottom to top), then the ids of the last moved container and of the one that was below it (-1 for none)
+     * @param out where the layout is written
+     * @throws IOException if out can't be written
+     */
+    @Override
+    public void write(DataOutput out) throws IOException{
+        out.writeInt(this.stacksOfContainers.size());
+        for(Stack<Container> s : this.stacksOfContainers){
+            out.writeInt(s.size());
+            for(Container c : s){
+                out.writeInt(c.id);
+            }
+        }
+        out.writeInt(this.lastMovedContainer == null ? -1 : this.lastMovedContainer.id);
+        out.writeInt(this.lastMovedFrom == null ? -1 : this.lastMovedFrom.id);
+    }
+
+    /**
+     * Reads a layout of the same problem written by write, its containers are the ones of this layout
+     * @param in where the layout is read from
+     * @return the layout read
+     * @throws IOException if in can't be read
+     * @throws IllegalStateException if the data has a container that isn't in this layout
+     */
+    @Override
+    public StacksOfContainers read(DataInput in) throws IOException{
+        if(this.table == null){
+            this.table = ContainerTable.of(this.containers());
+        }
+        ContainerTable containers = this.table;
+        int n = in.readInt();
+        if(n < 1 || n > containers.size()){
+            throw new IllegalStateException("Invalid layout data");
+        }
+        ArrayList<Stack<Container>> soc = new ArrayList<>(n);
+        int total = 0;
+        for(int i = 0; i < n; i++){
+            Stack<Container> stack = new Stack<>();
+            int size = in.readInt();
+            if(size < 1 || size > containers.size() - total){
+                throw new IllegalStateException("Invalid layout data");
+            }
+            for(int j = 0; j < size; j++){
+                stack.push(container(containers, in.readInt()));
+            }
+            total += size;
+            soc.add(stack);
+        }
+        if(total != containers.size()){
+            throw new IllegalStateException("Invalid layout data");
+        }
+        int last = in.readInt();
+        int from = in.readInt();
+        StacksOfContainers result = new StacksOfContainers(soc, last == -1 ? null : container(containers, last));
+        result.lastMovedFrom = from == -1 ? null : container(containers, from);
+        return result;
+    }
+
+    /**
+     * @param containers containers of the problem
+     * @param id id read
+     * @return container with that id
+     * @throws IllegalStateException if there is none
+     */
+    private static Container container(ContainerTable containers, int id){
+        if(id < 0 || id >= containers.size()){
+            throw new IllegalStateException("Unknown container " + id + " in layout data");
+        }
+        return containers.get(id);
+    }
+
+    /**
+     * Getter of key
+     * @return zobrist key of the stacks of containers
+     */
+    @Override
+    public long key(){
+        return this.key;
+    }
+
     /**
      * equals method
+     * Keys are compared first, the containers of the stacks (in canonical form) are only compared when they match
      * @param o another object to compare with this object
      * @return true if they are equal false if not
      */
     @Override
     public boolean equals(Object o){
-        StacksOfContainers that = (StacksOfContainers) o;
-        if(this.stacksOfContainers.size() != that.stacksOfContainers.size()){
+        if(!(o instanceof StacksOfContainers that) || this.key != that.key
+                || this.stacksOfContainers.size() != that.stacksOfContainers.size()){
             return false;
         }
-        else if(this.hc != 0 && that.hc != 0){
-            return this.hc == that.hc;
-        }
-        else{
-            return this.toString().equals(that.toString());
+        for(int i = 0; i < this.stacksOfContainers.size(); i++){
+            Stack<Container> s1 = this.stacksOfContainers.get(i);
+            Stack<Container> s2 = that.stacksOfContainers.get(i);
+            if(s1.size() != s2.size()){
+                return false;
+            }
+            for(int j = 0; j < s1.size(); j++){
+                if(s1.get(j).id != s2.get(j).id){
+                    return false;
+                }
+            }
         }
+        return true;
     }
 
     /**
      * hashCode method
-     * @return hashCode of the string format of the stacks of containers
+     * @return hashCode of the zobrist key
      */
+    @Override
     public int hashCode(){
-        if(this.hc == 0){
-            this.hc = this.toString().hashCode();
-        }
-        return this.hc;
+        return Long.hashCode(this.key);
     }
 
     /**
@@ -380,7 +592,6 @@ public class StacksOfContainers implements Ilayout, Cloneable{
      */
     public String toString(){
         if(this.str == null){
-            this.stacksOfContainers.sort((s1,s2) -> s1.getFirst().compareTo(s2.getFirst()));
             StringBuilder str = new StringBuilder();
             for(Stack<Container> stacksOfContainer : stacksOfContainers) {
                 str.append(stacksOfContainer.toString());
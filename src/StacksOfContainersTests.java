@@ -1,6 +1,12 @@
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Stack;
 
@@ -32,6 +38,16 @@ class StacksOfContainersTests {
         assertTrue(soc.isGoal(socGoal));
     }
 
+    @Test
+    void testConstructor3(){
+        //goal built from the initial layout gets the real costs
+        StacksOfContainers soc = new StacksOfContainers("X2Y3 A1B1 Z4", false);
+        StacksOfContainers socGoal = new StacksOfContainers("ZY AB X", soc);
+        assertEquals(socGoal.toString(), "[A, B]\r\n[X]\r\n[Z, Y]\r\n");
+        assertEquals(socGoal.getStacksOfContainers().get(2).peek().cost, 3);
+        assertThrows(IllegalStateException.class, () -> new StacksOfContainers("ZY AB W", soc));
+    }
+
     @Test
     void testClone() {
         String str = "A1B2C3 D1F4 G5 J2K4L9M0";
@@ -99,6 +115,47 @@ class StacksOfContainersTests {
 
     }
 
+    @Test
+    void testMoves() {
+        String str = "A1B2 C3 D4";
+        StacksOfContainers soc = new StacksOfContainers(str, false);
+        List<Move> moves = soc.moves();
+        //B to C, B to D, B to the ground, C to AB, C to D, D to AB, D to C
+        assertEquals(moves.size(), 7);
+        for(Move m : moves){
+            assertFalse(m.undo);
+        }
+        //moving B on top of C only copies the two touched stacks
+        StacksOfContainers child = soc.apply(moves.get(0));
+        assertNotSame(soc.getStacksOfContainers().get(0), child.getStacksOfContainers().get(0));
+        assertNotSame(soc.getStacksOfContainers().get(1), child.getStacksOfContainers().get(1));
+        assertSame(soc.getStacksOfContainers().get(2), child.getStacksOfContainers().get(2));
+        assertEquals(soc.toString(), "[A, B]\r\n[C]\r\n[D]\r\n");
+        //the only move flagged as undo takes B back to A
+        int undos = 0;
+        for(Move m : child.moves()){
+            if(m.undo){
+                undos++;
+                assertEquals(child.apply(m), soc);
+            }
+        }
+        assertEquals(undos, 1);
+    }
+
+    @Test
+    void testKey() {
+        StacksOfContainers soc = new StacksOfContainers("A1B2 C3 D4", false);
+        StacksOfContainers reordered = new StacksOfContainers("D4 C3 A1B2", false);
+        assertEquals(soc.key(), reordered.key());
+        //keys of children are updated from the father, they must match the ones computed from scratch
+        for(Ilayout child : soc.children()){
+            StacksOfContainers c = (StacksOfContainers) child;
+            StacksOfContainers fromScratch = new StacksOfContainers(new ArrayList<>(c.getStacksOfContainers()), null);
+            assertEquals(c.key(), fromScratch.key());
+            assertNotEquals(c.key(), soc.key());
+        }
+    }
+
     @Test
     void isGoal() {
         String str = "G1H2I3 J1K4 L5 M2N4O9P0";
@@ -112,7 +169,7 @@ class StacksOfContainersTests {
     void getG() {
         String str = "G1H2I3 J1K4 L5 M2N4O9P0";
         StacksOfContainers soc = new StacksOfContainers(str, false);
-        Container c = new Container('a', 2);
+        Container c = new Container(0, 2, "a");
         soc.setLastMovedContainer(c);
         assertEquals(soc.getG(), 2);
     }
@@ -162,4 +219,44 @@ class StacksOfContainersTests {
         StacksOfContainers state5 = new StacksOfContainers(str5, false);
         assertEquals(state5.heuristics(goal), 8);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCanonical(){
+        StacksOfContainers soc = new StacksOfContainers("D1 B2C3 A4E5", false);
+        //stacks are sorted when the layout is built, not when it's printed
+        assertEquals(soc.getStacksOfContainers().get(0).getFirst().name, "A");
+        for(Ilayout child : soc.children()){
+            List<Stack<Container>> stacks = ((StacksOfContainers) child).getStacksOfContainers();
+            for(int i = 1; i < stacks.size(); i++){
+                assertTrue(stacks.get(i - 1).getFirst().id < stacks.get(i).getFirst().id);
+            }
+            //no successor is built twice and the one going back to soc isn't built at all
+            List<Ilayout> grandchildren = child.children();
+            assertEquals(grandchildren.size(), new HashSet<>(grandchildren).size());
+            assertFalse(grandchildren.contains(soc));
+        }
+        //equal layouts have the same containers in the same stacks, whatever order they were given in
+        assertEquals(soc, new StacksOfContainers("A4E5 B2C3 D1", false));
+        assertNotEquals(soc, new StacksOfContainers("D1 B2C3 A4 E5", false));
+        assertNotEquals(soc, "A4E5 B2C3 D1");
+    }
+
+    @Test
+    void testBinary() throws IOException{
+        StacksOfContainers soc = new StacksOfContainers("D1 B2C3 A4E5", false);
+        for(Ilayout child : soc.children()){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            child.write(new DataOutputStream(bytes));
+            Ilayout read = soc.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(read, child);
+            assertEquals(read.key(), child.key());
+            assertEquals(read.getG(), child.getG());
+            //the last move is kept, so the same children are left out
+            assertEquals(read.children(), child.children());
+        }
+        //a layout of a problem with more containers (ids are dense, only their number can be checked)
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StacksOfContainers("D1 B2C3 A4E5F6", false).write(new DataOutputStream(bytes));
+        assertThrows(IllegalStateException.class, () -> soc.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Zobrist style hashing of layouts
+ * Every (container, bottom container of its stack, height in the stack) position gets a
+ * pseudo random 64 bit value and the key of a layout is the xor of the values of all its containers.
+ * The key doesn't depend on the order of the stacks, and since a move only changes the position
+ * of one container, the key of a child is the key of its father with 2 values xor-ed in.
+ * Values are computed on the fly (splitmix64 finalizer) instead of being kept in a table,
+ * so there is no limit on the number of containers or on the height of the stacks.
+ */
+public final class Zobrist {
+
+    private Zobrist(){
+    }
+
+    /**
+     * Value of a container in a given position
+     * @param container id of the container
+     * @param bottom id of the container at the bottom of its stack
+     * @param height height of the container in the stack (0 for the ground)
+     * @return 64 bit value of that position
+     */
+    public static long position(int container, int bottom, int height){
+        //ids and heights are way below 2^21, so different positions give different z
+        //and the finalizer is a bijection, so they also give different values
+        long z = ((long) container << 42) ^ ((long) bottom << 21) ^ height;
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Key of a child, given the key of its father
+     * @param key key of the father
+     * @param container id of the moved container
+     * @param fromBottom bottom of the stack the container was taken from
+     * @param fromHeight height the container had in that stack
+     * @param toBottom bottom of the stack the container was placed on (the container itself for a new stack)
+     * @param toHeight height the container has in the new stack
+     * @return key of the child
+     */
+    public static long move(long key, int container, int fromBottom, int fromHeight, int toBottom, int toHeight){
+        return key ^ position(container, fromBottom, fromHeight) ^ position(container, toBottom, toHeight);
+    }
+}